@@ -0,0 +1,207 @@
+package frc.Utils.sim;
+
+import java.lang.management.ManagementFactory;
+import com.sun.management.ThreadMXBean;
+import frc.HardwareInterfaces.Transmission.SwerveKinematics;
+
+/**
+ * Times SwerveKinematics against the Vector math SwerveTransmission used
+ * before it, and counts how many bytes each one allocates per call. Runs on
+ * any computer with a JDK, no robot needed:
+ *
+ * <pre>
+ * ./gradlew swerveKinematicsBenchmark
+ * </pre>
+ *
+ * It is in the benchmark source set, so it never goes in the robot's jar.
+ *
+ * SwerveKinematics must not allocate at all; if it does, the benchmark exits
+ * with 1 so the build fails.
+ *
+ * @author Kilroy
+ */
+public class SwerveKinematicsBenchmark
+{
+/**
+ * Runs the benchmark, prints the results, and exits with 1 if
+ * SwerveKinematics allocated anything.
+ *
+ * @param args
+ *                 Optionally, the number of calls to time (1,000,000 by
+ *                 default)
+ */
+public static void main (String[] args)
+{
+    int calls = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    SwerveKinematics kinematics = new SwerveKinematics();
+
+    // Warm up both, so the JIT has compiled them before timing
+    runKinematics(kinematics, calls);
+    runLegacy(calls);
+
+    // What measuring itself allocates, with nothing to measure
+    measure(() ->
+        {
+        });
+    long overhead = measure(() ->
+        {
+        })[1];
+
+    long[] kinematicsResult = measure(() -> runKinematics(kinematics, calls));
+    long[] legacyResult = measure(() -> runLegacy(calls));
+    kinematicsResult[1] = Math.max(0, kinematicsResult[1] - overhead);
+    legacyResult[1] = Math.max(0, legacyResult[1] - overhead);
+
+    print("SwerveKinematics", kinematicsResult, calls);
+    print("Vector (old)", legacyResult, calls);
+    System.out.println("checksum " + sink);
+
+    if (kinematicsResult[1] > 0)
+        {
+        System.out.println("SwerveKinematics allocated " + kinematicsResult[1]
+                + " bytes in " + calls + " calls; it must allocate none");
+        System.exit(1);
+        }
+}
+
+/**
+ * @return The nanoseconds and bytes allocated by the current thread while
+ *         the benchmark ran
+ */
+private static long[] measure (Runnable benchmark)
+{
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+
+    long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    benchmark.run();
+    long time = System.nanoTime() - start;
+    long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+    return new long[]
+        {time, bytes};
+}
+
+private static void print (String name, long[] result, int calls)
+{
+    System.out.printf("%-18s %8.1f ns/call %8.1f bytes/call%n", name,
+            (double) result[0] / calls, (double) result[1] / calls);
+}
+
+private static void runKinematics (SwerveKinematics kinematics, int calls)
+{
+    for (int i = 0; i < calls; i++)
+        {
+        kinematics.calculatePolar(input(i), input(i + 1) * 180,
+                input(i + 2));
+        for (int module = 0; module < SwerveKinematics.MODULES; module++)
+            {
+            kinematics.optimize(module, input(i + module) * 180);
+            sink += kinematics.getSpeed(module);
+            }
+        }
+}
+
+private static void runLegacy (int calls)
+{
+    for (int i = 0; i < calls; i++)
+        {
+        double magnitude = input(i);
+        double direction = input(i + 1) * 180;
+        double rotation = input(i + 2);
+
+        LegacyVector[] wheels = LegacyVector.normalize(
+                legacyWheel(magnitude, direction, rotation, 135),
+                legacyWheel(magnitude, direction, rotation, 45),
+                legacyWheel(magnitude, direction, rotation, 225),
+                legacyWheel(magnitude, direction, rotation, 315));
+
+        for (int module = 0; module < wheels.length; module++)
+            sink += legacyShortestRoute(wheels[module].dirDeg,
+                    input(i + module) * 180);
+        }
+}
+
+// A repeatable, cheap stand-in for joystick input, -1.0 to 1.0
+private static double input (int i)
+{
+    return ((i * 7919) % 2001 - 1000) / 1000.0;
+}
+
+// The old SwerveTransmission.calculateWheelVector()
+private static LegacyVector legacyWheel (double magnitude,
+        double direction, double rotation, int rotationAngle)
+{
+    LegacyVector robotVector = new LegacyVector(magnitude,
+            Math.toRadians(direction));
+    LegacyVector rotationVector = new LegacyVector(rotation,
+            Math.toRadians(rotationAngle));
+    return new LegacyVector(new double[]
+        {robotVector.x + rotationVector.x,
+                robotVector.y + rotationVector.y});
+}
+
+// The old findShortestRouteTo() and findDesiredEncoderTicks()
+private static double legacyShortestRoute (double angle, double current)
+{
+    int encoderPosition = (int) (current % 360);
+    int target = (int) angle;
+    int output;
+    if (Math.max(target, encoderPosition)
+            - Math.min(target, encoderPosition) < 90)
+        output = target;
+    else
+        if ((360 - Math.max(target, encoderPosition)
+                + Math.min(target, encoderPosition)) < 90)
+            output = target;
+        else
+            output = (target + 180) % 360;
+
+    if ((360 - Math.max(encoderPosition, output))
+            + Math.min(encoderPosition, output) < 180)
+        return output + (encoderPosition > output ? 360 : -360);
+    return output;
+}
+
+// Keeps the JIT from optimizing the work away
+private static double sink = 0;
+
+/**
+ * The Vector class SwerveTransmission used, kept only to compare against.
+ */
+private static class LegacyVector
+{
+final double mag, dirRad, dirDeg, x, y;
+
+LegacyVector (double mag, double dir)
+{
+    this.mag = mag;
+    this.dirRad = dir;
+    this.dirDeg = Math.toDegrees(dir);
+    this.x = mag * Math.sin(dir);
+    this.y = mag * Math.cos(dir);
+}
+
+LegacyVector (double[] point)
+{
+    this.x = point[0];
+    this.y = point[1];
+    this.mag = Math.sqrt(Math.pow(x, 2) + Math.pow(y, 2));
+    this.dirRad = Math.atan2(y, x);
+    this.dirDeg = Math.toDegrees(dirRad);
+}
+
+static LegacyVector[] normalize (LegacyVector... vec)
+{
+    double maxMag = 1;
+    for (LegacyVector a : vec)
+        maxMag = Math.max(Math.abs(a.mag), maxMag);
+    if (maxMag != 1 && maxMag != 0)
+        for (int i = 0; i < vec.length; i++)
+            vec[i] = new LegacyVector(vec[i].mag / maxMag, vec[i].dirRad);
+    return vec;
+}
+}
+}
@@ -0,0 +1,220 @@
+package frc.HardwareInterfaces;
+
+import edu.wpi.first.wpilibj.SpeedController;
+import frc.Utils.Clock;
+
+/**
+ * Wraps another speed controller and only passes set() on when the value has
+ * actually changed. On a CAN motor controller (Talon, Spark MAX) every set()
+ * is a frame on the bus, and the drive code sets every motor every loop even
+ * when nothing changed; skipping those frames leaves room on the bus for
+ * sensors.
+ *
+ * A value within the epsilon of the last one sent is skipped, unless the
+ * resend interval has passed since it was last sent. The resend keeps the
+ * controller's own timeout (and WPILib's motor safety) from stopping the
+ * motor while it is meant to be holding a speed. A change to exactly zero is
+ * always sent.
+ *
+ * <pre>
+ * SpeedController leftMotor = new CachingSpeedController(
+ *         new WPI_TalonSRX(2));
+ * </pre>
+ *
+ * or, for a whole drive train, TransmissionBase.enableWriteCaching().
+ *
+ * @author Kilroy
+ */
+public class CachingSpeedController implements SpeedController
+{
+/**
+ * Creates the CachingSpeedController object.
+ *
+ * @param speedController
+ *                            The speed controller that set() is passed on to
+ */
+public CachingSpeedController (SpeedController speedController)
+{
+    this.speedController = speedController;
+}
+
+/**
+ * Sets the speed, if it is different enough from the last one sent.
+ *
+ * @param speed
+ *                  -1.0 to 1.0
+ */
+@Override
+public void set (double speed)
+{
+    this.lastRequested = speed;
+    long now = this.clock.nanoTime();
+
+    if (this.hasSent == true
+            && Math.abs(speed - this.lastSent) <= this.epsilon
+            && (speed != 0 || this.lastSent == 0)
+            && now - this.lastSentTime < this.resendInterval)
+        {
+        this.framesSaved++;
+        return;
+        }
+
+    this.speedController.set(speed);
+    this.hasSent = true;
+    this.lastSent = speed;
+    this.lastSentTime = now;
+    this.framesSent++;
+}
+
+/**
+ * @return The last speed asked for with set(), whether or not it was sent.
+ */
+@Override
+public double get ()
+{
+    return this.lastRequested;
+}
+
+@Override
+public void pidWrite (double output)
+{
+    this.set(output);
+}
+
+/**
+ * Inverts the wrapped controller. The next set() is always sent.
+ */
+@Override
+public void setInverted (boolean isInverted)
+{
+    this.speedController.setInverted(isInverted);
+    this.invalidate();
+}
+
+@Override
+public boolean getInverted ()
+{
+    return this.speedController.getInverted();
+}
+
+/**
+ * Disables the wrapped controller. The next set() is always sent.
+ */
+@Override
+public void disable ()
+{
+    this.speedController.disable();
+    this.invalidate();
+}
+
+/**
+ * Stops the wrapped controller. The next set() is always sent.
+ */
+@Override
+public void stopMotor ()
+{
+    this.speedController.stopMotor();
+    this.invalidate();
+}
+
+/**
+ * Forgets the last value sent, so the next set() goes through no matter what.
+ * Use after changing the wrapped controller directly.
+ */
+public void invalidate ()
+{
+    this.hasSent = false;
+}
+
+/**
+ * @return The speed controller that set() is passed on to
+ */
+public SpeedController getSpeedController ()
+{
+    return this.speedController;
+}
+
+/**
+ * @return How many set() calls were passed on to the wrapped controller
+ */
+public long getFramesSent ()
+{
+    return this.framesSent;
+}
+
+/**
+ * @return How many set() calls were skipped
+ */
+public long getFramesSaved ()
+{
+    return this.framesSaved;
+}
+
+/**
+ * Sets both frame counters back to zero.
+ */
+public void resetCounters ()
+{
+    this.framesSent = 0;
+    this.framesSaved = 0;
+}
+
+/**
+ * Sets how close a new speed must be to the last one sent to be skipped.
+ *
+ * @param epsilon
+ *                    In percent output. .001 by default; 0 skips only
+ *                    identical values.
+ */
+public void setEpsilon (double epsilon)
+{
+    this.epsilon = Math.abs(epsilon);
+}
+
+/**
+ * Sets the longest time an unchanged speed goes without being sent again.
+ *
+ * @param seconds
+ *                    .05 by default. Keep this below the controller's (and
+ *                    motor safety's) timeout, .1 seconds by default.
+ */
+public void setResendInterval (double seconds)
+{
+    this.resendInterval = (long) (seconds * 1e9);
+}
+
+/**
+ * Sets where the time for the resend interval comes from.
+ *
+ * @param clock
+ *                  The time source. Clock.SYSTEM by default.
+ */
+public void setClock (Clock clock)
+{
+    this.clock = clock;
+    this.invalidate();
+}
+
+// ================VARIABLES================
+
+private final SpeedController speedController;
+
+private Clock clock = Clock.SYSTEM;
+
+private double lastRequested = 0;
+
+private double lastSent = 0;
+
+private long lastSentTime = 0; // Nanoseconds
+
+private boolean hasSent = false;
+
+private long framesSent = 0;
+
+private long framesSaved = 0;
+
+// TUNABLES
+private double epsilon = .001;
+
+private long resendInterval = 50_000_000L; // Nanoseconds
+}
@@ -7,6 +7,7 @@ import com.revrobotics.CANSparkMax;
 import edu.wpi.first.wpilibj.Encoder;
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.PIDSourceType;
+import frc.HardwareInterfaces.Simulation.SimulatedEncoder;
 // import frc.Hardware.Hardware;
 
 /**
@@ -27,6 +28,8 @@ private TalonSRX talonSensor = null;
 
 private CANSparkMax canEncoder = null;
 
+private SimulatedEncoder simSensor = null;
+
 private final SensorType type;
 
 /**
@@ -108,6 +111,22 @@ public KilroyEncoder (TalonSRX canMotorController)
     type = SensorType.CAN_HAT;
 }
 
+/**
+ * Creates the KilroyEncoder object with a simulated encoder, moved by a
+ * physics model instead of a real wheel. Like REV_CAN, reset() is done by
+ * saving the current position. Like a real encoder, get() and getRaw() are
+ * in ticks and getDistance() and getRate() are ticks times the distance per
+ * pulse, so give the SimulatedEncoder the same distance per tick.
+ *
+ * @param simulatedEncoder
+ *                             The simulated encoder to read.
+ */
+public KilroyEncoder (SimulatedEncoder simulatedEncoder)
+{
+    this.simSensor = simulatedEncoder;
+    type = SensorType.SIMULATED;
+}
+
 
 /**
  * Encoders read revolutions / distances by counting a number of pulses based on
@@ -146,6 +165,8 @@ public int get ()
             return talonSensor.getSelectedSensorPosition(0) / 4;
         // can talonSRX read the encoder as 4X instead of 1X, so the
         // output must be divided by 4
+        case SIMULATED:
+            return (int) this.getSimulatedTicks();
         default:
             return 0;
         } // switch
@@ -188,6 +209,8 @@ public double getRaw ()
             return talonSensor.getSelectedSensorPosition(0) / 4;
         // can talonSRX read the encoder as 4X instead of 1X, so the
         // output must be divided by 4
+        case SIMULATED:
+            return this.getSimulatedTicks();
         default:
             return 0;
         } // switch
@@ -219,6 +242,8 @@ public double getDistance ()
                             - savedPosition);
         case CAN_HAT:
             return distancePerTick * this.get();
+        case SIMULATED:
+            return distancePerTick * this.getSimulatedTicks();
         default:
             return this.get();
         }
@@ -251,11 +276,26 @@ public double getRate ()
         case CAN_HAT:
             return (talonSensor.getSelectedSensorVelocity(0) * 10)
                     * distancePerTick;
+        case SIMULATED:
+            if (this.simInverted == true)
+                return -simSensor.getTickRate() * distancePerTick;
+            return simSensor.getTickRate() * distancePerTick;
         default:
             return 0;
         }
 }
 
+/**
+ * @return The ticks counted by the simulated encoder since the last reset(),
+ *         after inversion.
+ */
+private double getSimulatedTicks ()
+{
+    if (this.simInverted == true)
+        return -(simSensor.getTicks() - savedPosition);
+    return simSensor.getTicks() - savedPosition;
+}
+
 /**
  * @return What kind of sensor is being used, either CAN or D_IO.
  */
@@ -273,6 +313,15 @@ public BaseMotorController getAttachedCANDevice ()
     return canSensor;
 }
 
+/**
+ * @return The Spark MAX, if being used, that contains the sensor. Otherwise,
+ *         returns null.
+ */
+public CANSparkMax getAttachedSparkMax ()
+{
+    return canEncoder;
+}
+
 /**
  * @return the digital encoder object, as supplied by WPILib. If CAN sensor is
  *         being used, returns null.
@@ -341,6 +390,9 @@ public void setReverseDirection (boolean inverted)
         case CAN_HAT:
             talonSensor.setSensorPhase(inverted);
             break;
+        case SIMULATED:
+            this.simInverted = inverted;
+            break;
         default:
             return;
         }
@@ -385,6 +437,10 @@ public void reset ()
             break;
         case CAN_HAT:
             talonSensor.setSelectedSensorPosition(0, 0, 0);
+            break;
+        case SIMULATED:
+            savedPosition = simSensor.getTicks();
+            break;
         default:
             return;
         }
@@ -447,7 +503,9 @@ public enum SensorType
     /** Attached to the REVSparkMax CAN encoder */
     REV_CAN,
     /** Attached to a CAN Motor Controller via hat */
-    CAN_HAT
+    CAN_HAT,
+    /** Moved by a physics model instead of a real wheel */
+    SIMULATED
     }
 
 // variable at which rotational measurements of the Spark Max is translated to
@@ -456,6 +514,8 @@ private int sparkTicksPerRevolution = 1;
 
 private double distancePerTick = 1;
 
+private boolean simInverted = false;
+
 private PIDSourceType sourceType = PIDSourceType.kDisplacement;
 
 }
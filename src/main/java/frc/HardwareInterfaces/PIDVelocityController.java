@@ -41,9 +41,11 @@
 package frc.HardwareInterfaces;
 
 import edu.wpi.first.wpilibj.Encoder;
-import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.SpeedController;
-import edu.wpi.first.wpilibj.command.PIDSubsystem;
+import frc.Utils.LoopScheduler;
+import frc.Utils.PIDRecorder;
+import frc.Utils.ScheduledPID;
+import frc.Utils.Feedforward;
 
 /**
  * This class acts as a PID controller when regulating a motor's speed based on
@@ -52,11 +54,32 @@ import edu.wpi.first.wpilibj.command.PIDSubsystem;
  * loop. Instead, we *add* the calculated velocity to our current motor value.
  * (the time derivative of the initial equation)
  *
+ * Each step works out how much the PID part of the output should change
+ * (velocity form): p times the change in error, plus i times the error, plus d
+ * times the change in the (low-pass filtered) rate derivative. The PID part is
+ * limited so that it, plus the feedforward, stays in the output range, so the
+ * loop can't wind up. The feedforward is worked out from the setpoint alone,
+ * so a new speed gets most of its power right away instead of waiting on the
+ * PID.
+ *
+ * The rate comes from timestamped encoder readings over a window of several
+ * steps, instead of getRate(), which only times the last pulse and is noisy at
+ * low speed.
+ *
+ * The loop is stepped by the shared LoopScheduler while enabled, at 200Hz
+ * unless setPeriod() says otherwise.
+ *
+ * The gains are not the ones this class took when it was a PIDSubsystem: Ki
+ * is now per second and Kd in seconds, and Kp acts on the change in error.
+ * The old loop added its whole output to the motor every 50ms, so its Kp was
+ * really an integral gain and its Kd a proportional one. setLegacyPID() takes
+ * gains tuned for the old loop and converts them.
+ *
  * @class PIDVelocityController
  * @author Noah Golmant
  * @written 11 Feb 2014
  */
-public class PIDVelocityController extends PIDSubsystem {
+public class PIDVelocityController {
 
     // The motor that will be controlled by the PID controller & loop.
     private final SpeedController motor;
@@ -64,6 +87,12 @@ public class PIDVelocityController extends PIDSubsystem {
     // The encoder that acts as the input for the PID controller.
     private final Encoder encoder;
 
+    // What steps the loop while it is enabled
+    private final LoopScheduler scheduler;
+
+    // The same object every time, so the scheduler can find it to remove it
+    private final Runnable stepLoop = this::step;
+
     // The speed of the motor to be adjusted based on
     // the PID-calculated error.
     private double setSpeed = 0.0;
@@ -79,6 +108,60 @@ public class PIDVelocityController extends PIDSubsystem {
 
     private double maxOutputDelta = .25;
 
+    private double kP, kI, kD, kF;
+
+    // Optional feedforward from characterization, added to kF * setpoint
+    private Feedforward feedforward = null;
+
+    private double setpoint = 0;
+
+    private double tolerance = 0;
+
+    // Time constant of the derivative's low-pass filter, in seconds
+    private double derivativeFilter = .02;
+
+    private double period;
+
+    private volatile boolean enabled = false;
+
+    // The PID's part of the output, built up step by step
+    private double pidOutput = 0;
+
+    private double rate = 0;
+
+    private double error = 0;
+
+    private double previousError = 0;
+
+    private double previousRate = 0;
+
+    private double filteredDerivative = 0;
+
+    private boolean hasPrevious = false;
+
+    private long lastStepTime = NEVER;
+
+    // The last few encoder readings and when they were taken, for the rate
+    private final long[] sampleTimes = new long[MAX_RATE_WINDOW + 1];
+
+    private final double[] sampleDistances = new double[MAX_RATE_WINDOW + 1];
+
+    private int nextSample = 0;
+
+    private int sampleCount = 0;
+
+    private int rateWindow = 8;
+
+    private volatile PIDRecorder recorder = null;
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    // The most steps the rate can be measured over
+    private static final int MAX_RATE_WINDOW = 32;
+
+    // Steps further apart than this are treated as this far apart
+    private static final double MAX_DT = .1;
+
     /**
      * Initializes the PID controller, the output motor, and the input encoder
      * without a feedforward coefficient (Kf).
@@ -92,13 +175,7 @@ public class PIDVelocityController extends PIDSubsystem {
      * @written 11 Feb 2014
      */
     PIDVelocityController(final SpeedController motor, final Encoder encoder, double Kp, double Ki, double Kd) {
-        // Initialize the PIDController using the base PIDSubsystem constructor
-        super(Kp, Ki, Kd);
-
-        // Set the PID input, output, and initial speed.
-        this.motor = motor;
-        this.encoder = encoder;
-        this.setSpeed = motor.get();
+        this(motor, encoder, Kp, Ki, Kd, 0);
     }
 
     /**
@@ -108,39 +185,77 @@ public class PIDVelocityController extends PIDSubsystem {
      * @param motor   motor to use as PID output
      * @param encoder encoder to use as the PID rate input
      * @param Kp      Proportional coefficient
-     * @param Ki      Integral coefficient
-     * @param Kd      Derivative coefficient
-     * @param Kf      Feedforward coefficient
+     * @param Ki      Integral coefficient, per second
+     * @param Kd      Derivative coefficient, in seconds
+     * @param Kf      Feedforward coefficient, multiplied by the setpoint
      * @author Noah Golmant
      * @written 11 Feb 2014
      */
     public PIDVelocityController(final SpeedController motor, final Encoder encoder, double Kp, double Ki, double Kd,
             double Kf) {
-        super(Kp, Ki, Kd);
-        this.getPIDController().setPID(Kp, Ki, Kd, Kf);
+        this(motor, encoder, Kp, Ki, Kd, Kf, LoopScheduler.getDefault());
+    }
+
+    /**
+     * Initializes the PID controller on a scheduler other than the shared one,
+     * such as a simulation's.
+     *
+     * @param motor     motor to use as PID output
+     * @param encoder   encoder to use as the PID rate input
+     * @param Kp        Proportional coefficient
+     * @param Ki        Integral coefficient, per second
+     * @param Kd        Derivative coefficient, in seconds
+     * @param Kf        Feedforward coefficient, multiplied by the setpoint
+     * @param scheduler what steps the loop while it is enabled
+     */
+    public PIDVelocityController(final SpeedController motor, final Encoder encoder, double Kp, double Ki, double Kd,
+            double Kf, LoopScheduler scheduler) {
+        this.setPID(Kp, Ki, Kd, Kf);
         this.motor = motor;
         this.encoder = encoder;
         this.setSpeed = motor.get();
+        this.scheduler = scheduler;
+        this.period = scheduler.getPeriod();
     }
 
     /**
-     * Gets the speed we're setting the motor to based on our output
-     *
-     * @return the current set speed
+     * Starts stepping the loop. With a feedforward, the motor jumps straight to
+     * it; without one, the loop carries on from whatever the motor is set to
+     * now.
      */
-    public double getSetSpeed() {
-        return this.setSpeed;
+    public synchronized void enable() {
+        this.reset();
+        this.pidOutput = this.kF == 0 && this.feedforward == null ? this.motor.get() : 0;
+        this.enabled = true;
+        this.scheduler.add(this.stepLoop, this.period);
     }
 
     /**
-     * Called when the subsystem is initially created as a command. Has to be
-     * implemented in any Subsystem-extended class.
+     * Stops stepping the loop and stops the motor.
+     */
+    public void disable() {
+        this.scheduler.remove(this.stepLoop);
+        synchronized (this) {
+            this.enabled = false;
+            this.setSpeed = 0;
+            this.motor.set(0);
+        }
+    }
+
+    /**
+     * @return whether or not the loop is being stepped
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Gets the speed we're setting the motor to based on our output
      *
-     * @author Noah Golmant
-     * @written 11 Feb 2014
+     * @return the current set speed
      */
-    @Override
-    protected void initDefaultCommand() {
+    public double getSetSpeed() {
+        return this.setSpeed;
     }
 
     /**
@@ -167,21 +282,227 @@ public class PIDVelocityController extends PIDSubsystem {
      * @author Noah Golmant
      * @written 11 Feb 2014
      */
-    public void reset() {
-        this.getPIDController().reset();
+    public synchronized void reset() {
+        this.hasPrevious = false;
+        this.filteredDerivative = 0;
+        this.lastStepTime = NEVER;
+        this.nextSample = 0;
+        this.sampleCount = 0;
     }
 
     /**
-     * Overrides the pidGet of our controller's input. We still plan to use the
-     * current rate of our encoder as the input.
+     * Runs one step of the loop: measures the rate, then changes the motor by
+     * what the PID says. Called by the scheduler.
+     */
+    private synchronized void step() {
+        if (this.enabled == false)
+            return;
+
+        long now = this.scheduler.getClock().nanoTime();
+        // Nothing to steer by until there are two readings
+        if (this.measureRate(now) == false)
+            return;
+
+        double dt = this.lastStepTime == NEVER ? 0 : Math.min(MAX_DT, (now - this.lastStepTime) / 1e9);
+        this.lastStepTime = now;
+
+        this.error = this.setpoint - this.rate;
+        double feedforward = this.getFeedforward();
+
+        if (this.hasPrevious == true && dt > 0) {
+            // Low-pass filter the derivative, as the rate is still a little
+            // noisy and the derivative makes noise much worse
+            double derivative = (this.rate - this.previousRate) / dt;
+            double alpha = this.derivativeFilter / (this.derivativeFilter + dt);
+            double newDerivative = (alpha * this.filteredDerivative) + ((1 - alpha) * derivative);
+
+            // Derivative on the rate, not the error, so a new setpoint
+            // doesn't kick the output
+            double change = (this.kP * (this.error - this.previousError)) + (this.kI * this.error * dt)
+                    - (this.kD * (newDerivative - this.filteredDerivative));
+            this.pidOutput += this.limit(change);
+            this.filteredDerivative = newDerivative;
+        }
+
+        // Keep the PID's part inside what the output range leaves it, so it
+        // can't wind up while the motor is at full power
+        this.pidOutput = Math.max(this.minRange - feedforward, Math.min(this.maxRange - feedforward, this.pidOutput));
+
+        this.previousError = this.error;
+        this.previousRate = this.rate;
+        this.hasPrevious = true;
+
+        this.setSpeed = this.pidOutput + feedforward;
+
+        // Check against our max and min motor voltages
+        if (this.setSpeed > this.maxRange) {
+            this.setSpeed = this.maxRange;
+        } else if (this.setSpeed < this.minRange) {
+            this.setSpeed = this.minRange;
+        }
+
+        // this.setSpeed *= this.motorDirection;
+        this.motor.set(this.setSpeed);
+
+        PIDRecorder recorder = this.recorder;
+        if (recorder != null) {
+            // As the parts of a regular PID: whatever P and D aren't giving,
+            // the sum of the steps is
+            double pTerm = this.kP * this.error;
+            double dTerm = -this.kD * this.filteredDerivative;
+            recorder.record(now / 1e9, this.setpoint, this.rate, this.error, pTerm,
+                    this.pidOutput - pTerm - dTerm, dTerm, this.setSpeed);
+        }
+    }
+
+    /**
+     * Reads the encoder, timestamps it, and works out the rate from the oldest
+     * reading in the window.
      *
-     * @return Current rate of the encoder in inches/second.
-     * @author Noah Golmant
-     * @written 11 Feb 2014
+     * @return whether or not there were enough readings for a rate
+     */
+    private boolean measureRate(long now) {
+        this.sampleTimes[this.nextSample] = now;
+        this.sampleDistances[this.nextSample] = this.encoder.getDistance();
+        int newest = this.nextSample;
+        this.nextSample = (this.nextSample + 1) % this.sampleTimes.length;
+        this.sampleCount = Math.min(this.sampleCount + 1, this.rateWindow + 1);
+
+        if (this.sampleCount < 2)
+            return false;
+
+        int oldest = (newest - (this.sampleCount - 1) + this.sampleTimes.length) % this.sampleTimes.length;
+        long elapsed = this.sampleTimes[newest] - this.sampleTimes[oldest];
+        if (elapsed <= 0)
+            return false;
+
+        this.rate = (this.sampleDistances[newest] - this.sampleDistances[oldest]) / (elapsed / 1e9);
+        return true;
+    }
+
+    /**
+     * @return the feedforward for the current setpoint, from -1 to 1
+     */
+    private double getFeedforward() {
+        double output = this.kF * this.setpoint;
+        if (this.feedforward != null)
+            output += this.feedforward.calculatePercent(0, this.setpoint, 0);
+        return output;
+    }
+
+    /**
+     * Sets the speed the loop holds the motor at.
+     *
+     * @param setpoint rate, in encoder distance per second
+     */
+    public synchronized void setSetpoint(double setpoint) {
+        this.setpoint = setpoint;
+    }
+
+    /**
+     * @return the rate the loop is trying to hold
+     */
+    public synchronized double getSetpoint() {
+        return this.setpoint;
+    }
+
+    /**
+     * @return the rate measured on the last step, in encoder distance per second
+     */
+    public synchronized double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * @param tolerance how close to the setpoint counts as on target, plus or
+     *                  minus, in encoder distance per second
+     */
+    public synchronized void setAbsoluteTolerance(double tolerance) {
+        this.tolerance = Math.abs(tolerance);
+    }
+
+    /**
+     * @return whether or not the last measured rate was within the tolerance of
+     *         the setpoint. False until the loop has run.
+     */
+    public synchronized boolean onTarget() {
+        return this.hasPrevious == true && Math.abs(this.error) <= this.tolerance;
+    }
+
+    /**
+     * @param Kp Proportional coefficient
+     * @param Ki Integral coefficient, per second
+     * @param Kd Derivative coefficient, in seconds
+     * @param Kf Feedforward coefficient, multiplied by the setpoint
+     */
+    public synchronized void setPID(double Kp, double Ki, double Kd, double Kf) {
+        this.kP = Kp;
+        this.kI = Ki;
+        this.kD = Kd;
+        this.kF = Kf;
+    }
+
+    /**
+     * Sets the gains in the units of this class when it was a PIDSubsystem,
+     * whose whole output was added to the motor every 50ms step: its Kp, times
+     * the error, becomes Ki, per second (divided by the 50ms period), and its
+     * Kd, times the change in error, becomes Kp. Its Ki added up the sum of the
+     * error, which this loop has no part for, so it is dropped with a warning.
+     *
+     * @param Kp Proportional coefficient of the old loop
+     * @param Ki Integral coefficient of the old loop, per 50ms step. Not used.
+     * @param Kd Derivative coefficient of the old loop, per 50ms step
+     * @param Kf Feedforward coefficient, multiplied by the setpoint. The old
+     *           loop added it every step; now it is added once.
+     */
+    public synchronized void setLegacyPID(double Kp, double Ki, double Kd, double Kf) {
+        if (Ki != 0)
+            System.out.println("PIDVelocityController: the old Ki has no equivalent and is ignored");
+        this.setPID(Kd, Kp / ScheduledPID.LEGACY_PERIOD, 0, Kf);
+    }
+
+    /**
+     * Adds a feedforward found by characterizing the mechanism to the output,
+     * on top of Kf * setpoint.
+     *
+     * @param feedforward volts needed for a rate, in encoder distance per second,
+     *                    such as a SimpleMotorFeedforward, or null for none.
+     *                    None by default.
      */
-    @Override
-    protected double returnPIDInput() {
-        return this.encoder.getRate();
+    public synchronized void setFeedforward(Feedforward feedforward) {
+        this.feedforward = feedforward;
+    }
+
+    /**
+     * Sets how much the derivative is smoothed. Longer is smoother, but slower
+     * to react.
+     *
+     * @param seconds time constant of the low-pass filter. .02 by default, 0 for
+     *                no filter.
+     */
+    public synchronized void setDerivativeFilter(double seconds) {
+        this.derivativeFilter = Math.max(0, seconds);
+    }
+
+    /**
+     * Sets how many steps back the rate is measured over. Longer is smoother at
+     * low speed, but lags further behind.
+     *
+     * @param steps how many steps, 1 to 32. 8 by default (40ms at 200Hz).
+     */
+    public synchronized void setRateWindow(int steps) {
+        this.rateWindow = Math.max(1, Math.min(MAX_RATE_WINDOW, steps));
+        this.sampleCount = Math.min(this.sampleCount, this.rateWindow + 1);
+    }
+
+    /**
+     * Sets how often the loop runs, rounded to whole scheduler ticks. Takes
+     * effect the next time it is enabled.
+     *
+     * @param seconds loop period, in seconds. The scheduler's period by default.
+     */
+    public synchronized void setPeriod(double seconds) {
+        this.period = seconds;
     }
 
     /**
@@ -195,6 +516,17 @@ public class PIDVelocityController extends PIDSubsystem {
         this.maxOutputDelta = maxDelta;
     }
 
+    /**
+     * Records every step of the loop from now on: the setpoint, rate, error,
+     * the P, I and D parts of the output as a regular PID would have them, and
+     * the speed sent to the motor.
+     *
+     * @param recorder where the steps are recorded, or null to stop recording
+     */
+    public void setRecorder(PIDRecorder recorder) {
+        this.recorder = recorder;
+    }
+
     /**
      * Sets whether or not we have to inverse the motor when setting the speed
      *
@@ -216,38 +548,9 @@ public class PIDVelocityController extends PIDSubsystem {
      * @author Noah Golmant
      * @written 11 Feb 2014
      */
-    @Override
-    public void setOutputRange(double minRange, double maxRange) {
+    public synchronized void setOutputRange(double minRange, double maxRange) {
         this.minRange = minRange;
         this.maxRange = maxRange;
     }
 
-    /**
-     * Overrides the pidWrite method of our controller's output. Sets the output
-     * with the calculated PID output value.
-     *
-     * @param output The output of the PIDController calculations
-     * @see PIDController calculate()
-     * @author Noah Golmant
-     * @written 11 Feb 2014
-     */
-    @Override
-    protected void usePIDOutput(double output) {
-        // Add the error speed to the motor controller.
-
-        this.setSpeed = this.motor.get() + this.limit(output);
-
-        System.out.println("MOTOR.GET " + this.motor.get() + " / " + "OUT: " + output);
-        // Check against our max and min motor voltages
-        if (this.setSpeed > this.maxRange) {
-            this.setSpeed = this.maxRange;
-        } else if (this.setSpeed < this.minRange) {
-            this.setSpeed = this.minRange;
-        }
-
-        // this.setSpeed *= this.motorDirection;
-        System.out.println("SETSPEED: " + this.setSpeed);
-        this.motor.set(this.setSpeed);
-    }
-
 }
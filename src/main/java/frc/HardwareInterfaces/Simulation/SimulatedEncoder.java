@@ -0,0 +1,85 @@
+package frc.HardwareInterfaces.Simulation;
+
+/**
+ * The state of a simulated encoder: how far the wheel (or mechanism) it is
+ * attached to has moved, and how fast it is moving. The physics model sets
+ * these, and a KilroyEncoder created with this object reads them like it
+ * would a real sensor.
+ *
+ * Like a real encoder, it counts ticks. Give it the same distance per tick
+ * the robot code gives its KilroyEncoder, and the KilroyEncoder's distance
+ * and rate come out in the physics model's units. Both are 1 by default, so
+ * a tick is one unit.
+ *
+ * @author Kilroy
+ */
+public class SimulatedEncoder
+{
+/**
+ * Called by the physics model to move the encoder.
+ *
+ * @param distance
+ *                     How far the mechanism has moved since the simulation
+ *                     started (usually inches)
+ * @param rate
+ *                     How fast the mechanism is moving (usually inches per
+ *                     second)
+ */
+public void update (double distance, double rate)
+{
+    this.distance = distance;
+    this.rate = rate;
+}
+
+/**
+ * @return How many ticks the encoder has counted since the simulation
+ *         started (not rounded)
+ */
+public double getTicks ()
+{
+    return this.distance / this.distancePerTick;
+}
+
+/**
+ * @return How fast the encoder is counting, in ticks per second
+ */
+public double getTickRate ()
+{
+    return this.rate / this.distancePerTick;
+}
+
+/**
+ * @param distancePerTick
+ *                            How far the mechanism moves per tick, in the
+ *                            physics model's units. 1 by default.
+ */
+public void setDistancePerTick (double distancePerTick)
+{
+    this.distancePerTick = distancePerTick;
+}
+
+/**
+ * @return How far the mechanism has moved since the simulation started
+ */
+public double getDistance ()
+{
+    return this.distance;
+}
+
+/**
+ * @return How fast the mechanism is moving
+ */
+public double getRate ()
+{
+    return this.rate;
+}
+
+// ================VARIABLES================
+
+private volatile double distance = 0;
+
+private volatile double rate = 0;
+
+// TUNABLES
+private volatile double distancePerTick = 1;
+}
@@ -0,0 +1,61 @@
+package frc.HardwareInterfaces.Simulation;
+
+import edu.wpi.first.wpilibj.GyroBase;
+
+/**
+ * A gyro whose angle is set by a physics model instead of read from a sensor.
+ * Can be passed to anything that takes a GyroBase, like Drive.
+ *
+ * As with the robot's gyro, positive is clockwise.
+ *
+ * @author Kilroy
+ */
+public class SimulatedGyro extends GyroBase
+{
+/**
+ * Called by the physics model to move the gyro.
+ *
+ * @param angle
+ *                  The robot's heading since the simulation started, in
+ *                  degrees
+ * @param rate
+ *                  How fast the robot is turning, in degrees per second
+ */
+public void update (double angle, double rate)
+{
+    this.angle = angle;
+    this.rate = rate;
+}
+
+@Override
+public void calibrate ()
+{
+    // Nothing to calibrate
+}
+
+@Override
+public void reset ()
+{
+    this.offset = this.angle;
+}
+
+@Override
+public double getAngle ()
+{
+    return this.angle - this.offset;
+}
+
+@Override
+public double getRate ()
+{
+    return this.rate;
+}
+
+// ================VARIABLES================
+
+private volatile double angle = 0; // Degrees
+
+private volatile double rate = 0; // Degrees per second
+
+private volatile double offset = 0; // Degrees
+}
@@ -0,0 +1,87 @@
+package frc.HardwareInterfaces.Simulation;
+
+import edu.wpi.first.wpilibj.SpeedController;
+
+/**
+ * A SpeedController that does not talk to any hardware. It only stores the
+ * value it was last set to, so that a physics model (such as
+ * frc.Utils.sim.DrivetrainSim) can read it and move the simulated robot.
+ *
+ * Does not use the HAL, so it can be created on a laptop.
+ *
+ * @author Kilroy
+ */
+public class SimulatedMotor implements SpeedController
+{
+@Override
+public void set (double speed)
+{
+    this.speed = Math.max(-1, Math.min(1, speed));
+    this.setCount++;
+}
+
+@Override
+public double get ()
+{
+    return this.speed;
+}
+
+/**
+ * @return The value sent to the motor, after inversion is applied. Positive
+ *         moves the mechanism forwards. This is what the physics model
+ *         reads.
+ */
+public double getOutput ()
+{
+    if (this.inverted == true)
+        return -this.speed;
+    return this.speed;
+}
+
+@Override
+public void setInverted (boolean isInverted)
+{
+    this.inverted = isInverted;
+}
+
+@Override
+public boolean getInverted ()
+{
+    return this.inverted;
+}
+
+@Override
+public void disable ()
+{
+    this.speed = 0;
+}
+
+@Override
+public void stopMotor ()
+{
+    this.speed = 0;
+}
+
+@Override
+public void pidWrite (double output)
+{
+    this.set(output);
+}
+
+/**
+ * @return How many times set() has been called. On the robot, each of these
+ *         would have been a message to the motor controller.
+ */
+public long getSetCount ()
+{
+    return this.setCount;
+}
+
+// ================VARIABLES================
+
+private volatile double speed = 0;
+
+private boolean inverted = false;
+
+private long setCount = 0;
+}
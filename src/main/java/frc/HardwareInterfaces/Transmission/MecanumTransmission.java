@@ -2,8 +2,10 @@ package frc.HardwareInterfaces.Transmission;
 
 import edu.wpi.first.wpilibj.GyroBase;
 import edu.wpi.first.wpilibj.SpeedController;
-import edu.wpi.first.wpilibj.command.PIDSubsystem;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.Utils.LoopScheduler;
+import frc.Utils.PIDLoop;
+import frc.Utils.ScheduledPID;
 
 /**
  * One of the more complex drive systems: uses 4 mecanum wheels to allow
@@ -120,35 +122,34 @@ public void driveRaw (double magnitude, double direction,
         double rotation)
 {
     double altRotation = rotation;
-    double altDirection = Math.toRadians(direction);
+    double altDirection = direction;
 
-    // Only enable / disable / reset based on rotation IF we are using PID
-    // loops.
-    if (isUsingPID == true && altRotation != 0)
-        {
-        // While we are rotating, set the angle and reset/disable the PID.
-        this.mecanumPID.disable();
-        this.mecanumPID.getPIDController().reset();
-        currentSetAngle = this.gyro.getAngle();
-        }
-    else if (isUsingPID == true)
-        {
-        // When we are NOT rotating (but still using PID loops),
-        // enable PID loop and set the setpoint as the last angle since we
-        // rotated.
-        this.mecanumPID.enable();
-        this.mecanumPID.setSetpoint(currentSetAngle);
-        }
-    else
-        {
-        // if we are not using the PID loop, then just disable everything.
-        mecanumPID.disable();
-        mecanumPID.getPIDController().reset();
-        }
+    // Field oriented: turn the joystick's direction from the field's
+    // point of view into the robot's.
+    if (isFieldOriented == true && gyro != null)
+        altDirection -= this.getFieldHeading();
+
+    altDirection = Math.toRadians(altDirection);
 
+    // The heading hold loop runs on its own; here we only tell it what
+    // heading to hold.
     if (isUsingPID == true)
         {
-        altRotation = inRange(altRotation + adjustedAngle);
+        synchronized (this.headingPID)
+            {
+            // While we are rotating (or still coasting from it), hold
+            // whatever heading we end up at.
+            if (altRotation != 0 || Math.abs(
+                    this.gyro.getRate()) > this.holdRateThreshold)
+                {
+                this.headingPID.reset();
+                this.headingPID.setSetpoint(this.gyro.getAngle());
+                this.adjustedAngle = 0;
+                }
+            }
+
+        if (altRotation == 0)
+            altRotation = inRange(this.adjustedAngle);
         }
 
     double leftFrontVal = Math.cos(altDirection - (Math.PI / 4.0));
@@ -166,6 +167,34 @@ public void driveRaw (double magnitude, double direction,
             .set(inRange((magnitude * rightRearVal) - altRotation));
 }
 
+/**
+ * Runs one step of the heading hold loop. Called at the loop period by the
+ * shared LoopScheduler while rotation correction is enabled.
+ */
+private void holdHeading ()
+{
+    long now = this.getClock().nanoTime();
+    double dt = (now - this.lastHoldTime) / 1e9;
+    this.lastHoldTime = now;
+
+    synchronized (this.headingPID)
+        {
+        // The first step, or a long pause, only sets the starting time
+        if (dt <= 0 || dt > MAX_HOLD_DT)
+            return;
+
+        double output = this.headingPID.calculate(this.gyro.getAngle(),
+                dt);
+
+        // Close enough: stop correcting, instead of chattering around the
+        // setpoint
+        if (this.headingPID.onTarget() == true)
+            output = 0;
+
+        this.adjustedAngle = output;
+        }
+}
+
 /**
  * Sets the angle deadband where the direction snaps to a 90 degree angle.
  * 
@@ -192,33 +221,126 @@ public void setStrafeCushion (double value)
 
 /**
  * Decides if we are using the PID loop to correct the rotation while we are
- * driving.
+ * driving. While enabled, the loop runs in the background at the loop
+ * period, holding the heading the robot had when it last stopped rotating.
  * 
  * @param enabled
  *            true, if we are to enable the PID loop. False to not use it.
  */
 public void setRotationCorrectionEnabled (boolean enabled)
 {
+    if (enabled == true && gyro == null)
+        {
+        System.out.println(
+                "MecanumTransmission: no gyro, rotation correction disabled");
+        return;
+        }
+
+    if (enabled == true && this.isUsingPID == false)
+        {
+        synchronized (this.headingPID)
+            {
+            this.headingPID.reset();
+            this.headingPID.setSetpoint(this.gyro.getAngle());
+            this.adjustedAngle = 0;
+            }
+        this.lastHoldTime = this.getClock().nanoTime();
+
+        LoopScheduler.getDefault().add(this.holdLoop, this.holdLoopPeriod);
+        }
+    else
+        if (enabled == false && this.isUsingPID == true)
+            {
+            LoopScheduler.getDefault().remove(this.holdLoop);
+            this.adjustedAngle = 0;
+            }
+
     this.isUsingPID = enabled;
 }
 
 /**
- * Sets the PID values for the rotation correction loop.
+ * Decides if the direction given to drive() and driveRaw() is relative to the
+ * field (0 is always away from the driver station, whichever way the robot
+ * faces) or to the robot (0 is the front of the robot). Needs a gyro.
+ * 
+ * @param enabled
+ *            true for field oriented, false for robot oriented (the default)
+ */
+public void setFieldOriented (boolean enabled)
+{
+    this.isFieldOriented = enabled;
+}
+
+/**
+ * Makes the direction the robot is facing now "forwards" for field oriented
+ * driving. Call when the robot is facing straight down the field, usually at
+ * the start of the match.
+ */
+public void resetFieldHeading ()
+{
+    if (gyro != null)
+        this.fieldHeadingOffset = gyro.getAngle();
+}
+
+/**
+ * @return The robot's heading relative to the field, in degrees clockwise,
+ *         or 0 without a gyro.
+ */
+public double getFieldHeading ()
+{
+    if (gyro == null)
+        return 0;
+    return gyro.getAngle() - this.fieldHeadingOffset;
+}
+
+/**
+ * Sets how often the heading hold loop runs. Takes effect the next time
+ * rotation correction is enabled.
+ * 
+ * @param seconds
+ *            Loop period, in seconds (.01 is 100Hz)
+ */
+public void setHeadingHoldPeriod (double seconds)
+{
+    this.holdLoopPeriod = seconds;
+}
+
+/**
+ * Sets how slowly the robot must be turning before the heading hold locks
+ * onto its heading after rotating. Waiting for the robot to stop coasting
+ * keeps the hold from pulling it back to where the joystick was released.
+ * 
+ * @param degreesPerSecond
+ *            Turn rate threshold. 10 by default.
+ */
+public void setHeadingHoldRateThreshold (double degreesPerSecond)
+{
+    this.holdRateThreshold = Math.abs(degreesPerSecond);
+}
+
+/**
+ * Sets the PID values for the rotation correction loop, in the units of the
+ * PIDSubsystem this used to be, so the gains already tuned keep working (see
+ * ScheduledPID.setLegacyPIDF()).
  * 
  * @param p
  *            Proportional value
  * @param i
- *            Integral value
+ *            Integral value, per 50ms step
  * @param d
- *            Derivative value
+ *            Derivative value, per 50ms step
  * @param tolerance
  *            voltage shutoff value (Degrees)
  */
 public void setPIDValues (double p, double i, double d,
         double tolerance)
 {
-    this.mecanumPID.getPIDController().setPID(p, i, d);
-    this.mecanumPID.getPIDController().setAbsoluteTolerance(tolerance);
+    synchronized (this.headingPID)
+        {
+        this.headingPID.setPID(p, i / ScheduledPID.LEGACY_PERIOD,
+                d * ScheduledPID.LEGACY_PERIOD);
+        this.headingPID.setTolerance(tolerance);
+        }
 
     this.p = p;
     this.i = i;
@@ -289,10 +411,8 @@ private boolean tunePIDInit = true;
 
 private double p, i, d, tolerance;
 
-private double currentSetAngle = 0; // For what is set as the setpoint for
-                                    // PID loop.
-
-private double adjustedAngle = 0;// For what is the output of the PID loop
+private volatile double adjustedAngle = 0;// For what is the output of the
+                                          // PID loop
 
 private double strafeCushion = .2; // Disabled as long as directionDeadband
                                    // is 0
@@ -300,26 +420,25 @@ private double strafeCushion = .2; // Disabled as long as directionDeadband
 private double directionalDeadband = 0;// Disabled by default.
 
 /**
- * The overall PID correction system.
+ * The overall PID correction system. Only used inside synchronized blocks,
+ * as it is shared with the background loop.
  */
-private PIDSubsystem mecanumPID = new PIDSubsystem(p, i, d)
-{
-@Override
-protected double returnPIDInput ()
-{
-    return gyro.pidGet();
-}
+private final PIDLoop headingPID = new PIDLoop(0, 0, 0);
 
-@Override
-protected void usePIDOutput (double output)
-{
-    adjustedAngle = output;
-}
+// The same object every time, so the scheduler can find it to remove it
+private final Runnable holdLoop = this::holdHeading;
 
-@Override
-protected void initDefaultCommand ()
-{
-}
-};
+private long lastHoldTime = 0; // Nanoseconds
+
+private double holdLoopPeriod = .01; // Seconds
+
+private double holdRateThreshold = 10; // Degrees per second
+
+private boolean isFieldOriented = false;
+
+private double fieldHeadingOffset = 0; // Degrees
+
+// Steps further apart than this are treated as a restart
+private static final double MAX_HOLD_DT = .1; // Seconds
 
 }
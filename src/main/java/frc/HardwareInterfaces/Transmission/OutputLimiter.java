@@ -0,0 +1,401 @@
+package frc.HardwareInterfaces.Transmission;
+
+import java.util.Arrays;
+import java.util.function.DoubleSupplier;
+import edu.wpi.first.wpilibj.SpeedController;
+import frc.Utils.Clock;
+import frc.Utils.DCMotorModel;
+
+/**
+ * Shapes the power sent to the drive motors so that a hard start or a
+ * reversal can't brown out the robot:
+ *
+ * - each motor's output can only change by the slew rate per second;
+ *
+ * - the current every motor would draw is estimated from a motor model, and
+ * if the total is over the current budget, every motor's push (the part of
+ * its output above what it is already spinning at) is scaled down by the
+ * same amount, so the robot still moves the way it was told, just more
+ * gently.
+ *
+ * The model doesn't know how fast the motors really spin, so it assumes they
+ * follow their output with a time constant. If the PDP currents are given
+ * with setCurrentSensor(), the estimates are continuously corrected to match
+ * them.
+ *
+ * Made and used by TransmissionBase.enableOutputLimiting(), which puts a
+ * LimitedOutput between the transmission and each motor. Nothing is
+ * allocated after that.
+ *
+ * @author Kilroy
+ */
+public class OutputLimiter
+{
+/**
+ * Creates the OutputLimiter object.
+ *
+ * @param motorCount
+ *                       How many motor controllers are limited together
+ * @param model
+ *                       The motors and gearbox behind each motor controller
+ */
+public OutputLimiter (int motorCount, DCMotorModel model)
+{
+    this.model = model;
+    this.outputs = new double[motorCount];
+    this.speeds = new double[motorCount];
+    this.demands = new double[motorCount];
+    this.delivered = new double[motorCount];
+    this.lastTimes = new long[motorCount];
+    Arrays.fill(this.lastTimes, NEVER);
+}
+
+/**
+ * Limits one motor's output.
+ *
+ * @param motor
+ *                    Which motor, 0 to motorCount - 1
+ * @param request
+ *                    The output asked for, -1.0 to 1.0
+ * @return The output to send to the motor
+ */
+public synchronized double shape (int motor, double request)
+{
+    long now = this.clock.nanoTime();
+    double dt = this.lastTimes[motor] == NEVER ? MAX_DT
+            : Math.min(MAX_DT, (now - this.lastTimes[motor]) / 1e9);
+    this.lastTimes[motor] = now;
+
+    double previous = this.outputs[motor];
+    double output = request;
+
+    // Slew limit
+    if (this.slewRate > 0)
+        {
+        double maxStep = this.slewRate * dt;
+        output = Math.max(previous - maxStep,
+                Math.min(previous + maxStep, output));
+        }
+
+    // The motor has been heading towards its last output all this time
+    this.speeds[motor] += (previous - this.speeds[motor])
+            * Math.min(1, dt / this.speedTimeConstant);
+
+    // Current it would draw, at the speed it is probably spinning
+    double freeSpeed = this.model.getFreeSpeed(NOMINAL_VOLTAGE);
+    this.demands[motor] = this.currentCorrection * Math.abs(this.model
+            .getCurrent(output * NOMINAL_VOLTAGE,
+                    this.speeds[motor] * freeSpeed));
+
+    double totalDemand = 0;
+    for (double demand : this.demands)
+        totalDemand += demand;
+
+    // Over budget: every motor pushes less, by the same ratio
+    this.scale = 1;
+    if (this.currentBudget > 0 && totalDemand > this.currentBudget)
+        {
+        this.scale = this.currentBudget / totalDemand;
+        output = this.speeds[motor]
+                + ((output - this.speeds[motor]) * this.scale);
+        this.limitedCount++;
+        }
+
+    this.delivered[motor] = this.demands[motor] * this.scale;
+    this.outputs[motor] = output;
+
+    this.correctFromSensor(now);
+
+    return output;
+}
+
+/**
+ * Compares the estimated current with the measured current, and slowly
+ * corrects future estimates to match.
+ */
+private void correctFromSensor (long now)
+{
+    if (this.currentSensor == null || (this.lastSensorTime != NEVER
+            && now - this.lastSensorTime < SENSOR_PERIOD))
+        return;
+    this.lastSensorTime = now;
+
+    double estimated = 0;
+    for (double current : this.delivered)
+        estimated += current;
+
+    // Too little current to compare reliably
+    if (estimated < MIN_CORRECTION_CURRENT)
+        return;
+
+    double ratio = this.currentSensor.getAsDouble() * this.currentCorrection
+            / estimated;
+    ratio = Math.max(MIN_CORRECTION, Math.min(MAX_CORRECTION, ratio));
+    this.currentCorrection += CORRECTION_GAIN
+            * (ratio - this.currentCorrection);
+}
+
+/**
+ * Tells the limiter a motor was stopped without going through shape().
+ *
+ * @param motor
+ *                  Which motor
+ */
+public synchronized void stopped (int motor)
+{
+    this.outputs[motor] = 0;
+    this.demands[motor] = 0;
+    this.delivered[motor] = 0;
+}
+
+/**
+ * @return The estimated total current of all the motors at their last
+ *         outputs, in amps.
+ */
+public synchronized double getEstimatedCurrent ()
+{
+    double total = 0;
+    for (double current : this.delivered)
+        total += current;
+    return total;
+}
+
+/**
+ * @return How much the last output was scaled down to stay in the current
+ *         budget: 1.0 is not at all.
+ */
+public double getBudgetScale ()
+{
+    return this.scale;
+}
+
+/**
+ * @return How many outputs have been scaled down to stay in the current
+ *         budget.
+ */
+public long getLimitedCount ()
+{
+    return this.limitedCount;
+}
+
+/**
+ * @return What the motor model's estimates are multiplied by to match the
+ *         current sensor (1.0 without a sensor).
+ */
+public double getCurrentCorrection ()
+{
+    return this.currentCorrection;
+}
+
+/**
+ * @param percentPerSecond
+ *                             How fast each output may change, in output per
+ *                             second (4 is zero to full in .25 seconds). 0
+ *                             to turn the slew limit off.
+ */
+public void setSlewRate (double percentPerSecond)
+{
+    this.slewRate = Math.abs(percentPerSecond);
+}
+
+/**
+ * @param amps
+ *                 Most current all the motors together may draw. 0 to turn
+ *                 the budget off.
+ */
+public void setCurrentBudget (double amps)
+{
+    this.currentBudget = Math.abs(amps);
+}
+
+/**
+ * @param measuredAmps
+ *                         The measured current of all the limited motors
+ *                         together, usually from the PDP. Null to use the
+ *                         motor model alone.
+ */
+public void setCurrentSensor (DoubleSupplier measuredAmps)
+{
+    this.currentSensor = measuredAmps;
+    this.currentCorrection = 1;
+}
+
+/**
+ * @param seconds
+ *                    How long the motors take to get most of the way to a
+ *                    new speed, on the ground. .25 by default.
+ */
+public void setSpeedTimeConstant (double seconds)
+{
+    this.speedTimeConstant = Math.max(1e-3, seconds);
+}
+
+/**
+ * @param clock
+ *                  Where the time for the slew limit comes from.
+ *                  Clock.SYSTEM by default.
+ */
+public synchronized void setClock (Clock clock)
+{
+    this.clock = clock;
+    Arrays.fill(this.lastTimes, NEVER);
+    this.lastSensorTime = NEVER;
+}
+
+/**
+ * Sits between the transmission and one motor controller, sending every
+ * set() through the limiter. stopMotor() and disable() skip the limiter, so
+ * a stop is never slewed.
+ *
+ * @author Kilroy
+ */
+public class LimitedOutput implements SpeedController
+{
+/**
+ * Creates the LimitedOutput object.
+ *
+ * @param motor
+ *                            Which of the limiter's motors this is
+ * @param speedController
+ *                            The motor controller the limited output is sent
+ *                            to
+ */
+public LimitedOutput (int motor, SpeedController speedController)
+{
+    this.motor = motor;
+    this.speedController = speedController;
+}
+
+@Override
+public void set (double speed)
+{
+    this.sent = shape(this.motor, speed);
+    this.speedController.set(this.sent);
+}
+
+/**
+ * @return The last output sent to the motor, after limiting
+ */
+@Override
+public double get ()
+{
+    return this.sent;
+}
+
+@Override
+public void pidWrite (double output)
+{
+    this.set(output);
+}
+
+@Override
+public void setInverted (boolean isInverted)
+{
+    this.speedController.setInverted(isInverted);
+}
+
+@Override
+public boolean getInverted ()
+{
+    return this.speedController.getInverted();
+}
+
+/**
+ * Disables the motor right away, without limiting.
+ */
+@Override
+public void disable ()
+{
+    this.speedController.disable();
+    this.sent = 0;
+    stopped(this.motor);
+}
+
+/**
+ * Stops the motor right away, without limiting.
+ */
+@Override
+public void stopMotor ()
+{
+    this.speedController.stopMotor();
+    this.sent = 0;
+    stopped(this.motor);
+}
+
+/**
+ * @return The motor controller the limited output is sent to
+ */
+public SpeedController getSpeedController ()
+{
+    return this.speedController;
+}
+
+/**
+ * @param speedController
+ *                            The motor controller the limited output is sent
+ *                            to
+ */
+public void setSpeedController (SpeedController speedController)
+{
+    this.speedController = speedController;
+}
+
+private final int motor;
+
+private SpeedController speedController;
+
+private double sent = 0;
+}
+
+// ================VARIABLES================
+
+private static final double NOMINAL_VOLTAGE = 12.0;
+
+private static final long NEVER = Long.MIN_VALUE;
+
+// Writes further apart than this are treated as this far apart
+private static final double MAX_DT = .1; // Seconds
+
+private static final long SENSOR_PERIOD = 20_000_000L; // Nanoseconds
+
+private static final double MIN_CORRECTION_CURRENT = 5; // Amps
+
+private static final double MIN_CORRECTION = .5;
+
+private static final double MAX_CORRECTION = 2;
+
+private static final double CORRECTION_GAIN = .1;
+
+private final DCMotorModel model;
+
+private final double[] outputs;
+
+// Estimated speed of each motor, as a fraction of free speed
+private final double[] speeds;
+
+// Estimated current of each motor before and after the budget, amps
+private final double[] demands;
+
+private final double[] delivered;
+
+private final long[] lastTimes; // Nanoseconds
+
+private Clock clock = Clock.SYSTEM;
+
+private DoubleSupplier currentSensor = null;
+
+private long lastSensorTime = NEVER; // Nanoseconds
+
+private double currentCorrection = 1;
+
+private volatile double scale = 1;
+
+private volatile long limitedCount = 0;
+
+// TUNABLES
+private double slewRate = 0; // Output per second, 0 is off
+
+private double currentBudget = 0; // Amps, 0 is off
+
+private double speedTimeConstant = .25; // Seconds
+}
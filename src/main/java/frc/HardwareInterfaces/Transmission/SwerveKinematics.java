@@ -0,0 +1,257 @@
+package frc.HardwareInterfaces.Transmission;
+
+/**
+ * Swerve drive inverse kinematics: turns how the robot should move into the
+ * speed and angle of each of the four wheels.
+ *
+ * Every result is stored in arrays made once, in the constructor, so
+ * calculate() and optimize() can run every loop without creating garbage.
+ * The rotation part of each wheel's motion is worked out once, when the
+ * module positions are set, so calculate() only needs one atan2 and one
+ * square root per wheel.
+ *
+ * Angles are in degrees, 0 is forwards and clockwise is positive, like the
+ * gyro. Modules are numbered like the motors in TransmissionBase: 0 left rear,
+ * 1 right rear, 2 left front, 3 right front.
+ *
+ * @author Kilroy
+ */
+public class SwerveKinematics
+{
+/**
+ * Creates the SwerveKinematics object for a square robot, with a wheel in
+ * each corner.
+ */
+public SwerveKinematics ()
+{
+    this.setModulePositions(-1, -1, 1, -1, -1, 1, 1, 1);
+}
+
+/**
+ * Sets where each wheel is from the center of the robot. Any units work, as
+ * only the ratios matter.
+ *
+ * @param leftRearX
+ *                        Distance to the right of center of the left rear
+ *                        wheel (negative)
+ * @param leftRearY
+ *                        Distance forward of center of the left rear wheel
+ *                        (negative)
+ * @param rightRearX
+ * @param rightRearY
+ * @param leftFrontX
+ * @param leftFrontY
+ * @param rightFrontX
+ * @param rightFrontY
+ */
+public void setModulePositions (double leftRearX, double leftRearY,
+        double rightRearX, double rightRearY, double leftFrontX,
+        double leftFrontY, double rightFrontX, double rightFrontY)
+{
+    this.moduleX[0] = leftRearX;
+    this.moduleY[0] = leftRearY;
+    this.moduleX[1] = rightRearX;
+    this.moduleY[1] = rightRearY;
+    this.moduleX[2] = leftFrontX;
+    this.moduleY[2] = leftFrontY;
+    this.moduleX[3] = rightFrontX;
+    this.moduleY[3] = rightFrontY;
+
+    double maxRadius = 0;
+    for (int i = 0; i < MODULES; i++)
+        maxRadius = Math.max(maxRadius,
+                Math.hypot(this.moduleX[i], this.moduleY[i]));
+
+    // Spinning clockwise, each wheel moves at right angles to the line from
+    // the center to it. Scaled so the furthest wheel turns at full rotation.
+    for (int i = 0; i < MODULES; i++)
+        {
+        this.rotationX[i] = maxRadius == 0 ? 0
+                : this.moduleY[i] / maxRadius;
+        this.rotationY[i] = maxRadius == 0 ? 0
+                : -this.moduleX[i] / maxRadius;
+        }
+}
+
+/**
+ * Finds each wheel's speed and angle. Read the results with getSpeed() and
+ * getAngle(). If any wheel would need more than full speed, all of them are
+ * scaled down together so the robot still moves in the right direction.
+ *
+ * @param strafe
+ *                     Sideways speed, -1.0 (left) to 1.0 (right)
+ * @param forward
+ *                     Forwards speed, -1.0 (backwards) to 1.0 (forwards)
+ * @param rotation
+ *                     Turning speed, -1.0 (left) to 1.0 (right)
+ */
+public void calculate (double strafe, double forward, double rotation)
+{
+    double maxSpeed = 1;
+
+    for (int i = 0; i < MODULES; i++)
+        {
+        double x = strafe + (rotation * this.rotationX[i]);
+        double y = forward + (rotation * this.rotationY[i]);
+
+        this.speeds[i] = Math.sqrt((x * x) + (y * y));
+        maxSpeed = Math.max(maxSpeed, this.speeds[i]);
+
+        // A stopped wheel keeps its angle instead of snapping to forwards
+        if (this.speeds[i] > STOPPED_SPEED)
+            this.angles[i] = Math.toDegrees(Math.atan2(x, y));
+        }
+
+    if (maxSpeed > 1)
+        for (int i = 0; i < MODULES; i++)
+            this.speeds[i] /= maxSpeed;
+}
+
+/**
+ * Finds each wheel's speed and angle from a speed and direction, the way the
+ * transmission drive functions take them.
+ *
+ * @param magnitude
+ *                      Overall speed, 0.0 to 1.0
+ * @param direction
+ *                      Direction, in degrees: 0 is forwards, 90 is right
+ * @param rotation
+ *                      Turning speed, -1.0 (left) to 1.0 (right)
+ */
+public void calculatePolar (double magnitude, double direction,
+        double rotation)
+{
+    double radians = Math.toRadians(direction);
+    this.calculate(magnitude * Math.sin(radians),
+            magnitude * Math.cos(radians), rotation);
+}
+
+/**
+ * Changes one wheel's target so that it never steers more than 90 degrees:
+ * if the target is further than that from where the wheel is facing, it aims
+ * the other way and drives backwards instead.
+ *
+ * Afterwards getAngle() is the target closest to the current angle, with no
+ * wrap-around (350 to 10 degrees becomes 350 to 370), so it can be used as a
+ * position setpoint directly.
+ *
+ * @param module
+ *                         Which wheel, 0 to 3
+ * @param currentAngle
+ *                         Where the wheel is facing now, in degrees. Any
+ *                         number of turns is fine.
+ */
+public void optimize (int module, double currentAngle)
+{
+    double optimized = optimizeAngle(this.angles[module], currentAngle);
+
+    // Aiming the other way, so drive backwards
+    if (Math.abs(wrapDegrees(optimized - this.angles[module])) > 90)
+        this.speeds[module] = -this.speeds[module];
+
+    this.angles[module] = optimized;
+}
+
+/**
+ * Slows a wheel down by how far it still has to steer: full speed when it is
+ * facing the right way, none when it is at right angles to it. Lets the
+ * wheels drive while they steer, pushing only in the direction they are
+ * actually facing. Call after optimize().
+ *
+ * @param module
+ *                         Which wheel, 0 to 3
+ * @param currentAngle
+ *                         Where the wheel is facing now, in degrees
+ */
+public void scaleForSteeringError (int module, double currentAngle)
+{
+    double cosine = Math
+            .cos(Math.toRadians(this.angles[module] - currentAngle));
+    this.speeds[module] *= Math.max(0, cosine);
+}
+
+/**
+ * @param module
+ *                   Which wheel, 0 to 3
+ * @return The wheel's speed from the last calculate(), -1.0 to 1.0 (negative
+ *         if optimize() reversed it)
+ */
+public double getSpeed (int module)
+{
+    return this.speeds[module];
+}
+
+/**
+ * @param module
+ *                   Which wheel, 0 to 3
+ * @return The wheel's angle from the last calculate() or optimize(), in
+ *         degrees
+ */
+public double getAngle (int module)
+{
+    return this.angles[module];
+}
+
+/**
+ * Finds the angle closest to where a wheel is facing that points the wheel
+ * along the target, either forwards or backwards.
+ *
+ * @param target
+ *                         The angle the wheel should drive towards, in degrees
+ * @param currentAngle
+ *                         Where the wheel is facing now, in degrees. Any
+ *                         number of turns is fine.
+ * @return An angle within 90 degrees of currentAngle. If it is not within 90
+ *         degrees of the target as well, the wheel must run backwards.
+ */
+public static double optimizeAngle (double target, double currentAngle)
+{
+    double delta = wrapDegrees(target - currentAngle);
+
+    if (delta > 90)
+        delta -= 180;
+    else
+        if (delta < -90)
+            delta += 180;
+
+    return currentAngle + delta;
+}
+
+/**
+ * @param degrees
+ *                    Any angle
+ * @return The same angle, from -180 to 180 degrees
+ */
+public static double wrapDegrees (double degrees)
+{
+    double wrapped = degrees % 360;
+    if (wrapped > 180)
+        wrapped -= 360;
+    else
+        if (wrapped <= -180)
+            wrapped += 360;
+    return wrapped;
+}
+
+// ================VARIABLES================
+
+/** how many wheels there are */
+public static final int MODULES = 4;
+
+// Below this a wheel is considered stopped
+private static final double STOPPED_SPEED = 1e-6;
+
+private final double[] moduleX = new double[MODULES];
+
+private final double[] moduleY = new double[MODULES];
+
+// Direction each wheel moves when the robot spins clockwise at full rotation
+private final double[] rotationX = new double[MODULES];
+
+private final double[] rotationY = new double[MODULES];
+
+// Results
+private final double[] speeds = new double[MODULES];
+
+private final double[] angles = new double[MODULES];
+}
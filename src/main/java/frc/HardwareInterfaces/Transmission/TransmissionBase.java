@@ -1,6 +1,11 @@
 package frc.HardwareInterfaces.Transmission;
 
 import edu.wpi.first.wpilibj.SpeedController;
+import frc.HardwareInterfaces.CANNetwork;
+import frc.HardwareInterfaces.CachingSpeedController;
+import frc.HardwareInterfaces.Transmission.OutputLimiter.LimitedOutput;
+import frc.Utils.Clock;
+import frc.Utils.DCMotorModel;
 
 /**
  * Contains necessary functions that must be included in each transmission type
@@ -47,6 +52,74 @@ public TransmissionBase (SpeedController leftRear,
     this.motors[3] = rightFront;
 }
 
+/**
+ * Picks the gear automatically, from how fast the robot is going, how hard the
+ * driver is pushing, and how much current the drive is drawing. Call once per
+ * loop, before the drive function. Does nothing unless enabled with
+ * setAutoShiftEnabled(), and needs setAutoShiftVelocities() to be called
+ * first.
+ *
+ * - Up-shifts when the (filtered) speed is above that gear's up-shift speed
+ * and the driver is asking for at least the up-shift throttle;
+ *
+ * - Down-shifts when the speed falls below the lower gear's down-shift speed,
+ * or when the current draw is over the current limit (pushing against
+ * something);
+ *
+ * Each down-shift speed is lower than the up-shift speed it pairs with, and
+ * no shift happens within the dwell time of the last one, so it won't hunt
+ * back and forth between two gears.
+ *
+ * Does not create any objects, so it can run in the drive loop.
+ *
+ * @param velocity
+ *                     How fast the wheels are turning, in the same units as
+ *                     setAutoShiftVelocities(). The sign is ignored.
+ * @param throttle
+ *                     What the driver is asking for (-1.0 to 1.0). The sign
+ *                     is ignored.
+ * @param current
+ *                     Total current drawn by the drive motors, in amps, or 0
+ *                     if unknown.
+ * @return Whether or not the gear was changed.
+ */
+public boolean autoShift (double velocity, double throttle, double current)
+{
+    // Low-pass filter, so a single noisy encoder reading can't shift
+    this.filteredVelocity += this.autoShiftFilter
+            * (Math.abs(velocity) - this.filteredVelocity);
+
+    if (this.autoShiftEnabled == false
+            || this.hasAutoShiftVelocities() == false)
+        return false;
+
+    long now = this.clock.nanoTime();
+    if (this.lastShiftTime != NEVER && now
+            - this.lastShiftTime < this.autoShiftDwell * 1e9)
+        return false;
+
+    int gear = this.currentGear;
+    boolean overCurrent = this.autoShiftCurrentLimit > 0
+            && current > this.autoShiftCurrentLimit;
+
+    if (gear > 0 && (overCurrent == true
+            || this.filteredVelocity < this.downShiftVelocities[gear - 1]))
+        gear--;
+    else
+        if (gear < this.gearRatios.length - 1 && overCurrent == false
+                && Math.abs(throttle) >= this.upShiftThrottle
+                && this.filteredVelocity > this.upShiftVelocities[gear])
+            gear++;
+
+    if (gear == this.currentGear)
+        return false;
+
+    this.recordShift(now, this.currentGear, gear, current);
+    this.currentGear = gear;
+    this.lastShiftTime = now;
+    return true;
+}
+
 /**
  * Turns off the deadband for use in auto.
  */
@@ -107,6 +180,121 @@ public void driveRaw (double magnitude, double direction,
     // by default to do nothing.
 }
 
+/**
+ * Wraps every motor in a CachingSpeedController, so a motor is only sent a new
+ * value when it has changed (or the resend interval has passed). Cuts the CAN
+ * traffic of CAN motor controllers; see CachingSpeedController. Calling it
+ * again only changes the settings.
+ *
+ * @param epsilon
+ *                          How close a new value must be to the last one sent
+ *                          to be skipped, in percent output (.001 is a good
+ *                          start)
+ * @param resendSeconds
+ *                          The longest an unchanged value goes without being
+ *                          sent again, in seconds. Must be less than the
+ *                          motor controllers' timeout (.05 is a good start).
+ */
+public void enableWriteCaching (double epsilon, double resendSeconds)
+{
+    for (int i = 0; i < this.motors.length; i++)
+        {
+        // Cache below the output limiter, if there is one, so the limiter
+        // still sees every write
+        LimitedOutput limited = null;
+        SpeedController motor = this.motors[i];
+        if (motor instanceof LimitedOutput)
+            {
+            limited = (LimitedOutput) motor;
+            motor = limited.getSpeedController();
+            }
+
+        if (motor instanceof CachingSpeedController == false)
+            motor = new CachingSpeedController(motor);
+
+        CachingSpeedController cached = (CachingSpeedController) motor;
+        cached.setEpsilon(epsilon);
+        cached.setResendInterval(resendSeconds);
+        cached.setClock(this.clock);
+
+        if (limited != null)
+            limited.setSpeedController(cached);
+        else
+            this.motors[i] = cached;
+        }
+}
+
+/**
+ * Puts an output limiter between the transmission and every motor, which
+ * limits how fast each motor's power can change and keeps the total current
+ * of the drive under a budget, so hard starts and reversals don't brown out
+ * the robot. See OutputLimiter. Calling it again only changes the settings.
+ *
+ * @param slewRate
+ *                          How fast each motor's power may change, in percent
+ *                          per second (4 is zero to full in .25 seconds). 0
+ *                          for no slew limit.
+ * @param currentBudget
+ *                          Most current the whole drive may draw, in amps. 0
+ *                          for no budget.
+ * @param motorModel
+ *                          The motors and gearbox behind EACH motor
+ *                          controller (for a side of two CIMs on one
+ *                          SpeedControllerGroup, DCMotorModel.cim(2, ratio))
+ */
+public void enableOutputLimiting (double slewRate, double currentBudget,
+        DCMotorModel motorModel)
+{
+    if (this.outputLimiter == null)
+        {
+        this.outputLimiter = new OutputLimiter(this.motors.length,
+                motorModel);
+        for (int i = 0; i < this.motors.length; i++)
+            this.motors[i] = this.outputLimiter.new LimitedOutput(i,
+                    this.motors[i]);
+        }
+
+    this.outputLimiter.setSlewRate(slewRate);
+    this.outputLimiter.setCurrentBudget(currentBudget);
+    this.outputLimiter.setClock(this.clock);
+}
+
+/**
+ * Corrects the output limiter's current estimates with the currents measured
+ * by the PDP. Call after enableOutputLimiting().
+ *
+ * @param network
+ *                        The CAN network with the PDP
+ * @param pdpChannels
+ *                        The PDP channels every drive motor is wired to
+ */
+public void setOutputCurrentSensor (CANNetwork network, int... pdpChannels)
+{
+    if (this.outputLimiter == null)
+        {
+        System.out.println(
+                "TransmissionBase: call enableOutputLimiting() first");
+        return;
+        }
+
+    this.outputLimiter.setCurrentSensor(() ->
+        {
+        double total = 0;
+        for (int channel : pdpChannels)
+            total += network.pinValue(channel);
+        return total;
+        });
+}
+
+/**
+ * @return The output limiter, or null if enableOutputLimiting() was never
+ *         called
+ */
+public OutputLimiter getOutputLimiter ()
+{
+    return this.outputLimiter;
+}
+
 /**
  * Turns on the deadband for use in teleop.
  */
@@ -115,6 +303,126 @@ public void enableDeadband ()
     currentJoystickDeadband = inputJoystickDeadband;
 }
 
+/**
+ * @return How many shifts (automatic or not) have been logged since the
+ *         transmission was created. Only the last SHIFT_LOG_SIZE can be read
+ *         back.
+ */
+public int getShiftCount ()
+{
+    return this.shiftCount;
+}
+
+/**
+ * @param age
+ *                How many shifts ago: 0 is the newest, up to SHIFT_LOG_SIZE -
+ *                1.
+ * @return The gear shifted out of, or -1 if there is no such shift.
+ */
+public int getShiftFromGear (int age)
+{
+    int index = this.shiftLogIndex(age);
+    return index < 0 ? -1 : this.shiftFromGears[index];
+}
+
+/**
+ * @param age
+ *                How many shifts ago: 0 is the newest, up to SHIFT_LOG_SIZE -
+ *                1.
+ * @return The gear shifted into, or -1 if there is no such shift.
+ */
+public int getShiftToGear (int age)
+{
+    int index = this.shiftLogIndex(age);
+    return index < 0 ? -1 : this.shiftToGears[index];
+}
+
+/**
+ * @param age
+ *                How many shifts ago: 0 is the newest, up to SHIFT_LOG_SIZE -
+ *                1.
+ * @return When the shift happened, in seconds on the transmission's clock, or
+ *         NaN if there is no such shift.
+ */
+public double getShiftTime (int age)
+{
+    int index = this.shiftLogIndex(age);
+    return index < 0 ? Double.NaN : this.shiftTimes[index] / 1e9;
+}
+
+/**
+ * @param age
+ *                How many shifts ago: 0 is the newest, up to SHIFT_LOG_SIZE -
+ *                1.
+ * @return The filtered velocity at the shift, or NaN if there is no such
+ *         shift.
+ */
+public double getShiftVelocity (int age)
+{
+    int index = this.shiftLogIndex(age);
+    return index < 0 ? Double.NaN : this.shiftVelocities[index];
+}
+
+/**
+ * @param age
+ *                How many shifts ago: 0 is the newest, up to SHIFT_LOG_SIZE -
+ *                1.
+ * @return The current draw at the shift, in amps, or NaN if there is no such
+ *         shift.
+ */
+public double getShiftCurrent (int age)
+{
+    int index = this.shiftLogIndex(age);
+    return index < 0 ? Double.NaN : this.shiftCurrents[index];
+}
+
+/**
+ * @return How many motor writes enableWriteCaching() has skipped, over all
+ *         motors (0 if it was never called).
+ */
+public long getFramesSaved ()
+{
+    long saved = 0;
+    for (SpeedController motor : this.motors)
+        if (this.getCache(motor) != null)
+            saved += this.getCache(motor).getFramesSaved();
+    return saved;
+}
+
+/**
+ * @return How many motor writes were passed on while enableWriteCaching() is
+ *         on, over all motors (0 if it was never called).
+ */
+public long getFramesSent ()
+{
+    long sent = 0;
+    for (SpeedController motor : this.motors)
+        if (this.getCache(motor) != null)
+            sent += this.getCache(motor).getFramesSent();
+    return sent;
+}
+
+/**
+ * @return The CachingSpeedController of a motor, even under an output
+ *         limiter, or null if it has none.
+ */
+private CachingSpeedController getCache (SpeedController motor)
+{
+    if (motor instanceof LimitedOutput)
+        motor = ((LimitedOutput) motor).getSpeedController();
+    if (motor instanceof CachingSpeedController)
+        return (CachingSpeedController) motor;
+    return null;
+}
+
+/**
+ * @return The velocity autoShift() is using, after filtering.
+ */
+public double getFilteredVelocity ()
+{
+    return this.filteredVelocity;
+}
+
 /**
  * @return all speed controllers attached to this transmission, as an array.
  */
@@ -123,6 +431,14 @@ public SpeedController[] getAllSpeedControllers ()
     return this.motors;
 }
 
+/**
+ * @return Where the transmission reads the time from
+ */
+public Clock getClock ()
+{
+    return this.clock;
+}
+
 /**
  * @return The gear number that is active
  */
@@ -205,6 +521,109 @@ public double scaleJoystickForDeadband (double input)
     return 0.0;
 }
 
+/**
+ * Turns automatic shifting on or off. While it is on, shiftGears() still
+ * works, so the driver can override it.
+ *
+ * @param enabled
+ *                    Whether or not autoShift() should change gears
+ */
+public void setAutoShiftEnabled (boolean enabled)
+{
+    this.autoShiftEnabled = enabled;
+}
+
+/**
+ * Sets the speeds at which autoShift() changes gears. Both arrays need one
+ * entry per pair of neighboring gears (one less than the number of gears),
+ * and each down-shift speed should be lower than the up-shift speed at the
+ * same index, or the gears will hunt.
+ *
+ * @param upShift
+ *                      upShift[i] is the speed above which gear i shifts up
+ *                      to gear i + 1
+ * @param downShift
+ *                      downShift[i] is the speed below which gear i + 1
+ *                      shifts down to gear i
+ */
+public void setAutoShiftVelocities (double[] upShift, double[] downShift)
+{
+    if (upShift.length < gearRatios.length - 1
+            || downShift.length < gearRatios.length - 1)
+        {
+        System.out.println(
+                "TransmissionBase: need " + (gearRatios.length - 1)
+                        + " auto shift velocities, auto shift disabled");
+        this.upShiftVelocities = null;
+        return;
+        }
+
+    this.upShiftVelocities = upShift.clone();
+    this.downShiftVelocities = downShift.clone();
+}
+
+/**
+ * @return Whether or not there is an up-shift and down-shift speed for every
+ *         pair of neighboring gears, and the current gear is one of them.
+ *         Checked on every autoShift(), since the gears can be changed after
+ *         the speeds are set.
+ */
+private boolean hasAutoShiftVelocities ()
+{
+    int shifts = this.gearRatios.length - 1;
+    return this.upShiftVelocities != null
+            && this.upShiftVelocities.length >= shifts
+            && this.downShiftVelocities.length >= shifts
+            && this.currentGear >= 0 && this.currentGear <= shifts;
+}
+
+/**
+ * Sets the rest of the auto shift tuning.
+ *
+ * @param dwellTime
+ *                           Minimum time between two shifts, in seconds. .5 by
+ *                           default.
+ * @param upShiftThrottle
+ *                           How hard the driver must be pushing (0.0 to 1.0)
+ *                           for an up-shift. .5 by default.
+ * @param currentLimit
+ *                           Total drive current, in amps, above which it
+ *                           shifts down. 0 to never shift for current (the
+ *                           default).
+ * @param filter
+ *                           How much of each new velocity reading is used,
+ *                           0.0 to 1.0. Lower is smoother but slower. .3 by
+ *                           default.
+ */
+public void setAutoShiftTuning (double dwellTime, double upShiftThrottle,
+        double currentLimit, double filter)
+{
+    this.autoShiftDwell = dwellTime;
+    this.upShiftThrottle = upShiftThrottle;
+    this.autoShiftCurrentLimit = currentLimit;
+    this.autoShiftFilter = Math.max(0, Math.min(1, filter));
+}
+
+/**
+ * Sets where the time for the auto shift dwell, the shift log, the write
+ * caching and the output limiting comes from.
+ *
+ * @param clock
+ *                  The time source. Clock.SYSTEM by default.
+ */
+public void setClock (Clock clock)
+{
+    this.clock = clock;
+    this.lastShiftTime = NEVER;
+
+    for (SpeedController motor : this.motors)
+        if (this.getCache(motor) != null)
+            this.getCache(motor).setClock(clock);
+
+    if (this.outputLimiter != null)
+        this.outputLimiter.setClock(clock);
+}
+
 /**
  * Sets every gear ratio. Make sure that the lowest gear starts at 0, and the
  * highest gear is at the max, to make sure the up-shifting and down-shifting
@@ -216,6 +635,11 @@ public double scaleJoystickForDeadband (double input)
 public void setAllGearPercentages (double... ratios)
 {
     this.gearRatios = ratios;
+
+    if (this.upShiftVelocities != null
+            && this.hasAutoShiftVelocities() == false)
+        System.out.println("TransmissionBase: auto shift velocities don't"
+                + " fit " + ratios.length + " gears, auto shift paused");
 }
 
 /**
@@ -296,6 +720,8 @@ public void shiftGears (boolean upShiftButton, boolean downShiftButton)
 {
     // Makes sure that if the button is held down, it doesn't constantly
     // cycle through gears.
+    int previousGear = currentGear;
+
     if (downShiftButton && !downShiftButtonStatus)
         {
         downShift();
@@ -308,17 +734,30 @@ public void shiftGears (boolean upShiftButton, boolean downShiftButton)
 
             }
 
+    if (currentGear != previousGear)
+        {
+        // The driver picked this gear, so keep auto shift off of it for the
+        // dwell time too
+        this.lastShiftTime = this.clock.nanoTime();
+        this.recordShift(this.lastShiftTime, previousGear, currentGear, 0);
+        }
+
     upShiftButtonStatus = upShiftButton;
     downShiftButtonStatus = downShiftButton;
 }
 
 /**
- * Tells the robot to cut all power to the motors.
+ * Tells the robot to cut all power to the motors, right away, even with
+ * output limiting on.
  */
 public void stop ()
 {
     for (SpeedController sc : motors)
-        sc.set(0);
+        // A limited set(0) would be slewed, and the robot would keep going
+        if (sc instanceof LimitedOutput)
+            sc.stopMotor();
+        else
+            sc.set(0);
 }
 
 /**
@@ -345,6 +784,32 @@ public void upShift ()
         currentGear++;
 }
 
+/**
+ * Adds a shift to the log, overwriting the oldest once it is full.
+ */
+private void recordShift (long time, int fromGear, int toGear,
+        double current)
+{
+    int index = this.shiftCount % SHIFT_LOG_SIZE;
+    this.shiftTimes[index] = time;
+    this.shiftFromGears[index] = fromGear;
+    this.shiftToGears[index] = toGear;
+    this.shiftVelocities[index] = this.filteredVelocity;
+    this.shiftCurrents[index] = current;
+    this.shiftCount++;
+}
+
+/**
+ * @return Where in the shift log the shift from that many shifts ago is, or
+ *         -1 if it was never logged or has been overwritten.
+ */
+private int shiftLogIndex (int age)
+{
+    if (age < 0 || age >= SHIFT_LOG_SIZE || age >= this.shiftCount)
+        return -1;
+    return (this.shiftCount - 1 - age) % SHIFT_LOG_SIZE;
+}
+
 // =========================================
 
 /**
@@ -419,8 +884,49 @@ private double inputJoystickDeadband = DEFAULT_JOYSTICK_DEADBAND;
 // deadband.
 private double currentJoystickDeadband = inputJoystickDeadband;
 
+private Clock clock = Clock.SYSTEM;
+
+private OutputLimiter outputLimiter = null;
+
+// Auto shift
+private boolean autoShiftEnabled = false;
+
+private double[] upShiftVelocities = null;
+
+private double[] downShiftVelocities = null;
+
+private double filteredVelocity = 0;
+
+private long lastShiftTime = NEVER; // Nanoseconds
+
+private double autoShiftDwell = .5; // Seconds
+
+private double upShiftThrottle = .5;
+
+private double autoShiftCurrentLimit = 0; // Amps, 0 is off
+
+private double autoShiftFilter = .3;
+
+// Shift log, a ring buffer of the last SHIFT_LOG_SIZE shifts
+private final long[] shiftTimes = new long[SHIFT_LOG_SIZE];
+
+private final int[] shiftFromGears = new int[SHIFT_LOG_SIZE];
+
+private final int[] shiftToGears = new int[SHIFT_LOG_SIZE];
+
+private final double[] shiftVelocities = new double[SHIFT_LOG_SIZE];
+
+private final double[] shiftCurrents = new double[SHIFT_LOG_SIZE];
+
+private int shiftCount = 0;
+
 // ================CONSTANTS================
 /** the default deadband applied to all joysticks used in drive methods */
 public static final double DEFAULT_JOYSTICK_DEADBAND = .2;
+
+/** how many shifts are kept in the shift log */
+public static final int SHIFT_LOG_SIZE = 32;
+
+private static final long NEVER = Long.MIN_VALUE;
 // =========================================
 }
@@ -0,0 +1,110 @@
+package frc.Utils;
+
+/**
+ * The voltage an arm needs to hold an angle and move at a given velocity and
+ * acceleration:
+ *
+ * V = kS * sign(velocity) + kG * cos(angle) + kV * velocity + kA * acceleration
+ *
+ * kG is the voltage that holds the arm level against gravity; it takes less
+ * the further the arm is from level, and none straight up or down. kS, kV
+ * and kA are as in SimpleMotorFeedforward.
+ *
+ * The angle is in degrees from level, as the arm's sensor reads it, so the
+ * sensor must read 0 with the arm level (or have an offset applied before it
+ * gets here). Velocity is in degrees per second.
+ *
+ * @author Kilroy
+ */
+public class ArmFeedforward implements Feedforward
+{
+/**
+ * Creates the ArmFeedforward object.
+ *
+ * @param kS
+ *               Static friction voltage, in volts
+ * @param kG
+ *               Voltage that holds the arm level, in volts
+ * @param kV
+ *               Volts per degree per second
+ * @param kA
+ *               Volts per degree per second squared
+ */
+public ArmFeedforward (double kS, double kG, double kV, double kA)
+{
+    this.kS = kS;
+    this.kG = kG;
+    this.kV = kV;
+    this.kA = kA;
+}
+
+/**
+ * Calculates the voltage needed to be at an angle while moving at a velocity
+ * and acceleration.
+ *
+ * @param angle
+ *                         The arm's angle, in degrees from level
+ * @param velocity
+ *                         The desired velocity, in degrees per second
+ * @param acceleration
+ *                         The desired acceleration, in degrees per second
+ *                         squared
+ * @return The feedforward, in volts
+ */
+@Override
+public double calculate (double angle, double velocity, double acceleration)
+{
+    return (this.kS * Math.signum(velocity))
+            + (this.kG * Math.cos(Math.toRadians(angle)))
+            + (this.kV * velocity) + (this.kA * acceleration);
+}
+
+/**
+ * @return Static friction voltage, in volts
+ */
+public double getKS ()
+{
+    return this.kS;
+}
+
+/**
+ * @return Voltage that holds the arm level, in volts
+ */
+public double getKG ()
+{
+    return this.kG;
+}
+
+/**
+ * @return Volts per degree per second
+ */
+public double getKV ()
+{
+    return this.kV;
+}
+
+/**
+ * @return Volts per degree per second squared
+ */
+public double getKA ()
+{
+    return this.kA;
+}
+
+@Override
+public String toString ()
+{
+    return "kS = " + this.kS + ", kG = " + this.kG + ", kV = " + this.kV
+            + ", kA = " + this.kA;
+}
+
+// ================VARIABLES================
+
+private final double kS;
+
+private final double kG;
+
+private final double kV;
+
+private final double kA;
+}
@@ -0,0 +1,454 @@
+package frc.Utils;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Moves a mechanism (an arm, a wrist, an elevator) to a position with two
+ * loops instead of one: an outer position loop decides how fast the
+ * mechanism should be moving, and a faster inner velocity loop decides the
+ * motor power to move that fast.
+ *
+ * One position loop has to both speed the mechanism up and slow it down with
+ * the same gains, so it ends up either sluggish or oscillating. Split in two,
+ * the inner loop soaks up friction, gravity and battery sag before the
+ * position ever drifts, and the outer loop only has to deal with the
+ * mechanism's speed, which the inner loop makes behave like a simple
+ * integrator. The speed can also be capped, so long moves don't slam.
+ *
+ * <pre>
+ * CascadedPositionController arm = new CascadedPositionController(
+ *         armPot::get, armMotor::set);
+ * arm.setPositionGains(4, 0, 0); // degrees per second per degree off
+ * arm.setVelocityGains(.002, .02, 0, 1 / 180.0); // F: power per deg/s
+ * arm.setMaxVelocity(120);
+ * arm.setSetpoint(90);
+ * arm.enable();
+ * </pre>
+ *
+ * Both loops are stepped by one Runnable on one LoopScheduler: the inner loop
+ * every tick, the outer loop every few ticks (4 by default, so 50Hz outside a
+ * 200Hz inside). The velocity is worked out from the position readings,
+ * low-pass filtered, unless a velocity source is given. All of the state is
+ * primitive fields, so a step doesn't allocate.
+ *
+ * To compare it with a single loop, give it and the single loop's
+ * ScheduledPID the same StepResponse (setStepResponse()) and make the same
+ * step with each.
+ *
+ * @author Kilroy
+ */
+public class CascadedPositionController
+{
+/**
+ * Creates the CascadedPositionController object, on the shared LoopScheduler.
+ *
+ * @param position
+ *                     Where the position comes from
+ * @param output
+ *                     Where the motor power goes
+ */
+public CascadedPositionController (DoubleSupplier position,
+        DoubleConsumer output)
+{
+    this(position, output, LoopScheduler.getDefault());
+}
+
+/**
+ * Creates the CascadedPositionController object.
+ *
+ * @param position
+ *                      Where the position comes from
+ * @param output
+ *                      Where the motor power goes
+ * @param scheduler
+ *                      What steps both loops while enabled. The inner loop
+ *                      runs at its rate.
+ */
+public CascadedPositionController (DoubleSupplier position,
+        DoubleConsumer output, LoopScheduler scheduler)
+{
+    this.position = position;
+    this.output = output;
+    this.scheduler = scheduler;
+    this.positionLoop.setOutputRange(-this.maxVelocity, this.maxVelocity);
+}
+
+/**
+ * Starts stepping both loops. The first step only measures.
+ */
+public synchronized void enable ()
+{
+    this.reset();
+    this.enabled = true;
+    this.scheduler.add(this.stepLoop);
+}
+
+/**
+ * Stops stepping the loops and sets the output to 0.
+ */
+public void disable ()
+{
+    this.scheduler.remove(this.stepLoop);
+    synchronized (this)
+        {
+        this.enabled = false;
+        this.output.accept(0);
+        }
+}
+
+/**
+ * @return Whether or not the loops are being stepped
+ */
+public boolean isEnabled ()
+{
+    return this.enabled;
+}
+
+/**
+ * Clears both loops' integrals and the velocity estimate.
+ */
+public synchronized void reset ()
+{
+    this.positionLoop.reset();
+    this.velocityLoop.reset();
+    this.lastStepTime = NEVER;
+    this.outerDt = 0;
+    this.tick = 0;
+    this.velocitySetpoint = 0;
+    this.measuredVelocity = 0;
+}
+
+/**
+ * Runs one tick: reads the position, works out the velocity, runs the outer
+ * loop if it is due, then the inner loop. Called by the scheduler.
+ */
+private synchronized void step ()
+{
+    if (this.enabled == false)
+        return;
+
+    long now = this.scheduler.getClock().nanoTime();
+    double currentPosition = this.position.getAsDouble();
+
+    if (this.lastStepTime == NEVER)
+        {
+        // Nothing to take a velocity from yet
+        this.lastStepTime = now;
+        this.lastPosition = currentPosition;
+        return;
+        }
+
+    double dt = Math.min(MAX_DT, (now - this.lastStepTime) / 1e9);
+    this.lastStepTime = now;
+
+    if (this.velocitySource != null)
+        this.measuredVelocity = this.velocitySource.getAsDouble();
+    else
+        if (dt > 0)
+            {
+            double rawVelocity = (currentPosition - this.lastPosition) / dt;
+            double alpha = this.velocityFilter / (this.velocityFilter + dt);
+            this.measuredVelocity = (alpha * this.measuredVelocity)
+                    + ((1 - alpha) * rawVelocity);
+            }
+    this.lastPosition = currentPosition;
+
+    // The outer loop only runs every few ticks, over all the time since
+    this.outerDt += dt;
+    if (this.tick % this.outerDivider == 0)
+        {
+        this.velocitySetpoint = this.positionLoop.calculate(currentPosition,
+                this.outerDt);
+        this.outerDt = 0;
+        if (this.positionRecorder != null)
+            this.positionRecorder.record(now / 1e9, this.positionLoop);
+        }
+    this.tick++;
+
+    this.velocityLoop.setSetpoint(this.velocitySetpoint);
+    if (this.feedforward != null)
+        this.velocityLoop.setFeedforward(this.feedforward
+                .calculatePercent(currentPosition, this.velocitySetpoint, 0));
+    this.output.accept(this.velocityLoop.calculate(this.measuredVelocity, dt));
+
+    if (this.velocityRecorder != null)
+        this.velocityRecorder.record(now / 1e9, this.velocityLoop);
+    if (this.stepResponse != null)
+        this.stepResponse.update(currentPosition, now / 1e9);
+}
+
+/**
+ * @param setpoint
+ *                     Where the mechanism should go, in position units
+ */
+public synchronized void setSetpoint (double setpoint)
+{
+    if (this.stepResponse != null && setpoint != this.getSetpoint())
+        this.stepResponse.start(this.lastPosition, setpoint,
+                this.scheduler.getClock().getSeconds());
+    this.positionLoop.setSetpoint(setpoint);
+}
+
+/**
+ * @return Where the mechanism is going, in position units
+ */
+public synchronized double getSetpoint ()
+{
+    return this.positionLoop.getSetpoint();
+}
+
+/**
+ * Sets the outer loop's gains. Its output is a velocity, so P is how fast to
+ * move per unit of position off.
+ *
+ * @param p
+ *              Velocity per unit of position error
+ * @param i
+ *              Integral gain, per second. Usually 0; the inner loop's
+ *              integral holds the mechanism.
+ * @param d
+ *              Derivative gain, in seconds. Usually 0.
+ */
+public synchronized void setPositionGains (double p, double i, double d)
+{
+    this.positionLoop.setPID(p, i, d);
+}
+
+/**
+ * Sets the inner loop's gains. Its output is motor power.
+ *
+ * @param p
+ *              Power per unit of velocity error
+ * @param i
+ *              Integral gain, per second
+ * @param d
+ *              Derivative gain, in seconds
+ * @param f
+ *              Power per unit of velocity asked for; roughly 1 over the
+ *              mechanism's top speed
+ */
+public synchronized void setVelocityGains (double p, double i, double d,
+        double f)
+{
+    this.velocityLoop.setPID(p, i, d);
+    this.velocityLoop.setF(f);
+}
+
+/**
+ * @param velocity
+ *                     The fastest the outer loop may ask the mechanism to
+ *                     move, either way, in position units per second
+ */
+public synchronized void setMaxVelocity (double velocity)
+{
+    this.maxVelocity = Math.abs(velocity);
+    this.positionLoop.setOutputRange(-this.maxVelocity, this.maxVelocity);
+}
+
+/**
+ * @param minimum
+ *                    The lowest power sent to the motor
+ * @param maximum
+ *                    The highest power sent to the motor
+ */
+public synchronized void setOutputRange (double minimum, double maximum)
+{
+    this.velocityLoop.setOutputRange(minimum, maximum);
+}
+
+/**
+ * @param feedforward
+ *                        Power added to the inner loop's output, such as what
+ *                        it takes to hold an arm up against gravity
+ */
+public synchronized void setFeedforward (double feedforward)
+{
+    this.velocityLoop.setFeedforward(feedforward);
+}
+
+/**
+ * Works the inner loop's feedforward out from a model on every step, from
+ * the position and the velocity the outer loop asks for. With a good model,
+ * the inner loop's F can be 0.
+ *
+ * @param feedforward
+ *                        The model, or null to go back to no feedforward
+ */
+public synchronized void setFeedforward (Feedforward feedforward)
+{
+    this.feedforward = feedforward;
+    if (feedforward == null)
+        this.velocityLoop.setFeedforward(0);
+}
+
+/**
+ * @param ticks
+ *                  How many inner loop steps per outer loop step, at least 1.
+ *                  4 by default.
+ */
+public synchronized void setOuterDivider (int ticks)
+{
+    this.outerDivider = Math.max(1, ticks);
+}
+
+/**
+ * @param seconds
+ *                    Time constant of the low-pass filter on the velocity
+ *                    worked out from the position, in seconds. .01 by
+ *                    default, 0 for none.
+ */
+public synchronized void setVelocityFilter (double seconds)
+{
+    this.velocityFilter = Math.max(0, seconds);
+}
+
+/**
+ * @param velocity
+ *                     Where the velocity comes from, in position units per
+ *                     second, such as an encoder's rate. Null, the default,
+ *                     works it out from the position.
+ */
+public synchronized void setVelocitySource (DoubleSupplier velocity)
+{
+    this.velocitySource = velocity;
+}
+
+/**
+ * @param positionTolerance
+ *                              How close to the setpoint counts as on target,
+ *                              in position units
+ * @param velocityTolerance
+ *                              How slow the mechanism must be moving to count
+ *                              as on target, in position units per second
+ */
+public synchronized void setTolerance (double positionTolerance,
+        double velocityTolerance)
+{
+    this.positionLoop.setTolerance(positionTolerance);
+    this.velocityTolerance = Math.abs(velocityTolerance);
+}
+
+/**
+ * @return Whether or not the mechanism is within tolerance of the setpoint
+ *         and has (nearly) stopped
+ */
+public synchronized boolean onTarget ()
+{
+    return this.positionLoop.onTarget() == true
+            && Math.abs(this.measuredVelocity) <= this.velocityTolerance;
+}
+
+/**
+ * Records each loop's steps from now on, such as to see whether the inner
+ * loop is keeping up with what the outer loop asks.
+ *
+ * @param positionRecorder
+ *                             Where the outer loop's steps go, or null
+ * @param velocityRecorder
+ *                             Where the inner loop's steps go, or null
+ */
+public synchronized void setRecorders (PIDRecorder positionRecorder,
+        PIDRecorder velocityRecorder)
+{
+    this.positionRecorder = positionRecorder;
+    this.velocityRecorder = velocityRecorder;
+}
+
+/**
+ * Measures every step the setpoint makes from now on.
+ *
+ * @param response
+ *                     Started on every new setpoint and updated with every
+ *                     position reading, or null to stop
+ */
+public synchronized void setStepResponse (StepResponse response)
+{
+    this.stepResponse = response;
+}
+
+/**
+ * @return The last position reading
+ */
+public synchronized double getPosition ()
+{
+    return this.lastPosition;
+}
+
+/**
+ * @return The velocity the inner loop last saw, in position units per second
+ */
+public synchronized double getVelocity ()
+{
+    return this.measuredVelocity;
+}
+
+/**
+ * @return The velocity the outer loop last asked for
+ */
+public synchronized double getVelocitySetpoint ()
+{
+    return this.velocitySetpoint;
+}
+
+/**
+ * @return The last power sent to the motor
+ */
+public synchronized double getOutput ()
+{
+    return this.velocityLoop.getOutput();
+}
+
+// ================VARIABLES================
+
+private static final long NEVER = Long.MIN_VALUE;
+
+// Steps further apart than this are treated as this far apart
+private static final double MAX_DT = .1; // Seconds
+
+private final DoubleSupplier position;
+
+private final DoubleConsumer output;
+
+private final LoopScheduler scheduler;
+
+private final PIDLoop positionLoop = new PIDLoop(0, 0, 0);
+
+private final PIDLoop velocityLoop = new PIDLoop(0, 0, 0);
+
+// The same object every time, so the scheduler can find it to remove it
+private final Runnable stepLoop = this::step;
+
+private volatile boolean enabled = false;
+
+private DoubleSupplier velocitySource = null;
+
+private Feedforward feedforward = null;
+
+private PIDRecorder positionRecorder = null;
+
+private PIDRecorder velocityRecorder = null;
+
+private StepResponse stepResponse = null;
+
+private long lastStepTime = NEVER; // Nanoseconds
+
+private long tick = 0;
+
+private double outerDt = 0; // Seconds since the outer loop last ran
+
+private double lastPosition = 0;
+
+private double measuredVelocity = 0;
+
+private double velocitySetpoint = 0;
+
+// TUNABLES
+private double maxVelocity = Double.MAX_VALUE;
+
+private double velocityTolerance = Double.MAX_VALUE;
+
+private int outerDivider = 4;
+
+private double velocityFilter = .01; // Seconds
+}
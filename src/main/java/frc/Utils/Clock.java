@@ -0,0 +1,47 @@
+package frc.Utils;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * A monotonic time source. Anything that measures time (acceleration, timeouts,
+ * loop dt) should read it from a Clock it was given, rather than calling
+ * System.currentTimeMillis() or the WPILib Timer directly, so that:
+ *
+ * - time never jumps backwards when the system clock is set, and has
+ * nanosecond resolution instead of millisecond;
+ *
+ * - a simulation can hand in a VirtualClock and run the same code faster than
+ * real time, with exactly repeatable results.
+ *
+ * Only differences between two readings mean anything; the zero point is up
+ * to the clock.
+ *
+ * @author Kilroy
+ */
+public interface Clock
+{
+/**
+ * @return The current time, in nanoseconds.
+ */
+long nanoTime ();
+
+/**
+ * @return The current time, in seconds.
+ */
+default double getSeconds ()
+{
+    return this.nanoTime() / 1e9;
+}
+
+/**
+ * The JVM's monotonic clock. Works anywhere, without the HAL. The default
+ * everywhere a Clock is used.
+ */
+Clock SYSTEM = System::nanoTime;
+
+/**
+ * The roboRIO's FPGA clock (microsecond resolution), the same one
+ * Timer.getFPGATimestamp() reads. Needs the HAL.
+ */
+Clock FPGA = () -> RobotController.getFPGATime() * 1000;
+}
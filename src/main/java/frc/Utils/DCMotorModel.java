@@ -0,0 +1,169 @@
+package frc.Utils;
+
+/**
+ * A model of one or more identical brushed / brushless DC motors driving a
+ * gearbox, built from the numbers on the motor's spec sheet.
+ *
+ * current = (volts - motorSpeed / kV) / resistance
+ * torque = kT * current
+ *
+ * All values are SI: volts, amps, newton meters and radians per second.
+ * Speeds and torques passed in and out are at the OUTPUT of the gearbox.
+ *
+ * @author Kilroy
+ */
+public class DCMotorModel
+{
+/**
+ * Creates the DCMotorModel object.
+ *
+ * @param nominalVoltage
+ *                           The voltage the spec sheet was measured at
+ * @param stallTorque
+ *                           Stall torque of one motor, in newton meters
+ * @param stallCurrent
+ *                           Stall current of one motor, in amps
+ * @param freeCurrent
+ *                           Free current of one motor, in amps
+ * @param freeSpeedRPM
+ *                           Free speed of one motor, in RPM
+ * @param motorCount
+ *                           How many motors are in the gearbox
+ * @param gearRatio
+ *                           Motor turns per output turn (greater than 1 is a
+ *                           reduction)
+ */
+public DCMotorModel (double nominalVoltage, double stallTorque,
+        double stallCurrent, double freeCurrent, double freeSpeedRPM,
+        int motorCount, double gearRatio)
+{
+    this.motorCount = motorCount;
+    this.gearRatio = gearRatio;
+
+    this.resistance = nominalVoltage / stallCurrent;
+    this.kV = (freeSpeedRPM * 2 * Math.PI / 60)
+            / (nominalVoltage - this.resistance * freeCurrent);
+    this.kT = stallTorque / stallCurrent;
+}
+
+/**
+ * @param motorCount
+ *                       How many motors are in the gearbox
+ * @param gearRatio
+ *                       Motor turns per output turn
+ * @return A CIM gearbox
+ */
+public static DCMotorModel cim (int motorCount, double gearRatio)
+{
+    return new DCMotorModel(12, 2.42, 133, 2.7, 5310, motorCount,
+            gearRatio);
+}
+
+/**
+ * @param motorCount
+ *                       How many motors are in the gearbox
+ * @param gearRatio
+ *                       Motor turns per output turn
+ * @return A Mini CIM gearbox
+ */
+public static DCMotorModel miniCim (int motorCount, double gearRatio)
+{
+    return new DCMotorModel(12, 1.41, 89, 3, 5840, motorCount, gearRatio);
+}
+
+/**
+ * @param motorCount
+ *                       How many motors are in the gearbox
+ * @param gearRatio
+ *                       Motor turns per output turn
+ * @return A REV NEO gearbox
+ */
+public static DCMotorModel neo (int motorCount, double gearRatio)
+{
+    return new DCMotorModel(12, 2.6, 105, 1.8, 5676, motorCount,
+            gearRatio);
+}
+
+/**
+ * @param motorCount
+ *                       How many motors are in the gearbox
+ * @param gearRatio
+ *                       Motor turns per output turn
+ * @return A VEX 775pro gearbox
+ */
+public static DCMotorModel vex775Pro (int motorCount, double gearRatio)
+{
+    return new DCMotorModel(12, .71, 134, .7, 18730, motorCount,
+            gearRatio);
+}
+
+/**
+ * @param volts
+ *                        Voltage across the motors
+ * @param outputSpeed
+ *                        Speed of the gearbox output, in radians per second
+ * @return The total current drawn by all the motors, in amps. Reversing a
+ *         motor at full speed draws close to twice its stall current, unless
+ *         a current limit is set.
+ */
+public double getCurrent (double volts, double outputSpeed)
+{
+    double current = (volts - (outputSpeed * this.gearRatio / this.kV))
+            / this.resistance;
+    if (this.currentLimit > 0)
+        current = Math.max(-this.currentLimit,
+                Math.min(this.currentLimit, current));
+    return current * this.motorCount;
+}
+
+/**
+ * Limits the current of each motor, the way a motor controller's current
+ * limit does. Off by default.
+ *
+ * @param amps
+ *                 The most current one motor may draw, either way, or 0 for
+ *                 no limit
+ */
+public void setCurrentLimit (double amps)
+{
+    this.currentLimit = Math.abs(amps);
+}
+
+/**
+ * @param volts
+ *                        Voltage across the motors
+ * @param outputSpeed
+ *                        Speed of the gearbox output, in radians per second
+ * @return The torque at the gearbox output, in newton meters
+ */
+public double getTorque (double volts, double outputSpeed)
+{
+    return this.kT * this.getCurrent(volts, outputSpeed) * this.gearRatio;
+}
+
+/**
+ * @param volts
+ *                  Voltage across the motors
+ * @return The speed the gearbox output would reach with no load, in radians
+ *         per second
+ */
+public double getFreeSpeed (double volts)
+{
+    return volts * this.kV / this.gearRatio;
+}
+
+// ================VARIABLES================
+
+private final int motorCount;
+
+private final double gearRatio;
+
+private final double resistance; // Ohms, per motor
+
+private final double kV; // Radians per second per volt
+
+private final double kT; // Newton meters per amp
+
+// TUNABLES
+private double currentLimit = 0; // Amps, per motor, 0 is none
+}
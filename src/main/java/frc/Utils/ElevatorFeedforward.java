@@ -0,0 +1,103 @@
+package frc.Utils;
+
+/**
+ * The voltage an elevator (or any lift gravity pulls on the same at every
+ * height) needs to move at a given velocity and acceleration:
+ *
+ * V = kG + kS * sign(velocity) + kV * velocity + kA * acceleration
+ *
+ * kG is the voltage that holds the carriage still against gravity. kS, kV
+ * and kA are as in SimpleMotorFeedforward. Positive is up.
+ *
+ * @author Kilroy
+ */
+public class ElevatorFeedforward implements Feedforward
+{
+/**
+ * Creates the ElevatorFeedforward object.
+ *
+ * @param kS
+ *               Static friction voltage, in volts
+ * @param kG
+ *               Voltage that holds the carriage still, in volts
+ * @param kV
+ *               Volts per unit of velocity
+ * @param kA
+ *               Volts per unit of acceleration
+ */
+public ElevatorFeedforward (double kS, double kG, double kV, double kA)
+{
+    this.kS = kS;
+    this.kG = kG;
+    this.kV = kV;
+    this.kA = kA;
+}
+
+/**
+ * Calculates the voltage needed to move at a velocity and acceleration.
+ *
+ * @param position
+ *                         Ignored; gravity is the same at every height
+ * @param velocity
+ *                         The desired velocity, positive up
+ * @param acceleration
+ *                         The desired acceleration, positive up
+ * @return The feedforward, in volts
+ */
+@Override
+public double calculate (double position, double velocity,
+        double acceleration)
+{
+    return this.kG + (this.kS * Math.signum(velocity))
+            + (this.kV * velocity) + (this.kA * acceleration);
+}
+
+/**
+ * @return Static friction voltage, in volts
+ */
+public double getKS ()
+{
+    return this.kS;
+}
+
+/**
+ * @return Voltage that holds the carriage still, in volts
+ */
+public double getKG ()
+{
+    return this.kG;
+}
+
+/**
+ * @return Volts per unit of velocity
+ */
+public double getKV ()
+{
+    return this.kV;
+}
+
+/**
+ * @return Volts per unit of acceleration
+ */
+public double getKA ()
+{
+    return this.kA;
+}
+
+@Override
+public String toString ()
+{
+    return "kS = " + this.kS + ", kG = " + this.kG + ", kV = " + this.kV
+            + ", kA = " + this.kA;
+}
+
+// ================VARIABLES================
+
+private final double kS;
+
+private final double kG;
+
+private final double kV;
+
+private final double kA;
+}
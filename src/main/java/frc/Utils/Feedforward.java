@@ -0,0 +1,61 @@
+package frc.Utils;
+
+/**
+ * A model of the voltage a mechanism needs to move the way it is asked to,
+ * worked out from physics instead of from the error the way a PID is. With
+ * most of the work done by the feedforward, the PID only has to correct what
+ * the model gets wrong, so its gains can be smaller and the mechanism
+ * responds faster without oscillating.
+ *
+ * SimpleMotorFeedforward is a plain motor (a flywheel, a roller, a
+ * drivetrain side), ArmFeedforward an arm that gravity pulls on more when it
+ * is level, ElevatorFeedforward a lift that gravity pulls on the same
+ * everywhere. KilroyPID.setFeedforward(), ScheduledPID.setFeedforward(),
+ * CascadedPositionController.setFeedforward() and
+ * PIDVelocityController.setFeedforward() take any of them.
+ *
+ * calculate() must be cheap enough for every step of a 200Hz loop: a few
+ * multiplications, no allocation.
+ *
+ * @author Kilroy
+ */
+public interface Feedforward
+{
+/**
+ * Calculates the voltage needed to be at a position while moving at a
+ * velocity and acceleration.
+ *
+ * @param position
+ *                         Where the mechanism is. Ignored by models that
+ *                         don't depend on it.
+ * @param velocity
+ *                         The desired velocity
+ * @param acceleration
+ *                         The desired acceleration
+ * @return The feedforward, in volts
+ */
+double calculate (double position, double velocity, double acceleration);
+
+/**
+ * Calculates the feedforward as motor power instead of volts.
+ *
+ * @param position
+ *                         Where the mechanism is
+ * @param velocity
+ *                         The desired velocity
+ * @param acceleration
+ *                         The desired acceleration
+ * @return The feedforward, as a fraction of NOMINAL_VOLTAGE
+ */
+default double calculatePercent (double position, double velocity,
+        double acceleration)
+{
+    return this.calculate(position, velocity, acceleration)
+            / NOMINAL_VOLTAGE;
+}
+
+/**
+ * The voltage the feedforward constants are scaled against.
+ */
+double NOMINAL_VOLTAGE = 12.0;
+}
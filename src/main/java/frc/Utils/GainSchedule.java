@@ -0,0 +1,209 @@
+package frc.Utils;
+
+import java.util.Arrays;
+
+/**
+ * A table of PIDF gains for different operating points, so one loop can be
+ * aggressive far from its target and gentle near it, or push harder at the
+ * top of an elevator than at the bottom.
+ *
+ * Each row is a key (how far from the target, or where the setpoint is) and
+ * the gains to use there. Between two rows the gains are blended in a
+ * straight line; past the first or last row, that row's gains are used.
+ *
+ * <pre>
+ * GainSchedule schedule = new GainSchedule();
+ * schedule.add(0, .02, .01, 0, 0); // near the target: gentle, with I
+ * schedule.add(20, .05, 0, .002, 0); // far away: strong, no I
+ * armPID.setGainSchedule(schedule, GainSchedule.Key.ERROR);
+ * </pre>
+ *
+ * The gains are in the same units KilroyPID.setPIDF() takes, so a row can be
+ * copied from gains that already work. On the RIO, that is the units of a
+ * WPILib PIDController: I and D per 50ms step, converted for the loop the
+ * same way ScheduledPID.setLegacyPIDF() does. On a CAN motor controller, the
+ * rows are sent as they are, in the controller's own units, as setPIDF()
+ * sends its gains.
+ *
+ * Rows are meant to be added once, at startup. Looking gains up doesn't
+ * allocate.
+ *
+ * @author Kilroy
+ */
+public class GainSchedule
+{
+/**
+ * Adds a row to the table, keeping it in order. A row with the same key as
+ * an existing row replaces it.
+ *
+ * @param key
+ *                Where these gains apply: the error magnitude or the
+ *                setpoint, in sensor units
+ * @param p
+ *                Proportional gain
+ * @param i
+ *                Integral gain, per 50ms step (see the class description)
+ * @param d
+ *                Derivative gain, per 50ms step
+ * @param f
+ *                Feed-forward gain
+ */
+public synchronized void add (double key, double p, double i, double d,
+        double f)
+{
+    int index = Arrays.binarySearch(this.keys, 0, this.size, key);
+
+    if (index < 0)
+        {
+        index = -(index + 1);
+        if (this.size == this.keys.length)
+            {
+            int capacity = Math.max(4, this.size * 2);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.p = Arrays.copyOf(this.p, capacity);
+            this.i = Arrays.copyOf(this.i, capacity);
+            this.d = Arrays.copyOf(this.d, capacity);
+            this.f = Arrays.copyOf(this.f, capacity);
+            }
+        int moved = this.size - index;
+        System.arraycopy(this.keys, index, this.keys, index + 1, moved);
+        System.arraycopy(this.p, index, this.p, index + 1, moved);
+        System.arraycopy(this.i, index, this.i, index + 1, moved);
+        System.arraycopy(this.d, index, this.d, index + 1, moved);
+        System.arraycopy(this.f, index, this.f, index + 1, moved);
+        this.size++;
+        }
+
+    this.keys[index] = key;
+    this.p[index] = p;
+    this.i[index] = i;
+    this.d[index] = d;
+    this.f[index] = f;
+}
+
+/**
+ * Removes every row.
+ */
+public synchronized void clear ()
+{
+    this.size = 0;
+}
+
+/**
+ * @return How many rows there are
+ */
+public synchronized int size ()
+{
+    return this.size;
+}
+
+/**
+ * @param key
+ *                The error magnitude or setpoint
+ * @return The proportional gain at that key, or 0 if the table is empty
+ */
+public synchronized double getP (double key)
+{
+    return this.interpolate(this.p, key);
+}
+
+/**
+ * @param key
+ *                The error magnitude or setpoint
+ * @return The integral gain at that key, or 0 if the table is empty
+ */
+public synchronized double getI (double key)
+{
+    return this.interpolate(this.i, key);
+}
+
+/**
+ * @param key
+ *                The error magnitude or setpoint
+ * @return The derivative gain at that key, or 0 if the table is empty
+ */
+public synchronized double getD (double key)
+{
+    return this.interpolate(this.d, key);
+}
+
+/**
+ * @param key
+ *                The error magnitude or setpoint
+ * @return The feed-forward gain at that key, or 0 if the table is empty
+ */
+public synchronized double getF (double key)
+{
+    return this.interpolate(this.f, key);
+}
+
+/**
+ * Sets a PIDLoop's gains to the ones at a key, converting I and D from per
+ * 50ms step to the loop's per second and seconds.
+ *
+ * @param key
+ *                 The error magnitude or setpoint
+ * @param loop
+ *                 The loop to change. Nothing changes if the table is empty.
+ */
+public synchronized void apply (double key, PIDLoop loop)
+{
+    if (this.size == 0)
+        return;
+    loop.setPID(this.interpolate(this.p, key),
+            this.interpolate(this.i, key) / ScheduledPID.LEGACY_PERIOD,
+            this.interpolate(this.d, key) * ScheduledPID.LEGACY_PERIOD);
+    loop.setF(this.interpolate(this.f, key));
+}
+
+/**
+ * Finds one gain at a key, blending the rows on either side.
+ */
+private double interpolate (double[] values, double key)
+{
+    if (this.size == 0)
+        return 0;
+    if (key <= this.keys[0])
+        return values[0];
+    if (key >= this.keys[this.size - 1])
+        return values[this.size - 1];
+
+    int index = Arrays.binarySearch(this.keys, 0, this.size, key);
+    if (index >= 0)
+        return values[index];
+
+    // Between the row below and the row above
+    int above = -(index + 1);
+    int below = above - 1;
+    double fraction = (key - this.keys[below])
+            / (this.keys[above] - this.keys[below]);
+    return values[below] + ((values[above] - values[below]) * fraction);
+}
+
+/**
+ * What a gain schedule is looked up by
+ *
+ * @author Kilroy
+ */
+public enum Key
+    {
+    /** How far the measurement is from the setpoint, either way */
+    ERROR,
+    /** Where the setpoint is */
+    SETPOINT
+    }
+
+// ================VARIABLES================
+
+private double[] keys = new double[4];
+
+private double[] p = new double[4];
+
+private double[] i = new double[4];
+
+private double[] d = new double[4];
+
+private double[] f = new double[4];
+
+private int size = 0;
+}
@@ -1,15 +1,17 @@
 package frc.Utils;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.revrobotics.CANPIDController;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.ControlType;
 
 import frc.HardwareInterfaces.KilroyEncoder;
 
-import edu.wpi.first.wpilibj.PIDController;
 import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.PIDSourceType;
 import edu.wpi.first.wpilibj.SpeedController;
-import edu.wpi.first.wpilibj.command.PIDSubsystem;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
@@ -17,6 +19,14 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * PID loops on-board or off-board. The pros and cons for each are listed in
  * their respective constructor.
  * 
+ * When the sensor is plugged into the motor controller (a Talon SRX / Victor
+ * SPX, or a Spark MAX), the loop runs on the controller itself, every
+ * millisecond, without waiting on the CAN bus or the roboRIO. There it can also
+ * follow a motion profile (Motion Magic / Smart Motion, see
+ * PIDType.MOTION_PROFILED and setMotionConstraints()), switch between several
+ * sets of gains (setPIDF(int, ...) and selectSlot()), and add a feed-forward
+ * worked out on the roboRIO (setArbitraryFeedforward()).
+ * 
  * @author Ryan McGee
  *
  */
@@ -25,7 +35,11 @@ public class KilroyPID
 
 	private final BaseMotorController offBoardController;
 
-	private final PIDSubsystem onBoardController;
+	private final CANSparkMax sparkMax;
+
+	private final CANPIDController sparkController;
+
+	private final ScheduledPID onBoardController;
 
 	private final PIDSource sensor;
 
@@ -38,6 +52,10 @@ public class KilroyPID
 	 * "x_wpi" motor controller classes. It allows for a wider array of sensors, at
 	 * the cost of PWM and sensor ports, and more strain on the RIO.
 	 * 
+	 * If the sensor is a KilroyEncoder plugged into the motor controller itself,
+	 * the loop runs on the motor controller instead (ControllerType.CAN, or
+	 * ControllerType.REV_CAN for a Spark MAX).
+	 * 
 	 * @param motorCont
 	 *            The motor controller that will be manipulated by this class.
 	 * @param sensor
@@ -50,14 +68,24 @@ public class KilroyPID
 	 */
 	public KilroyPID(SpeedController motorCont, PIDSource sensor)
 	{
-		if (sensor instanceof KilroyEncoder && ((KilroyEncoder) sensor).getAttachedCANDevice() == motorCont)
-		{
-			initCAN();
-		} else
-		{
-			initOnBoard();
-		}
+		this(motorCont, sensor, LoopScheduler.getDefault());
+	}
 
+	/**
+	 * Creates the KilroyPID object, stepped by a LoopScheduler other than the
+	 * shared one when the loop runs on the RIO, such as a simulation's
+	 * (PIDSimHarness). CAN loops run on the motor controller either way.
+	 * 
+	 * @param motorCont
+	 *            The motor controller that will be manipulated by this class.
+	 * @param sensor
+	 *            The sensor that will pull data to compute the value sent to the
+	 *            motor.
+	 * @param scheduler
+	 *            What steps the loop while it is enabled, if it runs on the RIO.
+	 */
+	public KilroyPID(SpeedController motorCont, PIDSource sensor, LoopScheduler scheduler)
+	{
 		this.sensor = sensor;
 
 		if (pidType == PIDType.POSITION)
@@ -65,41 +93,38 @@ public class KilroyPID
 		else if (pidType == PIDType.VELOCITY)
 			sensor.setPIDSourceType(PIDSourceType.kRate);
 
-		onBoardController = new PIDSubsystem(0, 0, 0)
+		if (sensor instanceof KilroyEncoder && ((KilroyEncoder) sensor).getAttachedCANDevice() != null
+				&& ((KilroyEncoder) sensor).getAttachedCANDevice() == motorCont)
+		{
+			offBoardController = ((KilroyEncoder) sensor).getAttachedCANDevice();
+			sparkMax = null;
+			sparkController = null;
+			onBoardController = null;
+			type = ControllerType.CAN;
+		} else if (sensor instanceof KilroyEncoder && ((KilroyEncoder) sensor).getAttachedSparkMax() != null
+				&& ((KilroyEncoder) sensor).getAttachedSparkMax() == motorCont)
+		{
+			sparkMax = ((KilroyEncoder) sensor).getAttachedSparkMax();
+			sparkController = sparkMax.getPIDController();
+			offBoardController = null;
+			onBoardController = null;
+			type = ControllerType.REV_CAN;
+		} else
 		{
-			@Override
-			protected double returnPIDInput()
+			// Stepped by the LoopScheduler while enabled, instead of a thread of
+			// its own
+			onBoardController = new ScheduledPID(() ->
 			{
 				if (isSensorReversed == true)
 					return -sensor.pidGet();
 				// else
 				return sensor.pidGet();
-			}
-
-			@Override
-			protected void usePIDOutput(double output)
-			{
-				motorCont.set(output);
-			}
-
-			@Override
-			protected void initDefaultCommand()
-			{
-
-			}
-		};
-		offBoardController = null;
-		type = ControllerType.ONBOARD;
-	}
-
-	private void initCAN()
-	{
-
-	}
-
-	private void initOnBoard()
-	{
-
+			}, motorCont::set, scheduler);
+			offBoardController = null;
+			sparkMax = null;
+			sparkController = null;
+			type = ControllerType.ONBOARD;
+		}
 	}
 
 	/**
@@ -111,6 +136,10 @@ public class KilroyPID
 	 * While calculating the PID values for tuning, remember that the motor values
 	 * is between -1023 and +1023, NOT -1 and 1.
 	 * 
+	 * On-board, the gains are in WPILib PIDController units, as they were when
+	 * this ran a PIDSubsystem: I and D are per 50ms step (see
+	 * ScheduledPID.setLegacyPIDF()).
+	 * 
 	 * @param p
 	 *            The Proportional value: the error multiplied by this scalar
 	 *            directly. This is good for speeding up correction based on how far
@@ -128,30 +157,244 @@ public class KilroyPID
 	 * @param f
 	 *            The Feed-Forward value: A base line for what should be sent to the
 	 *            motor. This is multiplied by the setpoint, and is used mostly by
-	 *            veolocity loops.
+	 *            veolocity loops. For gravity on arms and elevators, see
+	 *            setFeedforward().
 	 */
 	public void setPIDF(double p, double i, double d, double f)
 	{
-		this.p = p;
-		this.i = i;
-		this.d = d;
-		this.f = f;
+		this.setPIDF(this.slot, p, i, d, f);
+	}
+
+	/**
+	 * Sets the PIDF values for one gain slot. The motor controller keeps up to
+	 * four sets of gains, so switching between them (say, gentle while holding
+	 * and aggressive while moving) is just selectSlot(), with nothing resent
+	 * over CAN. On-board, the slots are kept here.
+	 * 
+	 * @param slot
+	 *            Which set of gains, 0 to 3. Slot 0 is used unless another is
+	 *            selected.
+	 * @param p
+	 *            The Proportional value
+	 * @param i
+	 *            The Integral value
+	 * @param d
+	 *            The Derivative value
+	 * @param f
+	 *            The Feed-Forward value
+	 */
+	public void setPIDF(int slot, double p, double i, double d, double f)
+	{
+		if (slot == this.slot)
+		{
+			this.p = p;
+			this.i = i;
+			this.d = d;
+			this.f = f;
+		}
+		this.sendGains(slot, p, i, d, f);
+	}
+
+	/**
+	 * Chooses which set of gains the loop uses from now on.
+	 * 
+	 * @param slot
+	 *            Which set of gains, 0 to 3, as given to setPIDF(int, ...).
+	 */
+	public void selectSlot(int slot)
+	{
+		this.slot = slot;
+		this.p = this.slotP[slot];
+		this.i = this.slotI[slot];
+		this.d = this.slotD[slot];
+		this.f = this.slotF[slot];
 		switch (type)
 		{
 		case CAN:
-			this.offBoardController.config_kP(0, p, 0);
-			this.offBoardController.config_kI(0, i, 0);
-			this.offBoardController.config_kD(0, d, 0);
-			this.offBoardController.config_kF(0, f, 0);
+			this.offBoardController.selectProfileSlot(slot, 0);
+			break;
+		case REV_CAN:
+			// The slot is sent along with every setpoint
+			if (this.deviceRunning == true)
+				this.sendSetpoint();
 			break;
 		case ONBOARD:
-			this.onBoardController.getPIDController().setPID(p, i, d, f);
+			this.onBoardController.setLegacyPIDF(this.p, this.i, this.d, this.f);
 			break;
 		default:
 			break;
 		}
 	}
 
+	/**
+	 * @return Which set of gains is in use
+	 */
+	public int getSlot()
+	{
+		return this.slot;
+	}
+
+	/**
+	 * Sends gains to one slot of the motor controller (or, on-board, keeps them
+	 * for that slot), along with the Talon's integral limit, which depends on I
+	 * there.
+	 */
+	private void sendGains(int slot, double p, double i, double d, double f)
+	{
+		switch (type)
+		{
+		case CAN:
+			this.offBoardController.config_kP(slot, p, 0);
+			this.offBoardController.config_kI(slot, i, 0);
+			this.offBoardController.config_kD(slot, d, 0);
+			this.offBoardController.config_kF(slot, f, 0);
+			// The controller limits the accumulated error, not its share of the
+			// output, so the limit moves with I. Output is in 1023ths there.
+			if (this.maxIntegralOutput > 0 && i != 0)
+				this.offBoardController.configMaxIntegralAccumulator(slot, this.maxIntegralOutput * 1023 / Math.abs(i),
+						0);
+			else
+				this.offBoardController.configMaxIntegralAccumulator(slot, 0, 0);
+			break;
+		case REV_CAN:
+			this.sparkController.setP(p, slot);
+			this.sparkController.setI(i, slot);
+			this.sparkController.setD(d, slot);
+			this.sparkController.setFF(f, slot);
+			break;
+		case ONBOARD:
+			if (slot == this.slot)
+				this.onBoardController.setLegacyPIDF(p, i, d, f);
+			break;
+		default:
+			break;
+		}
+
+		this.slotP[slot] = p;
+		this.slotI[slot] = i;
+		this.slotD[slot] = d;
+		this.slotF[slot] = f;
+	}
+
+	/**
+	 * Protects the integral from winding up: it is only added to while close to
+	 * the setpoint, and can be limited in how much it adds to the output.
+	 * 
+	 * On-board, the integral also stops growing while the output is at its limit
+	 * in the same direction (conditional integration). A CAN controller clears
+	 * its integral outside the zone, which does most of the same job. A Spark
+	 * MAX only has the zone; maxIntegralOutput is ignored there.
+	 * 
+	 * The limits apply to every gain slot.
+	 * 
+	 * @param zone
+	 *            The integral only builds while the error is within plus or minus
+	 *            this, and is cleared outside it, in sensor units (native units
+	 *            for a CAN controller). 0 for everywhere.
+	 * @param maxIntegralOutput
+	 *            The most the integral may add to the output, from 0 to 1. 0 for no
+	 *            limit.
+	 */
+	public void setIntegralLimits(double zone, double maxIntegralOutput)
+	{
+		this.maxIntegralOutput = Math.abs(maxIntegralOutput);
+		switch (type)
+		{
+		case CAN:
+			for (int slot = 0; slot < SLOTS; slot++)
+			{
+				this.offBoardController.config_IntegralZone(slot, (int) Math.abs(zone), 0);
+				this.sendGains(slot, this.slotP[slot], this.slotI[slot], this.slotD[slot], this.slotF[slot]);
+			}
+			break;
+		case REV_CAN:
+			for (int slot = 0; slot < SLOTS; slot++)
+				this.sparkController.setIZone(Math.abs(zone), slot);
+			break;
+		case ONBOARD:
+			this.onBoardController.setIntegralLimits(zone, maxIntegralOutput);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Uses a table of gains instead of one set, blending between rows by how far
+	 * from the setpoint the loop is, or by where the setpoint is. Gains from
+	 * setPIDF() are ignored while a schedule is set. The rows are in the same
+	 * units as setPIDF() on this controller (see GainSchedule).
+	 * 
+	 * On-board, the gains are looked up on every step. A CAN controller can't do
+	 * that itself, so call update() once per loop; new gains are only sent (to
+	 * the selected slot) when they have changed enough to matter, to keep the
+	 * CAN bus quiet.
+	 * 
+	 * @param schedule
+	 *            The table of gains, or null to stop scheduling.
+	 * @param key
+	 *            What the table is looked up by.
+	 */
+	public void setGainSchedule(GainSchedule schedule, GainSchedule.Key key)
+	{
+		this.gainSchedule = schedule;
+		this.scheduleKey = key;
+		if (type == ControllerType.ONBOARD)
+			this.onBoardController.setGainSchedule(schedule, key);
+	}
+
+	/**
+	 * Sends the feed-forward from the feed-forward model, and the gains from the
+	 * gain schedule, to a CAN motor controller. Call once per loop while either
+	 * is set. Does nothing on-board, where both are worked out on every step.
+	 */
+	public void update()
+	{
+		if (type == ControllerType.ONBOARD)
+			return;
+
+		if (this.feedforward != null)
+		{
+			if (pidType == PIDType.VELOCITY)
+				this.setArbitraryFeedforward(this.feedforward.calculatePercent(0, this.setpoint, 0));
+			else
+				// The controller's own reading, in the setpoint's native units
+				this.setArbitraryFeedforward(this.feedforward.calculatePercent(
+						type == ControllerType.CAN ? this.offBoardController.getSelectedSensorPosition(0)
+								: this.getSparkMeasurement(),
+						0, 0));
+		}
+
+		if (this.gainSchedule == null)
+			return;
+
+		double key = this.setpoint;
+		if (this.scheduleKey == GainSchedule.Key.ERROR)
+		{
+			if (type == ControllerType.CAN)
+				key = Math.abs(this.offBoardController.getClosedLoopError(0));
+			else
+				key = Math.abs(this.setpoint - this.getSparkMeasurement());
+		}
+
+		double newP = this.gainSchedule.getP(key);
+		double newI = this.gainSchedule.getI(key);
+		double newD = this.gainSchedule.getD(key);
+		double newF = this.gainSchedule.getF(key);
+
+		if (hasChanged(newP, this.slotP[this.slot]) == true || hasChanged(newI, this.slotI[this.slot]) == true
+				|| hasChanged(newD, this.slotD[this.slot]) == true || hasChanged(newF, this.slotF[this.slot]) == true)
+			this.sendGains(this.slot, newP, newI, newD, newF);
+	}
+
+	/**
+	 * @return Whether or not a gain has changed enough to be worth sending.
+	 */
+	private static boolean hasChanged(double newGain, double sentGain)
+	{
+		return Math.abs(newGain - sentGain) > GAIN_CHANGE * Math.max(Math.abs(newGain), Math.abs(sentGain));
+	}
+
 	/**
 	 * Sets at what point the PID loop is considered "on target"
 	 * 
@@ -163,8 +406,13 @@ public class KilroyPID
 		this.tolerance = tolerance;
 		switch (type)
 		{
+		case REV_CAN:
+			// Smart Motion stops correcting within this
+			for (int slot = 0; slot < SLOTS; slot++)
+				this.sparkController.setSmartMotionAllowedClosedLoopError(Math.abs(tolerance), slot);
+			return;
 		case ONBOARD:
-			this.onBoardController.getPIDController().setAbsoluteTolerance(tolerance);
+			this.onBoardController.setTolerance(tolerance);
 			return;
 		default:
 			return;
@@ -188,18 +436,180 @@ public class KilroyPID
 	{
 		this.setpoint = value;
 		this.setSensorInverted(runSensorReversed);
+		this.sendSetpoint();
+	}
+
+	/**
+	 * Works the feed-forward out from a model of the mechanism instead of using a
+	 * fixed one: gravity on an arm at its current angle, on an elevator, or what
+	 * a flywheel needs at the setpoint speed. With the model doing most of the
+	 * work, the PID gains can be smaller.
+	 * 
+	 * A position loop gives the model the position, a velocity loop gives it the
+	 * setpoint, both in the units the loop itself uses: the sensor's units
+	 * on-board, and the controller's native units on CAN (sensor ticks and ticks
+	 * per 100ms on a Talon / Victor, rotations and RPM on a Spark MAX), so a
+	 * model for a CAN controller is made in those units. On-board it is worked
+	 * out on every step; a CAN controller gets it as the arbitrary feed-forward,
+	 * sent by update().
+	 * 
+	 * @param feedforward
+	 *            The model, such as an ArmFeedforward, or null for none.
+	 */
+	public void setFeedforward(Feedforward feedforward)
+	{
+		this.feedforward = feedforward;
+		switch (type)
+		{
+		case CAN:
+		case REV_CAN:
+			if (feedforward == null)
+				this.setArbitraryFeedforward(0);
+			else
+				this.update();
+			break;
+		case ONBOARD:
+			this.onBoardController.setFeedforward(feedforward, pidType == PIDType.VELOCITY);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Sends the setpoint, the kind of movement, the gain slot and the arbitrary
+	 * feed-forward to the motor controller, or just the setpoint on-board.
+	 */
+	private void sendSetpoint()
+	{
+		switch (type)
+		{
+		case CAN:
+			offBoardController.set(this.getTalonMode(), this.setpoint, DemandType.ArbitraryFeedForward,
+					this.arbitraryFeedforward);
+			this.deviceRunning = true;
+			break;
+		case REV_CAN:
+			// The Spark MAX takes its feed-forward in volts
+			sparkController.setReference(this.setpoint, this.getSparkMode(), this.slot,
+					this.arbitraryFeedforward * Feedforward.NOMINAL_VOLTAGE);
+			this.deviceRunning = true;
+			break;
+		case ONBOARD:
+			this.onBoardController.setSetpoint(this.setpoint);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * @return The Talon / Victor control mode for the kind of PID loop
+	 */
+	private ControlMode getTalonMode()
+	{
+		switch (pidType)
+		{
+		case VELOCITY:
+			return ControlMode.Velocity;
+		case MOTION_PROFILED:
+			return ControlMode.MotionMagic;
+		default:
+			return ControlMode.Position;
+		}
+	}
+
+	/**
+	 * @return The Spark MAX control type for the kind of PID loop
+	 */
+	private ControlType getSparkMode()
+	{
+		switch (pidType)
+		{
+		case VELOCITY:
+			return ControlType.kVelocity;
+		case MOTION_PROFILED:
+			return ControlType.kSmartMotion;
+		default:
+			return ControlType.kPosition;
+		}
+	}
+
+	/**
+	 * @return The Spark MAX's own encoder reading, in the units its loop uses:
+	 *         rotations, or RPM for a velocity loop.
+	 */
+	private double getSparkMeasurement()
+	{
+		if (pidType == PIDType.VELOCITY)
+			return this.sparkMax.getEncoder().getVelocity();
+		// else
+		return this.sparkMax.getEncoder().getPosition();
+	}
+
+	/**
+	 * Sets how fast, and how quickly, the motor controller may move to the
+	 * setpoint when using PIDType.MOTION_PROFILED. It speeds up at the
+	 * acceleration, cruises, then slows down to stop on the setpoint, instead of
+	 * the PID pushing as hard as it can from the start. Applies to every gain
+	 * slot.
+	 * 
+	 * On-board there is no profile, and MOTION_PROFILED goes straight to the
+	 * setpoint, like POSITION.
+	 * 
+	 * @param cruiseVelocity
+	 *            The fastest the mechanism may move: in sensor units per 100ms on
+	 *            a Talon / Victor, in RPM on a Spark MAX.
+	 * @param acceleration
+	 *            How quickly it may speed up and slow down: in sensor units per
+	 *            100ms per second on a Talon / Victor, in RPM per second on a
+	 *            Spark MAX.
+	 */
+	public void setMotionConstraints(double cruiseVelocity, double acceleration)
+	{
+		switch (type)
+		{
+		case CAN:
+			this.offBoardController.configMotionCruiseVelocity((int) Math.abs(cruiseVelocity), 0);
+			this.offBoardController.configMotionAcceleration((int) Math.abs(acceleration), 0);
+			break;
+		case REV_CAN:
+			for (int slot = 0; slot < SLOTS; slot++)
+			{
+				this.sparkController.setSmartMotionMaxVelocity(Math.abs(cruiseVelocity), slot);
+				this.sparkController.setSmartMotionMaxAccel(Math.abs(acceleration), slot);
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Adds a fixed output to whatever the PID loop calculates, such as what it
+	 * takes to hold an arm up against gravity at its current angle. Unlike the F
+	 * gain it doesn't depend on the setpoint, so the roboRIO can work it out
+	 * every loop while the motor controller runs the PID.
+	 * 
+	 * @param feedforward
+	 *            Output added to the PID's, from -1 to 1. 0 by default.
+	 */
+	public void setArbitraryFeedforward(double feedforward)
+	{
+		if (feedforward == this.arbitraryFeedforward)
+			return;
+
+		this.arbitraryFeedforward = feedforward;
 		switch (type)
 		{
 		case CAN:
-			// Set the type of movement and the setpoint.
-			if (pidType == PIDType.POSITION)
-				offBoardController.set(ControlMode.Position, value);
-			else if (pidType == PIDType.VELOCITY)
-				offBoardController.set(ControlMode.Velocity, value);
+		case REV_CAN:
+			// Goes along with the setpoint, so only resend it while running
+			if (this.deviceRunning == true)
+				this.sendSetpoint();
 			break;
 		case ONBOARD:
-			// Set the setpoint
-			this.onBoardController.setSetpoint(value);
+			this.onBoardController.setFeedforward(feedforward);
 			break;
 		default:
 			break;
@@ -217,10 +627,14 @@ public class KilroyPID
 	{
 		this.pidType = pidType;
 
-		if (pidType == PIDType.POSITION)
-			this.sensor.setPIDSourceType(PIDSourceType.kDisplacement);
-		else if (pidType == PIDType.VELOCITY)
+		if (pidType == PIDType.VELOCITY)
 			this.sensor.setPIDSourceType(PIDSourceType.kRate);
+		else
+			this.sensor.setPIDSourceType(PIDSourceType.kDisplacement);
+
+		// The model is given something different for a velocity loop
+		if (type == ControllerType.ONBOARD && this.feedforward != null)
+			this.onBoardController.setFeedforward(this.feedforward, pidType == PIDType.VELOCITY);
 	}
 
 	/**
@@ -237,13 +651,24 @@ public class KilroyPID
 			if (enabled == false)
 			{
 				this.offBoardController.set(ControlMode.PercentOutput, 0);
+				this.deviceRunning = false;
+			} else
+			{
+				this.sendSetpoint();
+			}
+			break;
+		case REV_CAN:
+			if (enabled == false)
+			{
+				this.sparkMax.set(0);
+				this.deviceRunning = false;
 			} else
 			{
-				this.setSetpoint(setpoint, false);
+				this.sendSetpoint();
 			}
 			break;
 		case ONBOARD:
-			this.onBoardController.getPIDController().setEnabled(enabled);
+			this.onBoardController.setEnabled(enabled);
 			break;
 		default:
 			break;
@@ -255,6 +680,9 @@ public class KilroyPID
 	 * controller, then this will invert it if it is "out of phase" (motor
 	 * controller and sensor are not in the same direction)
 	 * 
+	 * A Spark MAX's built-in sensor can't be out of phase, so this does nothing
+	 * there.
+	 * 
 	 * @param inverted
 	 *            Whether or not the sensor is going backwards
 	 */
@@ -289,13 +717,30 @@ public class KilroyPID
 			this.offBoardController.configPeakOutputForward(Math.abs(velocity), 0);
 			this.offBoardController.configPeakOutputReverse(Math.abs(velocity), 0);
 			return;
+		case REV_CAN:
+			for (int slot = 0; slot < SLOTS; slot++)
+				this.sparkController.setOutputRange(-Math.abs(velocity), Math.abs(velocity), slot);
+			return;
 		case ONBOARD:
-			this.onBoardController.getPIDController().setOutputRange(-Math.abs(velocity), Math.abs(velocity));
+			this.onBoardController.setOutputRange(-Math.abs(velocity), Math.abs(velocity));
 		default:
 			break;
 		}
 	}
 
+	/**
+	 * Records every step of the on-board loop from now on. Does nothing for a
+	 * CAN controller, whose loop runs on the controller itself.
+	 * 
+	 * @param recorder
+	 *            Where the steps are recorded, or null to stop recording.
+	 */
+	public void setRecorder(PIDRecorder recorder)
+	{
+		if (type == ControllerType.ONBOARD)
+			this.onBoardController.setRecorder(recorder);
+	}
+
 	/**
 	 * @return Gets the last setpoint, or the one used in tuning.
 	 */
@@ -307,9 +752,9 @@ public class KilroyPID
 	/**
 	 * @return The lower level PID controller for on-board processing
 	 */
-	public PIDController getPIDController()
+	public ScheduledPID getPIDController()
 	{
-		return this.onBoardController.getPIDController();
+		return this.onBoardController;
 	}
 
 	/**
@@ -320,6 +765,15 @@ public class KilroyPID
 		return this.offBoardController;
 	}
 
+	/**
+	 * @return The Spark MAX that deals with the PID control, or null if it isn't
+	 *         one
+	 */
+	public CANSparkMax getSparkMax()
+	{
+		return this.sparkMax;
+	}
+
 	/**
 	 * If a PID is in use on a differential drive, for instance, then the front and
 	 * rear motors can be tethered to one sensor / PID loop.
@@ -340,6 +794,25 @@ public class KilroyPID
 		}
 	}
 
+	/**
+	 * Like tetherCANMotorControllers(), for a Spark MAX running the loop.
+	 * 
+	 * @param controller
+	 *            Any Spark MAX
+	 */
+	public void tetherSparkMaxes(CANSparkMax... controller)
+	{
+		switch (type)
+		{
+		case REV_CAN:
+			for (CANSparkMax spark : controller)
+				spark.follow(this.sparkMax);
+			break;
+		default:
+			break;
+		}
+	}
+
 	/**
 	 * Clears the PID integral stored values, effectively "reseting" the PID loop.
 	 */
@@ -350,8 +823,11 @@ public class KilroyPID
 		case CAN:
 			this.offBoardController.setIntegralAccumulator(0, 0, 0);
 			break;
+		case REV_CAN:
+			this.sparkController.setIAccum(0);
+			break;
 		case ONBOARD:
-			this.onBoardController.getPIDController().reset();
+			this.onBoardController.reset();
 			break;
 		default:
 			break;
@@ -367,7 +843,13 @@ public class KilroyPID
 		switch (type)
 		{
 		case CAN:
+			// While profiling, the controller's error is from the middle of the
+			// profile, not the end
+			if (pidType == PIDType.MOTION_PROFILED)
+				return (Math.abs(this.setpoint - this.offBoardController.getSelectedSensorPosition(0)) < this.tolerance);
 			return (Math.abs(this.offBoardController.getClosedLoopError(0)) < this.tolerance);
+		case REV_CAN:
+			return (Math.abs(this.setpoint - this.getSparkMeasurement()) < this.tolerance);
 		case ONBOARD:
 			return this.onBoardController.onTarget();
 		default:
@@ -417,6 +899,10 @@ public class KilroyPID
 		 * We are using the PID built into the CAN motor controller
 		 */
 		CAN,
+		/**
+		 * We are using the PID built into a REV Spark MAX
+		 */
+		REV_CAN,
 		/**
 		 * We are calculating the PID values on the roboRIO
 		 */
@@ -438,7 +924,13 @@ public class KilroyPID
 		/**
 		 * Going at a fixed rate, continuous
 		 */
-		VELOCITY
+		VELOCITY,
+		/**
+		 * Going to a set position along a motion profile run on the motor
+		 * controller (Motion Magic / Smart Motion), limited by
+		 * setMotionConstraints(). On-board, the same as POSITION.
+		 */
+		MOTION_PROFILED
 	}
 
 	private double p, i, d, f, setpoint, tolerance;
@@ -448,4 +940,29 @@ public class KilroyPID
 	private boolean isSensorReversed = false;
 
 	private PIDType pidType = PIDType.POSITION;
+
+	private GainSchedule gainSchedule = null;
+
+	private GainSchedule.Key scheduleKey = GainSchedule.Key.ERROR;
+
+	private double maxIntegralOutput = 0;
+
+	private double arbitraryFeedforward = 0;
+
+	private Feedforward feedforward = null;
+
+	// Whether a setpoint has been sent to the motor controller since it was
+	// last disabled
+	private boolean deviceRunning = false;
+
+	private int slot = 0;
+
+	// The gains last sent to each slot
+	private final double[] slotP = new double[SLOTS], slotI = new double[SLOTS], slotD = new double[SLOTS],
+			slotF = new double[SLOTS];
+
+	private static final int SLOTS = 4;
+
+	// Gains that changed by less than this fraction are not resent
+	private static final double GAIN_CHANGE = .01;
 }
@@ -0,0 +1,371 @@
+package frc.Utils;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Runs many small control loops from ONE thread, at one fixed rate, instead
+ * of every PID controller starting a thread of its own (a WPILib
+ * PIDController / PIDSubsystem does, at 50Hz, each with its own timing).
+ *
+ * Every tick the loops are stepped one after another, always in the order
+ * they were added, so a loop that reads another loop's output always sees
+ * it from the same tick. A loop that should run slower than the scheduler
+ * is given a period, and only runs every so many ticks.
+ *
+ * How steady the ticks really are is measured all the time by a
+ * LoopTimingMonitor: the mean, least and most time between ticks, the jitter
+ * (the standard deviation of that time), how long the loops take, histograms
+ * of both, and how many ticks took longer than the period (overruns).
+ *
+ * Most code uses the shared scheduler:
+ *
+ * <pre>
+ * LoopScheduler.getDefault().add(this.loop, .01);
+ * </pre>
+ *
+ * A simulation makes its own, without a thread, and calls runOnce() after
+ * advancing its VirtualClock.
+ *
+ * @author Kilroy
+ */
+public class LoopScheduler
+{
+/**
+ * Creates the LoopScheduler object.
+ *
+ * @param periodSeconds
+ *                          Time between ticks, in seconds (.005 is 200Hz)
+ * @param threaded
+ *                          If true, a Notifier thread runs the ticks while
+ *                          any loop is added. If false, nothing runs until
+ *                          runOnce() is called, and the HAL is never needed.
+ */
+public LoopScheduler (double periodSeconds, boolean threaded)
+{
+    this.period = periodSeconds;
+    this.threaded = threaded;
+    this.timing = new LoopTimingMonitor("LoopScheduler", periodSeconds);
+}
+
+/**
+ * @return The scheduler shared by the whole robot, running at 200Hz. Made the
+ *         first time it is asked for.
+ */
+public static synchronized LoopScheduler getDefault ()
+{
+    if (defaultScheduler == null)
+        defaultScheduler = new LoopScheduler(DEFAULT_PERIOD, true);
+    return defaultScheduler;
+}
+
+/**
+ * Adds a loop that runs every tick. See add(Runnable, double).
+ *
+ * @param loop
+ *                 The loop to step
+ */
+public void add (Runnable loop)
+{
+    this.add(loop, this.period);
+}
+
+/**
+ * Adds a loop, after all the loops already added. Adding a loop that is
+ * already there only changes its period.
+ *
+ * Keep the same Runnable object to remove it later; this::method makes a new
+ * object every time it is written.
+ *
+ * @param loop
+ *                          The loop to step
+ * @param periodSeconds
+ *                          How often the loop runs, in seconds. Rounded to a
+ *                          whole number of ticks, at least one.
+ */
+public synchronized void add (Runnable loop, double periodSeconds)
+{
+    int divider = (int) Math.max(1, Math.round(periodSeconds / this.period));
+
+    Entry[] current = this.entries;
+    for (int i = 0; i < current.length; i++)
+        if (current[i].loop == loop)
+            {
+            Entry[] changed = current.clone();
+            changed[i] = new Entry(loop, divider);
+            this.entries = changed;
+            return;
+            }
+
+    Entry[] added = new Entry[current.length + 1];
+    System.arraycopy(current, 0, added, 0, current.length);
+    added[current.length] = new Entry(loop, divider);
+    this.entries = added;
+
+    if (this.threaded == true && this.running == false)
+        {
+        if (this.notifier == null)
+            this.notifier = new Notifier(this::runOnce);
+        this.timing.restart();
+        this.notifier.startPeriodic(this.period);
+        this.running = true;
+        }
+}
+
+/**
+ * Removes a loop. It will not be stepped again once this returns, unless it
+ * is being stepped right now. The thread stops when the last loop is
+ * removed.
+ *
+ * @param loop
+ *                 The loop to remove. Nothing happens if it was never added.
+ */
+public synchronized void remove (Runnable loop)
+{
+    Entry[] current = this.entries;
+    for (int i = 0; i < current.length; i++)
+        if (current[i].loop == loop)
+            {
+            Entry[] removed = new Entry[current.length - 1];
+            System.arraycopy(current, 0, removed, 0, i);
+            System.arraycopy(current, i + 1, removed, i,
+                    current.length - i - 1);
+            this.entries = removed;
+
+            if (removed.length == 0 && this.running == true)
+                {
+                this.notifier.stop();
+                this.running = false;
+                }
+            return;
+            }
+}
+
+/**
+ * @param loop
+ *                 A loop
+ * @return Whether or not the loop is added
+ */
+public boolean contains (Runnable loop)
+{
+    for (Entry entry : this.entries)
+        if (entry.loop == loop)
+            return true;
+    return false;
+}
+
+/**
+ * @return How many loops are added
+ */
+public int getLoopCount ()
+{
+    return this.entries.length;
+}
+
+/**
+ * Runs one tick: steps every loop that is due, in the order they were added,
+ * and updates the timing statistics. Called by the thread, or by hand when
+ * the scheduler was made without one.
+ *
+ * A loop that throws is counted in getErrorCount() and the rest still run.
+ */
+public void runOnce ()
+{
+    long start = this.clock.nanoTime();
+    Entry[] current = this.entries;
+    long tick = this.tickCount++;
+
+    for (Entry entry : current)
+        if (tick % entry.divider == 0)
+            try
+                {
+                entry.loop.run();
+                }
+            catch (RuntimeException e)
+                {
+                this.errorCount++;
+                this.lastError = e;
+                }
+
+    this.timing.runSyntheticLoad();
+    this.timing.record(start, this.clock.nanoTime());
+}
+
+/**
+ * @return Whether or not a Notifier thread runs the ticks, as on the robot.
+ *         False for a simulation's scheduler.
+ */
+public boolean isThreaded ()
+{
+    return this.threaded;
+}
+
+/**
+ * @return How many ticks have run
+ */
+public long getTickCount ()
+{
+    return this.tickCount;
+}
+
+/**
+ * @return The average time between ticks, in seconds, or 0 before the second
+ *         tick
+ */
+public double getMeanPeriod ()
+{
+    return this.timing.getMeanPeriod();
+}
+
+/**
+ * @return The shortest time between two ticks, in seconds
+ */
+public double getMinPeriod ()
+{
+    return this.timing.getMinPeriod();
+}
+
+/**
+ * @return The longest time between two ticks, in seconds
+ */
+public double getMaxPeriod ()
+{
+    return this.timing.getMaxPeriod();
+}
+
+/**
+ * @return The standard deviation of the time between ticks, in seconds. 0 is
+ *         perfectly steady.
+ */
+public double getJitter ()
+{
+    return this.timing.getJitter();
+}
+
+/**
+ * @return How long the loops took on the last tick, in seconds
+ */
+public double getLastStepTime ()
+{
+    return this.timing.getLastExecutionTime();
+}
+
+/**
+ * @return The longest the loops have taken on one tick, in seconds
+ */
+public double getMaxStepTime ()
+{
+    return this.timing.getMaxExecutionTime();
+}
+
+/**
+ * @return How many ticks took longer than the period to run their loops
+ */
+public long getOverrunCount ()
+{
+    return this.timing.getOverrunCount();
+}
+
+/**
+ * @return How many times a loop has thrown an exception
+ */
+public long getErrorCount ()
+{
+    return this.errorCount;
+}
+
+/**
+ * @return The last exception thrown by a loop, or null
+ */
+public RuntimeException getLastError ()
+{
+    return this.lastError;
+}
+
+/**
+ * Clears the timing statistics, such as after the robot is enabled.
+ */
+public void resetStatistics ()
+{
+    this.timing.reset();
+}
+
+/**
+ * @return What measures the ticks, for its histograms and percentiles. Its
+ *         synthetic load, if set, is added to every tick.
+ */
+public LoopTimingMonitor getTiming ()
+{
+    return this.timing;
+}
+
+/**
+ * @return Time between ticks, in seconds
+ */
+public double getPeriod ()
+{
+    return this.period;
+}
+
+/**
+ * @return Where the scheduler and its loops get the time from
+ */
+public Clock getClock ()
+{
+    return this.clock;
+}
+
+/**
+ * @param clock
+ *                  Where the scheduler and its loops get the time from.
+ *                  Clock.SYSTEM by default.
+ */
+public void setClock (Clock clock)
+{
+    this.clock = clock;
+    this.resetStatistics();
+}
+
+/**
+ * One added loop, and how many ticks apart it runs.
+ */
+private static class Entry
+{
+final Runnable loop;
+
+final int divider;
+
+Entry (Runnable loop, int divider)
+{
+    this.loop = loop;
+    this.divider = divider;
+}
+}
+
+// ================VARIABLES================
+
+private static final double DEFAULT_PERIOD = .005; // Seconds
+
+private static LoopScheduler defaultScheduler = null;
+
+private final double period; // Seconds
+
+private final boolean threaded;
+
+// Replaced, never changed, so runOnce() can step it without a lock
+private volatile Entry[] entries = new Entry[0];
+
+private Notifier notifier = null;
+
+private boolean running = false;
+
+private volatile Clock clock = Clock.SYSTEM;
+
+private volatile long tickCount = 0;
+
+private volatile long errorCount = 0;
+
+private volatile RuntimeException lastError = null;
+
+// Has a lock of its own, so reading the statistics never waits on a loop
+private final LoopTimingMonitor timing;
+}
@@ -0,0 +1,432 @@
+package frc.Utils;
+
+/**
+ * Measures how regularly a loop really runs and how long it takes: the
+ * robot's periodic functions, a PID step, or a whole LoopScheduler tick.
+ *
+ * Every run is timestamped on entry and exit. From that it keeps the mean,
+ * least and most time between runs and its jitter (standard deviation), the
+ * mean and most time each run took, histograms of both, and counts of runs
+ * that took longer than the period (overruns) or started late.
+ *
+ * <pre>
+ * timing.begin();
+ * // ... the loop's work ...
+ * timing.end();
+ * </pre>
+ *
+ * Everything is kept in arrays and fields made in the constructor, so timing
+ * a loop doesn't allocate and costs two clock readings. The statistics can
+ * be read (or printed with toString()) from any thread.
+ *
+ * For benchmarking, setSyntheticLoad() adds busy work to every run, to see
+ * how the loop and everything sharing the processor with it hold up under
+ * more load than the robot code makes today.
+ *
+ * @author Kilroy
+ */
+public class LoopTimingMonitor
+{
+/**
+ * Creates the LoopTimingMonitor object, reading the system clock.
+ *
+ * @param name
+ *                          What the loop is called in toString()
+ * @param periodSeconds
+ *                          How often the loop is meant to run, in seconds.
+ *                          The histograms cover 0 to twice this.
+ */
+public LoopTimingMonitor (String name, double periodSeconds)
+{
+    this.name = name;
+    this.period = periodSeconds;
+    this.bucketWidth = 2 * periodSeconds / HISTOGRAM_BUCKETS;
+}
+
+/**
+ * Marks the start of one run of the loop.
+ */
+public void begin ()
+{
+    this.beginTime = this.clock.nanoTime();
+}
+
+/**
+ * Marks the end of the run started by begin(), after the synthetic load if
+ * there is one, and records it.
+ */
+public void end ()
+{
+    this.runSyntheticLoad();
+    this.record(this.beginTime, this.clock.nanoTime());
+}
+
+/**
+ * Records one run from timestamps taken elsewhere, for a loop that already
+ * reads the clock.
+ *
+ * @param startNanos
+ *                       When the run started, in nanoseconds
+ * @param endNanos
+ *                       When the run finished, in nanoseconds
+ */
+public synchronized void record (long startNanos, long endNanos)
+{
+    if (this.lastStart != NEVER)
+        {
+        double gap = (startNanos - this.lastStart) / 1e9;
+        this.gapCount++;
+        this.gapSum += gap;
+        this.gapSquareSum += gap * gap;
+        this.minGap = Math.min(this.minGap, gap);
+        this.maxGap = Math.max(this.maxGap, gap);
+        this.periodHistogram[this.getBucket(gap)]++;
+        if (gap > this.period * LATE_FACTOR)
+            this.lateCount++;
+        }
+    this.lastStart = startNanos;
+
+    this.lastExecutionTime = (endNanos - startNanos) / 1e9;
+    this.runCount++;
+    this.executionSum += this.lastExecutionTime;
+    this.maxExecutionTime = Math.max(this.maxExecutionTime,
+            this.lastExecutionTime);
+    this.executionHistogram[this.getBucket(this.lastExecutionTime)]++;
+    if (this.lastExecutionTime > this.period)
+        this.overrunCount++;
+}
+
+/**
+ * @return Which histogram bucket a time falls in. The last bucket holds
+ *         everything past twice the period.
+ */
+private int getBucket (double seconds)
+{
+    if (this.bucketWidth <= 0)
+        return HISTOGRAM_BUCKETS - 1;
+    return (int) Math.max(0, Math.min(HISTOGRAM_BUCKETS - 1,
+            seconds / this.bucketWidth));
+}
+
+/**
+ * Forgets when the loop last ran, so that the time it was stopped for isn't
+ * counted as one very long period. Keeps the statistics.
+ */
+public synchronized void restart ()
+{
+    this.lastStart = NEVER;
+}
+
+/**
+ * Clears every statistic and both histograms, such as after the robot is
+ * enabled.
+ */
+public synchronized void reset ()
+{
+    this.lastStart = NEVER;
+    this.gapCount = 0;
+    this.gapSum = 0;
+    this.gapSquareSum = 0;
+    this.minGap = Double.MAX_VALUE;
+    this.maxGap = 0;
+    this.runCount = 0;
+    this.executionSum = 0;
+    this.lastExecutionTime = 0;
+    this.maxExecutionTime = 0;
+    this.overrunCount = 0;
+    this.lateCount = 0;
+    for (int i = 0; i < HISTOGRAM_BUCKETS; i++)
+        {
+        this.periodHistogram[i] = 0;
+        this.executionHistogram[i] = 0;
+        }
+}
+
+/**
+ * @return How many runs have been recorded
+ */
+public synchronized long getRunCount ()
+{
+    return this.runCount;
+}
+
+/**
+ * @return The average time between runs, in seconds, or 0 before the second
+ *         run
+ */
+public synchronized double getMeanPeriod ()
+{
+    return this.gapCount == 0 ? 0 : this.gapSum / this.gapCount;
+}
+
+/**
+ * @return The shortest time between two runs, in seconds
+ */
+public synchronized double getMinPeriod ()
+{
+    return this.gapCount == 0 ? 0 : this.minGap;
+}
+
+/**
+ * @return The longest time between two runs, in seconds
+ */
+public synchronized double getMaxPeriod ()
+{
+    return this.gapCount == 0 ? 0 : this.maxGap;
+}
+
+/**
+ * @return The standard deviation of the time between runs, in seconds. 0 is
+ *         perfectly steady.
+ */
+public synchronized double getJitter ()
+{
+    if (this.gapCount == 0)
+        return 0;
+    double mean = this.gapSum / this.gapCount;
+    return Math.sqrt(Math.max(0,
+            (this.gapSquareSum / this.gapCount) - (mean * mean)));
+}
+
+/**
+ * @return How long the last run took, in seconds
+ */
+public synchronized double getLastExecutionTime ()
+{
+    return this.lastExecutionTime;
+}
+
+/**
+ * @return How long a run takes on average, in seconds
+ */
+public synchronized double getMeanExecutionTime ()
+{
+    return this.runCount == 0 ? 0 : this.executionSum / this.runCount;
+}
+
+/**
+ * @return The longest a run has taken, in seconds
+ */
+public synchronized double getMaxExecutionTime ()
+{
+    return this.maxExecutionTime;
+}
+
+/**
+ * @return How many runs took longer than the period
+ */
+public synchronized long getOverrunCount ()
+{
+    return this.overrunCount;
+}
+
+/**
+ * @return How many runs started more than half a period late
+ */
+public synchronized long getLateCount ()
+{
+    return this.lateCount;
+}
+
+/**
+ * @param fraction
+ *                     Which percentile, from 0 to 1 (.99 for the 99th)
+ * @return The time between runs that this fraction of runs came within, in
+ *         seconds, to the nearest histogram bucket
+ */
+public synchronized double getPeriodPercentile (double fraction)
+{
+    return this.getPercentile(this.periodHistogram, this.gapCount,
+            this.maxGap, fraction);
+}
+
+/**
+ * @param fraction
+ *                     Which percentile, from 0 to 1 (.99 for the 99th)
+ * @return The time that this fraction of runs finished within, in seconds,
+ *         to the nearest histogram bucket
+ */
+public synchronized double getExecutionPercentile (double fraction)
+{
+    return this.getPercentile(this.executionHistogram, this.runCount,
+            this.maxExecutionTime, fraction);
+}
+
+/**
+ * Walks a histogram until it has passed the fraction of its samples. Past
+ * the last bucket, only the largest sample is known.
+ */
+private double getPercentile (long[] histogram, long count, double max,
+        double fraction)
+{
+    if (count == 0)
+        return 0;
+    double wanted = Math.min(1, Math.max(0, fraction)) * count;
+    long seen = 0;
+    for (int i = 0; i < HISTOGRAM_BUCKETS - 1; i++)
+        {
+        seen += histogram[i];
+        if (seen >= wanted)
+            return Math.min(max, (i + 1) * this.bucketWidth);
+        }
+    return max;
+}
+
+/**
+ * @return A copy of the histogram of time between runs. Bucket i counts the
+ *         gaps from i to i + 1 times getBucketWidth(); the last bucket counts
+ *         everything longer. Makes a new array, so don't call it every loop.
+ */
+public synchronized long[] getPeriodHistogram ()
+{
+    return this.periodHistogram.clone();
+}
+
+/**
+ * @return A copy of the histogram of time per run, laid out like
+ *         getPeriodHistogram()
+ */
+public synchronized long[] getExecutionHistogram ()
+{
+    return this.executionHistogram.clone();
+}
+
+/**
+ * @return How wide each histogram bucket is, in seconds
+ */
+public double getBucketWidth ()
+{
+    return this.bucketWidth;
+}
+
+/**
+ * @return How often the loop is meant to run, in seconds
+ */
+public double getPeriod ()
+{
+    return this.period;
+}
+
+/**
+ * @return What the loop is called
+ */
+public String getName ()
+{
+    return this.name;
+}
+
+/**
+ * @param clock
+ *                  Where begin() and end() read the time from. Clock.SYSTEM
+ *                  by default.
+ */
+public void setClock (Clock clock)
+{
+    this.clock = clock;
+}
+
+/**
+ * Adds busy work to the end of every run, for benchmarking. The work is real
+ * processor time, timed by the system clock whatever clock the monitor
+ * reads.
+ *
+ * @param seconds
+ *                    How long each run is made to take on top of its own
+ *                    work. 0, the default, turns the load off.
+ */
+public void setSyntheticLoad (double seconds)
+{
+    this.syntheticLoadNanos = (long) (Math.max(0, seconds) * 1e9);
+}
+
+/**
+ * Does the busy work set by setSyntheticLoad(), if any. Called by end(), and
+ * by loops that record() their own timestamps, just before the end one.
+ */
+public void runSyntheticLoad ()
+{
+    if (this.syntheticLoadNanos <= 0)
+        return;
+
+    long stop = System.nanoTime() + this.syntheticLoadNanos;
+    double sum = this.loadSink;
+    while (System.nanoTime() < stop)
+        sum += Math.sqrt(sum + 1);
+    // Kept, so the work can't be optimized away
+    this.loadSink = sum;
+}
+
+@Override
+public synchronized String toString ()
+{
+    return this.name + ": " + this.runCount + " runs, period "
+            + millis(this.getMeanPeriod()) + " ms ("
+            + millis(this.getMinPeriod()) + " to "
+            + millis(this.getMaxPeriod()) + ", jitter "
+            + millis(this.getJitter()) + "), run time "
+            + millis(this.getMeanExecutionTime()) + " ms (99% "
+            + millis(this.getExecutionPercentile(.99)) + ", max "
+            + millis(this.maxExecutionTime) + "), " + this.overrunCount
+            + " overruns, " + this.lateCount + " late";
+}
+
+/**
+ * @return Seconds as milliseconds, to 3 places
+ */
+private static double millis (double seconds)
+{
+    return Math.round(seconds * 1e6) / 1000.0;
+}
+
+// ================VARIABLES================
+
+private static final long NEVER = Long.MIN_VALUE;
+
+private static final int HISTOGRAM_BUCKETS = 50;
+
+// A run starting this many periods after the last one is late
+private static final double LATE_FACTOR = 1.5;
+
+private final String name;
+
+private final double period; // Seconds
+
+private final double bucketWidth; // Seconds
+
+private final long[] periodHistogram = new long[HISTOGRAM_BUCKETS];
+
+private final long[] executionHistogram = new long[HISTOGRAM_BUCKETS];
+
+private volatile Clock clock = Clock.SYSTEM;
+
+private long beginTime = 0; // Nanoseconds
+
+private long lastStart = NEVER; // Nanoseconds
+
+private long gapCount = 0;
+
+private double gapSum = 0;
+
+private double gapSquareSum = 0;
+
+private double minGap = Double.MAX_VALUE;
+
+private double maxGap = 0;
+
+private long runCount = 0;
+
+private double executionSum = 0;
+
+private double lastExecutionTime = 0;
+
+private double maxExecutionTime = 0;
+
+private long overrunCount = 0;
+
+private long lateCount = 0;
+
+private volatile double loadSink = 0;
+
+// TUNABLES
+private volatile long syntheticLoadNanos = 0;
+}
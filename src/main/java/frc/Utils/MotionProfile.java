@@ -0,0 +1,212 @@
+package frc.Utils;
+
+/**
+ * A trapezoidal motion profile: accelerate at the maximum acceleration until
+ * the maximum velocity, cruise, then decelerate to stop exactly at the goal.
+ * If the goal is too close to ever reach the maximum velocity, the profile is
+ * a triangle instead. This is the fastest way to move a distance without
+ * going over either limit.
+ *
+ * The profile always starts and ends at rest, at position 0. Units are up to
+ * the caller (degrees, inches...), as long as they match.
+ *
+ * sample() stores its results in the object instead of returning a new one,
+ * so it can be called every loop without creating garbage.
+ *
+ * @author Kilroy
+ */
+public class MotionProfile
+{
+/**
+ * Creates the MotionProfile object.
+ *
+ * @param maxVelocity
+ *                            The fastest the profile will move, in units per
+ *                            second
+ * @param maxAcceleration
+ *                            The fastest the profile will speed up or slow
+ *                            down, in units per second squared
+ */
+public MotionProfile (double maxVelocity, double maxAcceleration)
+{
+    this.setConstraints(maxVelocity, maxAcceleration);
+}
+
+/**
+ * Changes the velocity and acceleration limits. Takes effect on the next
+ * setGoal().
+ *
+ * @param maxVelocity
+ *                            In units per second
+ * @param maxAcceleration
+ *                            In units per second squared
+ */
+public void setConstraints (double maxVelocity, double maxAcceleration)
+{
+    this.maxVelocity = Math.abs(maxVelocity);
+    this.maxAcceleration = Math.abs(maxAcceleration);
+}
+
+/**
+ * Plans a new profile from 0 to the goal.
+ *
+ * @param goal
+ *                 Where the profile ends. May be negative.
+ */
+public void setGoal (double goal)
+{
+    this.direction = Math.signum(goal);
+    this.distance = Math.abs(goal);
+
+    if (this.maxVelocity <= 0 || this.maxAcceleration <= 0)
+        {
+        this.accelTime = 0;
+        this.cruiseTime = 0;
+        this.cruiseVelocity = 0;
+        return;
+        }
+
+    // Distance needed to get to full speed and back down to zero
+    double fullSpeedDistance = this.maxVelocity * this.maxVelocity
+            / this.maxAcceleration;
+
+    if (this.distance >= fullSpeedDistance)
+        {
+        // Trapezoid
+        this.cruiseVelocity = this.maxVelocity;
+        this.accelTime = this.maxVelocity / this.maxAcceleration;
+        this.cruiseTime = (this.distance - fullSpeedDistance)
+                / this.maxVelocity;
+        }
+    else
+        {
+        // Triangle: top speed is where accelerating and decelerating meet
+        this.cruiseVelocity = Math
+                .sqrt(this.distance * this.maxAcceleration);
+        this.accelTime = this.cruiseVelocity / this.maxAcceleration;
+        this.cruiseTime = 0;
+        }
+}
+
+/**
+ * Finds where the profile should be at a time. Read the results with
+ * getPosition(), getVelocity() and getAcceleration().
+ *
+ * @param time
+ *                 Seconds since the start of the profile
+ */
+public void sample (double time)
+{
+    double decelStart = this.accelTime + this.cruiseTime;
+    double position, velocity, acceleration;
+
+    if (time <= 0)
+        {
+        position = 0;
+        velocity = 0;
+        acceleration = 0;
+        }
+    else
+        if (time < this.accelTime)
+            {
+            acceleration = this.maxAcceleration;
+            velocity = this.maxAcceleration * time;
+            position = .5 * this.maxAcceleration * time * time;
+            }
+        else
+            if (time < decelStart)
+                {
+                acceleration = 0;
+                velocity = this.cruiseVelocity;
+                position = (.5 * this.cruiseVelocity * this.accelTime)
+                        + (this.cruiseVelocity * (time - this.accelTime));
+                }
+            else
+                if (time < this.getTotalTime())
+                    {
+                    double timeLeft = this.getTotalTime() - time;
+                    acceleration = -this.maxAcceleration;
+                    velocity = this.maxAcceleration * timeLeft;
+                    position = this.distance
+                            - (.5 * this.maxAcceleration * timeLeft
+                                    * timeLeft);
+                    }
+                else
+                    {
+                    position = this.distance;
+                    velocity = 0;
+                    acceleration = 0;
+                    }
+
+    this.position = this.direction * position;
+    this.velocity = this.direction * velocity;
+    this.acceleration = this.direction * acceleration;
+}
+
+/**
+ * @return How long the whole profile takes, in seconds
+ */
+public double getTotalTime ()
+{
+    return (2 * this.accelTime) + this.cruiseTime;
+}
+
+/**
+ * @param time
+ *                 Seconds since the start of the profile
+ * @return Whether or not the profile has reached the goal by that time
+ */
+public boolean isFinished (double time)
+{
+    return time >= this.getTotalTime();
+}
+
+/**
+ * @return The position from the last sample()
+ */
+public double getPosition ()
+{
+    return this.position;
+}
+
+/**
+ * @return The velocity from the last sample(), in units per second
+ */
+public double getVelocity ()
+{
+    return this.velocity;
+}
+
+/**
+ * @return The acceleration from the last sample(), in units per second
+ *         squared
+ */
+public double getAcceleration ()
+{
+    return this.acceleration;
+}
+
+// ================VARIABLES================
+
+private double maxVelocity;
+
+private double maxAcceleration;
+
+// The planned profile
+private double direction = 0;
+
+private double distance = 0;
+
+private double cruiseVelocity = 0;
+
+private double accelTime = 0; // Seconds
+
+private double cruiseTime = 0; // Seconds
+
+// The last sample
+private double position = 0;
+
+private double velocity = 0;
+
+private double acceleration = 0;
+}
@@ -0,0 +1,396 @@
+package frc.Utils;
+
+/**
+ * A bare-bones PID calculation that keeps all of its state in primitive
+ * fields. Unlike WPILib's PIDController / PIDSubsystem it does not create a
+ * thread of its own: whoever owns it calls calculate() with the latest sensor
+ * reading and the time since the last call, from whatever loop it likes.
+ *
+ * Output = (p * error) + (sum of i * error * dt) + (d * change in error / dt)
+ * + (f * setpoint) + feedforward
+ *
+ * The integral is kept as its share of the output (i is applied as error is
+ * added, not afterwards), so changing i, as a gain schedule does, never makes
+ * the output jump. It is protected from winding up two ways: it is not added
+ * to while the output is already at its limit in the same direction
+ * (conditional integration), and it can be clamped, or cleared whenever the
+ * error is outside an integral zone.
+ *
+ * @author Kilroy
+ */
+public class PIDLoop
+{
+/**
+ * Creates the PIDLoop object.
+ *
+ * @param p
+ *              Proportional gain
+ * @param i
+ *              Integral gain, per second
+ * @param d
+ *              Derivative gain, in seconds
+ */
+public PIDLoop (double p, double i, double d)
+{
+    this.setPID(p, i, d);
+}
+
+/**
+ * Sets the gains of the loop. Does not clear the integral; a new i only
+ * changes how fast it grows from now on.
+ *
+ * @param p
+ *              Proportional gain
+ * @param i
+ *              Integral gain, per second
+ * @param d
+ *              Derivative gain, in seconds
+ */
+public void setPID (double p, double i, double d)
+{
+    this.p = p;
+    this.i = i;
+    this.d = d;
+}
+
+/**
+ * Sets the feed-forward gain: a base line output, multiplied by the setpoint.
+ * Mostly used by velocity loops. 0 by default.
+ *
+ * @param f
+ *              Feed-forward gain
+ */
+public void setF (double f)
+{
+    this.f = f;
+}
+
+/**
+ * Sets a fixed output added to every step, such as what it takes to hold an
+ * arm up against gravity. Unlike f, it doesn't depend on the setpoint. 0 by
+ * default.
+ *
+ * @param feedforward
+ *                        Output added to the PID's, before limiting
+ */
+public void setFeedforward (double feedforward)
+{
+    this.feedforward = feedforward;
+}
+
+/**
+ * Limits the integral, so a long stall can't build up more push than it
+ * takes to hold the mechanism.
+ *
+ * @param zone
+ *                              The integral is only added to while the
+ *                              error is within plus or minus this, and is
+ *                              cleared outside it, in sensor units. 0 (the
+ *                              default) for everywhere.
+ * @param maxIntegralOutput
+ *                              The most output the integral may add, plus
+ *                              or minus. 0 (the default) for no limit.
+ */
+public void setIntegralLimits (double zone, double maxIntegralOutput)
+{
+    this.integralZone = Math.abs(zone);
+    this.maxIntegralOutput = Math.abs(maxIntegralOutput);
+}
+
+/**
+ * @param enabled
+ *                    Whether or not the integral stops growing while the
+ *                    output is at its limit in the same direction. true by
+ *                    default.
+ */
+public void setConditionalIntegration (boolean enabled)
+{
+    this.conditionalIntegration = enabled;
+}
+
+/**
+ * Sets the value the loop is trying to reach.
+ *
+ * @param setpoint
+ *                     The target, in sensor units.
+ */
+public void setSetpoint (double setpoint)
+{
+    this.setpoint = setpoint;
+}
+
+/**
+ * Limits what calculate() can return.
+ *
+ * @param minimum
+ *                    The lowest output allowed
+ * @param maximum
+ *                    The highest output allowed
+ */
+public void setOutputRange (double minimum, double maximum)
+{
+    this.minimumOutput = minimum;
+    this.maximumOutput = maximum;
+}
+
+/**
+ * Sets how close to the setpoint counts as "on target".
+ *
+ * @param tolerance
+ *                      Plus or minus, in sensor units.
+ */
+public void setTolerance (double tolerance)
+{
+    this.tolerance = Math.abs(tolerance);
+}
+
+/**
+ * Runs one step of the loop.
+ *
+ * @param measurement
+ *                        The current sensor reading
+ * @param dtSeconds
+ *                        Time since the last call to calculate(), in seconds.
+ * @return The new output, limited to the output range.
+ */
+public double calculate (double measurement, double dtSeconds)
+{
+    this.measurement = measurement;
+    this.error = this.setpoint - measurement;
+
+    double derivative = 0;
+    if (this.hasPreviousError == true && dtSeconds > 0)
+        derivative = (this.error - this.previousError) / dtSeconds;
+
+    this.pTerm = this.p * this.error;
+    this.dTerm = this.d * derivative;
+
+    if (this.hasPreviousError == true && dtSeconds > 0)
+        this.integrate(dtSeconds);
+
+    this.previousError = this.error;
+    this.hasPreviousError = true;
+
+    this.iTerm = this.integral;
+
+    this.output = inRange(
+            this.pTerm + this.iTerm + this.dTerm + this.getFeedforwardTerm(),
+            this.minimumOutput, this.maximumOutput);
+    return this.output;
+}
+
+/**
+ * Adds the latest error to the integral, unless that would wind it up.
+ */
+private void integrate (double dtSeconds)
+{
+    if (this.integralZone > 0 && Math.abs(this.error) > this.integralZone)
+        {
+        this.integral = 0;
+        return;
+        }
+
+    double step = this.i * this.error * dtSeconds;
+
+    if (this.conditionalIntegration == true)
+        {
+        double unlimited = this.pTerm + this.integral + step + this.dTerm
+                + this.getFeedforwardTerm();
+        if ((unlimited > this.maximumOutput && step > 0)
+                || (unlimited < this.minimumOutput && step < 0))
+            return;
+        }
+
+    this.integral += step;
+
+    if (this.maxIntegralOutput > 0)
+        this.integral = inRange(this.integral, -this.maxIntegralOutput,
+                this.maxIntegralOutput);
+}
+
+/**
+ * @return The part of the output that doesn't depend on the error
+ */
+private double getFeedforwardTerm ()
+{
+    return (this.f * this.setpoint) + this.feedforward;
+}
+
+/**
+ * Clears the integral and the stored error, as if the loop had just been
+ * created.
+ */
+public void reset ()
+{
+    this.integral = 0;
+    this.previousError = 0;
+    this.hasPreviousError = false;
+    this.error = 0;
+    this.output = 0;
+    this.pTerm = 0;
+    this.iTerm = 0;
+    this.dTerm = 0;
+}
+
+/**
+ * @return Whether or not the last error was within the tolerance.
+ */
+public boolean onTarget ()
+{
+    return this.hasPreviousError == true
+            && Math.abs(this.error) <= this.tolerance;
+}
+
+/**
+ * @return The setpoint minus the last measurement
+ */
+public double getError ()
+{
+    return this.error;
+}
+
+/**
+ * @return The measurement given to the last calculate()
+ */
+public double getMeasurement ()
+{
+    return this.measurement;
+}
+
+/**
+ * @return The proportional part of the last output, before limiting
+ */
+public double getPTerm ()
+{
+    return this.pTerm;
+}
+
+/**
+ * @return The integral part of the last output, before limiting
+ */
+public double getITerm ()
+{
+    return this.iTerm;
+}
+
+/**
+ * @return The derivative part of the last output, before limiting
+ */
+public double getDTerm ()
+{
+    return this.dTerm;
+}
+
+/**
+ * @return The last value returned by calculate()
+ */
+public double getOutput ()
+{
+    return this.output;
+}
+
+/**
+ * @return The current setpoint
+ */
+public double getSetpoint ()
+{
+    return this.setpoint;
+}
+
+/**
+ * @return Proportional gain
+ */
+public double getP ()
+{
+    return this.p;
+}
+
+/**
+ * @return Integral gain, per second
+ */
+public double getI ()
+{
+    return this.i;
+}
+
+/**
+ * @return Derivative gain, in seconds
+ */
+public double getD ()
+{
+    return this.d;
+}
+
+/**
+ * @return Feed-forward gain
+ */
+public double getF ()
+{
+    return this.f;
+}
+
+/**
+ * Keeps a value between a lower and upper limit.
+ *
+ * @param val
+ *                     The input value
+ * @param lowerVal
+ *                     The lowest value allowed
+ * @param upperVal
+ *                     The highest value allowed
+ * @return The limited value
+ */
+private static double inRange (double val, double lowerVal,
+        double upperVal)
+{
+    if (val > upperVal)
+        return upperVal;
+    else
+        if (val < lowerVal)
+            return lowerVal;
+
+    return val;
+}
+
+// ================VARIABLES================
+
+private double p, i, d;
+
+private double f = 0;
+
+private double feedforward = 0;
+
+private double setpoint = 0;
+
+private double tolerance = 0;
+
+private double minimumOutput = -1;
+
+private double maximumOutput = 1;
+
+private double error = 0;
+
+private double previousError = 0;
+
+private boolean hasPreviousError = false;
+
+// The integral's share of the output (i already applied)
+private double integral = 0;
+
+private double integralZone = 0; // Sensor units, 0 is everywhere
+
+private double maxIntegralOutput = 0; // 0 is no limit
+
+private boolean conditionalIntegration = true;
+
+private double output = 0;
+
+private double measurement = 0;
+
+// The parts of the last output, kept for recording
+private double pTerm = 0;
+
+private double iTerm = 0;
+
+private double dTerm = 0;
+}
@@ -0,0 +1,307 @@
+package frc.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Records what a PID loop did on every step, for tuning after the match:
+ * time, setpoint, measurement, error, the P, I and D parts of the output, and
+ * the output itself.
+ *
+ * Everything is stored in arrays made once, in the constructor. When they are
+ * full the oldest samples are written over, so a recorder can be left on for
+ * a whole match and holds the last few seconds (or minutes) of it. Recording
+ * a step is a handful of array writes, cheap enough for a 200Hz loop; nothing
+ * is printed and no garbage is made.
+ *
+ * After the match, write it out without holding up the robot:
+ *
+ * <pre>
+ * recorder.writeInBackground("/home/lvuser/turnPID.csv", false);
+ * </pre>
+ *
+ * The binary file is the "PIDR" magic number, a version and sample count
+ * (ints), then each sample as 8 doubles in the order above, all big-endian
+ * (Java's DataInputStream reads it directly; numpy with dtype '>f8').
+ *
+ * Given to ScheduledPID.setRecorder(), KilroyPID.setRecorder(),
+ * DrivePID.setRecorder() or PIDVelocityController.setRecorder().
+ *
+ * @author Kilroy
+ */
+public class PIDRecorder
+{
+/**
+ * Creates the PIDRecorder object.
+ *
+ * @param capacity
+ *                     How many samples are kept. At 200Hz, 12000 is the last
+ *                     minute.
+ */
+public PIDRecorder (int capacity)
+{
+    this.capacity = Math.max(1, capacity);
+    this.time = new double[this.capacity];
+    this.setpoint = new double[this.capacity];
+    this.measurement = new double[this.capacity];
+    this.error = new double[this.capacity];
+    this.pTerm = new double[this.capacity];
+    this.iTerm = new double[this.capacity];
+    this.dTerm = new double[this.capacity];
+    this.output = new double[this.capacity];
+}
+
+/**
+ * Records one step, written over the oldest if the recorder is full. Values
+ * that aren't known can be Double.NaN.
+ *
+ * @param timeSeconds
+ *                        When the step ran, in seconds
+ * @param setpoint
+ *                        The target
+ * @param measurement
+ *                        The sensor reading
+ * @param error
+ *                        setpoint - measurement
+ * @param pTerm
+ *                        The proportional part of the output
+ * @param iTerm
+ *                        The integral part of the output
+ * @param dTerm
+ *                        The derivative part of the output
+ * @param output
+ *                        The output sent
+ */
+public synchronized void record (double timeSeconds, double setpoint,
+        double measurement, double error, double pTerm, double iTerm,
+        double dTerm, double output)
+{
+    if (this.enabled == false)
+        return;
+
+    int index = this.next;
+    this.time[index] = timeSeconds;
+    this.setpoint[index] = setpoint;
+    this.measurement[index] = measurement;
+    this.error[index] = error;
+    this.pTerm[index] = pTerm;
+    this.iTerm[index] = iTerm;
+    this.dTerm[index] = dTerm;
+    this.output[index] = output;
+
+    this.next = (index + 1) % this.capacity;
+    if (this.sampleCount < this.capacity)
+        this.sampleCount++;
+}
+
+/**
+ * Records the step a PIDLoop just calculated.
+ *
+ * @param timeSeconds
+ *                        When the step ran, in seconds
+ * @param loop
+ *                        The loop, right after calculate()
+ */
+public void record (double timeSeconds, PIDLoop loop)
+{
+    this.record(timeSeconds, loop.getSetpoint(), loop.getMeasurement(),
+            loop.getError(), loop.getPTerm(), loop.getITerm(),
+            loop.getDTerm(), loop.getOutput());
+}
+
+/**
+ * Forgets every sample.
+ */
+public synchronized void clear ()
+{
+    this.next = 0;
+    this.sampleCount = 0;
+}
+
+/**
+ * @param enabled
+ *                    Whether or not record() stores anything. True by
+ *                    default.
+ */
+public void setEnabled (boolean enabled)
+{
+    this.enabled = enabled;
+}
+
+/**
+ * @return How many samples are stored, at most the capacity
+ */
+public synchronized int getSampleCount ()
+{
+    return this.sampleCount;
+}
+
+/**
+ * @return How many samples can be stored
+ */
+public int getCapacity ()
+{
+    return this.capacity;
+}
+
+/**
+ * Writes every stored sample to a CSV file, oldest first, one row per
+ * sample: time, setpoint, measurement, error, p, i, d, output
+ *
+ * Slow; don't call it from a control loop.
+ *
+ * @param path
+ *                 The file to write, e.g. "/home/lvuser/pid.csv"
+ * @return Whether or not the file was written.
+ */
+public boolean writeCSV (String path)
+{
+    return this.snapshot().writeCSVNow(path);
+}
+
+/**
+ * Writes every stored sample to a binary file, oldest first. See the class
+ * description for the format. Slow; don't call it from a control loop.
+ *
+ * @param path
+ *                 The file to write, e.g. "/home/lvuser/pid.bin"
+ * @return Whether or not the file was written.
+ */
+public boolean writeBinary (String path)
+{
+    return this.snapshot().writeBinaryNow(path);
+}
+
+/**
+ * Copies the stored samples, then writes them from a low priority thread of
+ * their own, so the robot's loop isn't held up. Recording carries on while
+ * the file is written.
+ *
+ * @param path
+ *                   The file to write
+ * @param binary
+ *                   true for the binary format, false for CSV
+ * @return The thread writing the file, already started.
+ */
+public Thread writeInBackground (String path, boolean binary)
+{
+    PIDRecorder copy = this.snapshot();
+    Thread writer = new Thread(() ->
+        {
+        if (binary == true)
+            copy.writeBinaryNow(path);
+        else
+            copy.writeCSVNow(path);
+        }, "PIDRecorder " + path);
+    writer.setDaemon(true);
+    writer.setPriority(Thread.MIN_PRIORITY);
+    writer.start();
+    return writer;
+}
+
+/**
+ * @return A new recorder holding a copy of the stored samples, oldest at
+ *         index 0
+ */
+private synchronized PIDRecorder snapshot ()
+{
+    PIDRecorder copy = new PIDRecorder(Math.max(1, this.sampleCount));
+    int oldest = (this.next - this.sampleCount + this.capacity)
+            % this.capacity;
+    for (int i = 0; i < this.sampleCount; i++)
+        {
+        int index = (oldest + i) % this.capacity;
+        copy.record(this.time[index], this.setpoint[index],
+                this.measurement[index], this.error[index],
+                this.pTerm[index], this.iTerm[index], this.dTerm[index],
+                this.output[index]);
+        }
+    return copy;
+}
+
+// Only called on a snapshot, whose oldest sample is at index 0
+private boolean writeCSVNow (String path)
+{
+    try (PrintWriter writer = new PrintWriter(path))
+        {
+        writer.println("time,setpoint,measurement,error,p,i,d,output");
+        for (int i = 0; i < this.sampleCount; i++)
+            writer.println(this.time[i] + "," + this.setpoint[i] + ","
+                    + this.measurement[i] + "," + this.error[i] + ","
+                    + this.pTerm[i] + "," + this.iTerm[i] + ","
+                    + this.dTerm[i] + "," + this.output[i]);
+        }
+    catch (IOException e)
+        {
+        System.out.println("Could not write " + path + ": " + e.getMessage());
+        return false;
+        }
+
+    return true;
+}
+
+// Only called on a snapshot, whose oldest sample is at index 0
+private boolean writeBinaryNow (String path)
+{
+    try (DataOutputStream stream = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(path))))
+        {
+        stream.writeInt(MAGIC);
+        stream.writeInt(VERSION);
+        stream.writeInt(this.sampleCount);
+        for (int i = 0; i < this.sampleCount; i++)
+            {
+            stream.writeDouble(this.time[i]);
+            stream.writeDouble(this.setpoint[i]);
+            stream.writeDouble(this.measurement[i]);
+            stream.writeDouble(this.error[i]);
+            stream.writeDouble(this.pTerm[i]);
+            stream.writeDouble(this.iTerm[i]);
+            stream.writeDouble(this.dTerm[i]);
+            stream.writeDouble(this.output[i]);
+            }
+        }
+    catch (IOException e)
+        {
+        System.out.println("Could not write " + path + ": " + e.getMessage());
+        return false;
+        }
+
+    return true;
+}
+
+// ================VARIABLES================
+
+// "PIDR"
+private static final int MAGIC = 0x50494452;
+
+private static final int VERSION = 1;
+
+private final int capacity;
+
+private final double[] time; // Seconds
+
+private final double[] setpoint;
+
+private final double[] measurement;
+
+private final double[] error;
+
+private final double[] pTerm;
+
+private final double[] iTerm;
+
+private final double[] dTerm;
+
+private final double[] output;
+
+// Where the next sample goes
+private int next = 0;
+
+private int sampleCount = 0;
+
+private volatile boolean enabled = true;
+}
@@ -1,7 +1,6 @@
 package frc.Utils;
 
 import edu.wpi.first.wpilibj.SpeedController;
-import edu.wpi.first.wpilibj.Timer;
 
 public class PWMMotorCalibration
 {
@@ -30,5 +29,5 @@ public static void calibrateMotor (SpeedController motor)
 
 private static boolean hasRunVictorOnce = false;
 
-private static Timer time = new Timer();
+private static Stopwatch time = new Stopwatch();
 }
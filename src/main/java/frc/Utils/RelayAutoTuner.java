@@ -0,0 +1,341 @@
+package frc.Utils;
+
+/**
+ * Finds starting PID gains for a loop by experiment instead of by trial and
+ * error (Astrom and Hagglund's relay method).
+ *
+ * The loop's output is replaced by a relay: full push one way while the
+ * measurement is below the setpoint, full push the other way once it is
+ * above. Almost anything driven like that settles into a steady oscillation
+ * around the setpoint. Its period is the loop's ultimate period Tu, and its
+ * size gives the ultimate gain Ku, the P that would make the loop oscillate
+ * on its own:
+ *
+ * Ku = 4 * relay power / (pi * oscillation amplitude)
+ *
+ * Tuning rules turn Ku and Tu into P, I and D. They are a starting point:
+ * check them with a step (see StepResponse) before trusting them.
+ *
+ * Like StepResponse, this only does the math. Call start(), then update()
+ * with every sensor reading and send what it returns to the motors until
+ * isFinished() or isFailed(). Keeps no history, so it does not allocate.
+ *
+ * Assumes a positive output makes the measurement go up.
+ *
+ * @author Kilroy
+ */
+public class RelayAutoTuner
+{
+/**
+ * Creates the RelayAutoTuner object.
+ *
+ * @param relayPower
+ *                       How hard the relay pushes each way, 0.0 to 1.0. Big
+ *                       enough to move the mechanism clearly, small enough
+ *                       to be safe.
+ * @param hysteresis
+ *                       How far past the setpoint the measurement must go
+ *                       before the relay switches, in sensor units, so noise
+ *                       doesn't make it chatter. A little more than the
+ *                       sensor noise.
+ */
+public RelayAutoTuner (double relayPower, double hysteresis)
+{
+    this.relayPower = Math.abs(relayPower);
+    this.hysteresis = Math.abs(hysteresis);
+}
+
+/**
+ * Begins the experiment.
+ *
+ * @param setpoint
+ *                     What to oscillate around, in sensor units
+ * @param time
+ *                     The current time, in seconds
+ */
+public void start (double setpoint, double time)
+{
+    this.setpoint = setpoint;
+    this.startTime = time;
+    this.output = this.relayPower;
+    this.lastRiseTime = -1;
+    this.max = -Double.MAX_VALUE;
+    this.min = Double.MAX_VALUE;
+    this.cyclesSeen = 0;
+    this.cyclesMeasured = 0;
+    this.periodSum = 0;
+    this.amplitudeSum = 0;
+    this.finished = false;
+    this.failed = false;
+}
+
+/**
+ * Adds a sensor reading and switches the relay if needed.
+ *
+ * @param measurement
+ *                        The sensor reading
+ * @param time
+ *                        The current time, in seconds
+ * @return The output to send, plus or minus the relay power, or 0 once the
+ *         experiment is over.
+ */
+public double update (double measurement, double time)
+{
+    if (this.finished == true || this.failed == true)
+        return 0;
+
+    this.max = Math.max(this.max, measurement);
+    this.min = Math.min(this.min, measurement);
+
+    double error = this.setpoint - measurement;
+
+    if (this.output > 0 && error < -this.hysteresis)
+        this.output = -this.relayPower;
+    else
+        if (this.output < 0 && error > this.hysteresis)
+            {
+            // Switching up again ends one full cycle
+            this.output = this.relayPower;
+            if (this.lastRiseTime >= 0)
+                {
+                this.cyclesSeen++;
+                // The first cycles are still settling into the oscillation
+                if (this.cyclesSeen > this.skippedCycles)
+                    {
+                    this.periodSum += time - this.lastRiseTime;
+                    this.amplitudeSum += (this.max - this.min) / 2.0;
+                    this.cyclesMeasured++;
+                    }
+                }
+            this.lastRiseTime = time;
+            this.max = measurement;
+            this.min = measurement;
+
+            if (this.cyclesMeasured >= this.cyclesToMeasure)
+                {
+                this.finished = true;
+                this.output = 0;
+                return 0;
+                }
+            }
+
+    if (time - this.startTime > this.timeout)
+        {
+        this.failed = true;
+        this.output = 0;
+        }
+
+    return this.output;
+}
+
+/**
+ * @return Whether or not enough cycles have been measured. The results are
+ *         only meaningful once this is true.
+ */
+public boolean isFinished ()
+{
+    return this.finished;
+}
+
+/**
+ * @return Whether or not the timeout passed before enough cycles were
+ *         measured, usually because the relay power is too small to move
+ *         the mechanism or the hysteresis is too big.
+ */
+public boolean isFailed ()
+{
+    return this.failed;
+}
+
+/**
+ * @return The measured oscillation period Tu, in seconds, or 0 if nothing
+ *         was measured
+ */
+public double getUltimatePeriod ()
+{
+    return this.cyclesMeasured == 0 ? 0
+            : this.periodSum / this.cyclesMeasured;
+}
+
+/**
+ * @return Half the measured peak to peak oscillation, in sensor units, or 0
+ *         if nothing was measured
+ */
+public double getAmplitude ()
+{
+    return this.cyclesMeasured == 0 ? 0
+            : this.amplitudeSum / this.cyclesMeasured;
+}
+
+/**
+ * @return The ultimate gain Ku, in output per sensor unit, or 0 if nothing
+ *         was measured
+ */
+public double getUltimateGain ()
+{
+    double amplitude = this.getAmplitude();
+    // The hysteresis makes the oscillation look bigger than it is
+    double corrected = Math.sqrt(Math.max(0, (amplitude * amplitude)
+            - (this.hysteresis * this.hysteresis)));
+    if (corrected <= 0)
+        return 0;
+    return 4 * this.relayPower / (Math.PI * corrected);
+}
+
+/**
+ * @param rule
+ *                 Which tuning rule
+ * @return The proportional gain the rule gives for the measured loop
+ */
+public double getP (TuningRule rule)
+{
+    return rule.pRatio * this.getUltimateGain();
+}
+
+/**
+ * @param rule
+ *                 Which tuning rule
+ * @return The integral gain the rule gives for the measured loop, per second
+ */
+public double getI (TuningRule rule)
+{
+    double period = this.getUltimatePeriod();
+    if (period <= 0)
+        return 0;
+    return this.getP(rule) / (rule.integralTimeRatio * period);
+}
+
+/**
+ * @param rule
+ *                 Which tuning rule
+ * @return The derivative gain the rule gives for the measured loop, in
+ *         seconds
+ */
+public double getD (TuningRule rule)
+{
+    return this.getP(rule) * rule.derivativeTimeRatio
+            * this.getUltimatePeriod();
+}
+
+/**
+ * @param cycles
+ *                    How many oscillation cycles are averaged. 4 by default.
+ * @param skipped
+ *                    How many cycles are ignored first, while the
+ *                    oscillation settles. 1 by default.
+ */
+public void setCycles (int cycles, int skipped)
+{
+    this.cyclesToMeasure = Math.max(1, cycles);
+    this.skippedCycles = Math.max(0, skipped);
+}
+
+/**
+ * @param seconds
+ *                    How long the experiment may run before it fails. 15 by
+ *                    default.
+ */
+public void setTimeout (double seconds)
+{
+    this.timeout = seconds;
+}
+
+/**
+ * @param relayPower
+ *                       How hard the relay pushes each way. Takes effect on
+ *                       the next start().
+ */
+public void setRelayPower (double relayPower)
+{
+    this.relayPower = Math.abs(relayPower);
+}
+
+/**
+ * @param hysteresis
+ *                       How far past the setpoint the measurement must go
+ *                       before the relay switches, in sensor units
+ */
+public void setHysteresis (double hysteresis)
+{
+    this.hysteresis = Math.abs(hysteresis);
+}
+
+@Override
+public String toString ()
+{
+    return "Ku = " + this.getUltimateGain() + ", Tu = "
+            + this.getUltimatePeriod() + "s, amplitude = "
+            + this.getAmplitude();
+}
+
+/**
+ * Ways of turning the ultimate gain and period into PID gains. From most
+ * aggressive to most gentle.
+ *
+ * @author Kilroy
+ */
+public enum TuningRule
+    {
+    /** Classic Ziegler-Nichols: fast, but expect about 25% overshoot */
+    ZIEGLER_NICHOLS(.6, .5, .125),
+    /** Tyreus-Luyben: slower, with much less overshoot */
+    TYREUS_LUYBEN(1 / 2.2, 2.2, 1 / 6.3),
+    /** Ziegler-Nichols "no overshoot": gentle, for loops that can't overshoot */
+    NO_OVERSHOOT(.2, .5, 1 / 3.0);
+
+    /** P as a fraction of Ku */
+    final double pRatio;
+
+    /** Integral time as a fraction of Tu */
+    final double integralTimeRatio;
+
+    /** Derivative time as a fraction of Tu */
+    final double derivativeTimeRatio;
+
+    TuningRule (double pRatio, double integralTimeRatio,
+            double derivativeTimeRatio)
+    {
+        this.pRatio = pRatio;
+        this.integralTimeRatio = integralTimeRatio;
+        this.derivativeTimeRatio = derivativeTimeRatio;
+    }
+    }
+
+// ================VARIABLES================
+
+private double setpoint = 0;
+
+private double startTime = 0; // Seconds
+
+private double output = 0;
+
+private double lastRiseTime = -1; // Seconds
+
+// Measurement extremes in the current cycle
+private double max = -Double.MAX_VALUE;
+
+private double min = Double.MAX_VALUE;
+
+private int cyclesSeen = 0;
+
+private int cyclesMeasured = 0;
+
+private double periodSum = 0; // Seconds
+
+private double amplitudeSum = 0;
+
+private boolean finished = false;
+
+private boolean failed = false;
+
+// TUNABLES
+private double relayPower;
+
+private double hysteresis;
+
+private int cyclesToMeasure = 4;
+
+private int skippedCycles = 1;
+
+private double timeout = 15; // Seconds
+}
@@ -2,7 +2,6 @@ package frc.Utils;
 
 import edu.wpi.first.wpilibj.SpeedController;
 import frc.HardwareInterfaces.LightSensor;
-import edu.wpi.first.wpilibj.Timer;
 import frc.HardwareInterfaces.DoubleSolenoid;
 import frc.HardwareInterfaces.QuickSwitch;
 
@@ -31,7 +30,7 @@ private LightSensor photoSwitch = null;
 
 public DoubleSolenoid armSolenoid = null;
 
-private Timer outakeTimer = new Timer();
+private Stopwatch outakeTimer = new Stopwatch();
 
 public RollerIntakeMechanism (SpeedController armRollers,
         LightSensor photoSwitch, DoubleSolenoid armSolenoid)
@@ -41,6 +40,17 @@ public RollerIntakeMechanism (SpeedController armRollers,
     this.armSolenoid = armSolenoid;
 }
 
+/**
+ * Sets where the outtake timer reads the time from.
+ *
+ * @param clock
+ *                  The new time source. Clock.SYSTEM by default.
+ */
+public void setClock (Clock clock)
+{
+    this.outakeTimer.setClock(clock);
+}
+
 
 
 
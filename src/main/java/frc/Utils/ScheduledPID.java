@@ -0,0 +1,509 @@
+package frc.Utils;
+
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import edu.wpi.first.wpilibj.SendableBase;
+import edu.wpi.first.wpilibj.livewindow.LiveWindow;
+import edu.wpi.first.wpilibj.smartdashboard.SendableBuilder;
+
+/**
+ * A PIDLoop that reads its own sensor and writes its own output, stepped by a
+ * LoopScheduler while it is enabled. Does the job of a WPILib PIDSubsystem
+ * without a thread of its own: every ScheduledPID on the robot shares the
+ * scheduler's one thread, and they run in the order they were enabled.
+ *
+ * <pre>
+ * ScheduledPID armPID = new ScheduledPID(armPot::get, armMotor::set);
+ * armPID.setPID(.05, 0, .002);
+ * armPID.setSetpoint(90);
+ * armPID.enable();
+ * </pre>
+ *
+ * Everything is synchronized, so setting it up from the robot's loop while
+ * the scheduler steps it is safe.
+ *
+ * The gains are PIDLoop's, scaled by the real time between steps: I is per
+ * second and D is in seconds. A PIDController added I times the summed error
+ * and D times the change in error once per 50ms step instead, so gains tuned
+ * for one go in through setLegacyPIDF().
+ *
+ * Like a PIDController, it shows up on LiveWindow (as a "PIDController"
+ * widget) when it runs on a threaded scheduler, as on the robot. A
+ * simulation's scheduler has no thread, and nothing is sent.
+ *
+ * @author Kilroy
+ */
+public class ScheduledPID extends SendableBase
+{
+/**
+ * Creates the ScheduledPID object, on the shared LoopScheduler, running every
+ * tick.
+ *
+ * @param source
+ *                   Where the measurement comes from
+ * @param output
+ *                   Where the output goes
+ */
+public ScheduledPID (DoubleSupplier source, DoubleConsumer output)
+{
+    this(source, output, LoopScheduler.getDefault());
+}
+
+/**
+ * Creates the ScheduledPID object.
+ *
+ * @param source
+ *                      Where the measurement comes from
+ * @param output
+ *                      Where the output goes
+ * @param scheduler
+ *                      What steps the loop while it is enabled
+ */
+public ScheduledPID (DoubleSupplier source, DoubleConsumer output,
+        LoopScheduler scheduler)
+{
+    super(false);
+    this.source = source;
+    this.output = output;
+    this.scheduler = scheduler;
+    this.period = scheduler.getPeriod();
+
+    // NetworkTables is only there on the robot
+    this.setName("ScheduledPID");
+    if (scheduler.isThreaded() == true)
+        LiveWindow.add(this);
+}
+
+/**
+ * Starts stepping the loop. The first step after this only measures; the
+ * integral and derivative start on the second.
+ */
+public synchronized void enable ()
+{
+    this.lastStepTime = NEVER;
+    this.enabled = true;
+    if (this.timing != null)
+        this.timing.restart();
+    this.scheduler.add(this.stepLoop, this.period);
+}
+
+/**
+ * Stops stepping the loop and sets the output to 0.
+ */
+public void disable ()
+{
+    this.scheduler.remove(this.stepLoop);
+    synchronized (this)
+        {
+        this.enabled = false;
+        this.output.accept(0);
+        }
+}
+
+/**
+ * @param enabled
+ *                    true to enable(), false to disable()
+ */
+public void setEnabled (boolean enabled)
+{
+    if (enabled == true)
+        this.enable();
+    else
+        this.disable();
+}
+
+/**
+ * @return Whether or not the loop is being stepped
+ */
+public boolean isEnabled ()
+{
+    return this.enabled;
+}
+
+/**
+ * Runs one step: reads the source, calculates, and writes the output. Called
+ * by the scheduler.
+ */
+private synchronized void step ()
+{
+    if (this.enabled == false)
+        return;
+
+    long now = this.scheduler.getClock().nanoTime();
+    double dt = this.lastStepTime == NEVER ? 0
+            : Math.min(MAX_DT, (now - this.lastStepTime) / 1e9);
+    this.lastStepTime = now;
+
+    double measurement = this.source.getAsDouble();
+
+    if (this.feedforwardModel != null)
+        this.loop.setFeedforward(this.velocityFeedforward == true
+                ? this.feedforwardModel.calculatePercent(0,
+                        this.loop.getSetpoint(), 0)
+                : this.feedforwardModel.calculatePercent(measurement, 0, 0));
+
+    if (this.gainSchedule != null)
+        this.gainSchedule.apply(this.scheduleKey == GainSchedule.Key.ERROR
+                ? Math.abs(this.loop.getSetpoint() - measurement)
+                : this.loop.getSetpoint(), this.loop);
+
+    this.output.accept(this.loop.calculate(measurement, dt));
+
+    if (this.recorder != null)
+        this.recorder.record(now / 1e9, this.loop);
+    if (this.stepResponse != null)
+        this.stepResponse.update(measurement, now / 1e9);
+
+    if (this.timing != null)
+        {
+        this.timing.runSyntheticLoad();
+        this.timing.record(now, this.scheduler.getClock().nanoTime());
+        }
+}
+
+/**
+ * Clears the integral and the stored error.
+ */
+public synchronized void reset ()
+{
+    this.loop.reset();
+    this.lastStepTime = NEVER;
+}
+
+/**
+ * @param p
+ *              Proportional gain
+ * @param i
+ *              Integral gain, per second
+ * @param d
+ *              Derivative gain, in seconds
+ */
+public synchronized void setPID (double p, double i, double d)
+{
+    this.loop.setPID(p, i, d);
+}
+
+/**
+ * @param p
+ *              Proportional gain
+ * @param i
+ *              Integral gain, per second
+ * @param d
+ *              Derivative gain, in seconds
+ * @param f
+ *              Feed-forward gain, multiplied by the setpoint
+ */
+public synchronized void setPIDF (double p, double i, double d, double f)
+{
+    this.loop.setPID(p, i, d);
+    this.loop.setF(f);
+}
+
+/**
+ * Sets the gains in the units of a WPILib PIDController (and the
+ * PIDSubsystems this replaced), so constants tuned for one keep working: I
+ * is divided by, and D multiplied by, its 50ms period.
+ *
+ * @param p
+ *              Proportional gain
+ * @param i
+ *              Integral gain, per 50ms step
+ * @param d
+ *              Derivative gain, per 50ms step
+ * @param f
+ *              Feed-forward gain, multiplied by the setpoint
+ */
+public synchronized void setLegacyPIDF (double p, double i, double d,
+        double f)
+{
+    this.loop.setPID(p, i / LEGACY_PERIOD, d * LEGACY_PERIOD);
+    this.loop.setF(f);
+}
+
+/**
+ * @param feedforward
+ *                        A fixed output added to every step, before
+ *                        limiting. See PIDLoop.setFeedforward().
+ */
+public synchronized void setFeedforward (double feedforward)
+{
+    this.loop.setFeedforward(feedforward);
+}
+
+/**
+ * Works the feedforward out from a model on every step, instead of using a
+ * fixed one: from the measurement for a position loop (an arm's angle), or
+ * from the setpoint for a velocity loop (a flywheel's speed).
+ *
+ * @param feedforward
+ *                         The model, or null to go back to no feedforward
+ * @param velocityLoop
+ *                         true if the setpoint is a velocity, false if it is
+ *                         a position
+ */
+public synchronized void setFeedforward (Feedforward feedforward,
+        boolean velocityLoop)
+{
+    this.feedforwardModel = feedforward;
+    this.velocityFeedforward = velocityLoop;
+    if (feedforward == null)
+        this.loop.setFeedforward(0);
+}
+
+/**
+ * Looks the gains up in a table on every step, instead of using fixed ones.
+ * Gains set with setPID() are ignored while a schedule is set. The table is
+ * in setLegacyPIDF()'s units.
+ *
+ * @param schedule
+ *                     The gains, or null to go back to fixed gains (the last
+ *                     ones looked up)
+ * @param key
+ *                     What the table is looked up by
+ */
+public synchronized void setGainSchedule (GainSchedule schedule,
+        GainSchedule.Key key)
+{
+    this.gainSchedule = schedule;
+    this.scheduleKey = key;
+}
+
+/**
+ * See PIDLoop.setIntegralLimits().
+ *
+ * @param zone
+ *                              The integral is only added to within plus or
+ *                              minus this error, in sensor units. 0 for
+ *                              everywhere.
+ * @param maxIntegralOutput
+ *                              The most output the integral may add. 0 for no
+ *                              limit.
+ */
+public synchronized void setIntegralLimits (double zone,
+        double maxIntegralOutput)
+{
+    this.loop.setIntegralLimits(zone, maxIntegralOutput);
+}
+
+/**
+ * @param setpoint
+ *                     The target, in sensor units
+ */
+public synchronized void setSetpoint (double setpoint)
+{
+    if (this.stepResponse != null && setpoint != this.loop.getSetpoint())
+        this.stepResponse.start(this.loop.getMeasurement(), setpoint,
+                this.scheduler.getClock().getSeconds());
+    this.loop.setSetpoint(setpoint);
+}
+
+/**
+ * @param tolerance
+ *                      How close to the setpoint counts as "on target", plus
+ *                      or minus, in sensor units
+ */
+public synchronized void setTolerance (double tolerance)
+{
+    this.loop.setTolerance(tolerance);
+}
+
+/**
+ * @param minimum
+ *                    The lowest output allowed
+ * @param maximum
+ *                    The highest output allowed
+ */
+public synchronized void setOutputRange (double minimum, double maximum)
+{
+    this.loop.setOutputRange(minimum, maximum);
+}
+
+/**
+ * Sets how often the loop runs, rounded to whole scheduler ticks. Takes
+ * effect the next time it is enabled.
+ *
+ * @param seconds
+ *                    Loop period, in seconds. The scheduler's period by
+ *                    default.
+ */
+public synchronized void setPeriod (double seconds)
+{
+    this.period = seconds;
+}
+
+/**
+ * Records every step from now on, until set to null.
+ *
+ * @param recorder
+ *                     Where the steps are recorded, or null to stop
+ *                     recording. Null by default.
+ */
+public void setRecorder (PIDRecorder recorder)
+{
+    this.recorder = recorder;
+}
+
+/**
+ * Measures every step the setpoint makes from now on, such as to compare
+ * gains, or this loop with a CascadedPositionController.
+ *
+ * @param response
+ *                     Started on every new setpoint and updated with every
+ *                     measurement, or null to stop
+ */
+public synchronized void setStepResponse (StepResponse response)
+{
+    this.stepResponse = response;
+}
+
+/**
+ * Times every step from now on: how regularly it runs and how long reading
+ * the sensor, calculating and writing the output take.
+ *
+ * @param timing
+ *                   What the steps are timed by, made with this loop's
+ *                   period, or null to stop timing. Null by default.
+ */
+public synchronized void setTimingMonitor (LoopTimingMonitor timing)
+{
+    this.timing = timing;
+}
+
+/**
+ * @return Whether or not the last step's error was within the tolerance.
+ *         False until the loop has run once since it was reset.
+ */
+public synchronized boolean onTarget ()
+{
+    return this.loop.onTarget();
+}
+
+/**
+ * @return The setpoint minus the last measurement
+ */
+public synchronized double getError ()
+{
+    return this.loop.getError();
+}
+
+/**
+ * @return The last output written
+ */
+public synchronized double getOutput ()
+{
+    return this.loop.getOutput();
+}
+
+/**
+ * @return The current setpoint
+ */
+public synchronized double getSetpoint ()
+{
+    return this.loop.getSetpoint();
+}
+
+/**
+ * @return The PIDLoop doing the math. Only touch it while holding this
+ *         object's lock.
+ */
+public PIDLoop getPIDLoop ()
+{
+    return this.loop;
+}
+
+/**
+ * Sends the gains, setpoint and enabled state to the dashboard the way a
+ * PIDController does, so the same widget can tune it. The gains are this
+ * loop's own (I per second, D in seconds).
+ */
+@Override
+public void initSendable (SendableBuilder builder)
+{
+    builder.setSmartDashboardType("PIDController");
+    builder.addDoubleProperty("p", () -> this.getGain(0),
+            (value) -> this.setGain(0, value));
+    builder.addDoubleProperty("i", () -> this.getGain(1),
+            (value) -> this.setGain(1, value));
+    builder.addDoubleProperty("d", () -> this.getGain(2),
+            (value) -> this.setGain(2, value));
+    builder.addDoubleProperty("f", () -> this.getGain(3),
+            (value) -> this.setGain(3, value));
+    builder.addDoubleProperty("setpoint", this::getSetpoint,
+            this::setSetpoint);
+    builder.addBooleanProperty("enabled", this::isEnabled,
+            this::setEnabled);
+}
+
+/**
+ * @return P, I, D or F (0 to 3), for the dashboard
+ */
+private synchronized double getGain (int which)
+{
+    switch (which)
+        {
+        case 0:
+            return this.loop.getP();
+        case 1:
+            return this.loop.getI();
+        case 2:
+            return this.loop.getD();
+        default:
+            return this.loop.getF();
+        }
+}
+
+/**
+ * Changes one of P, I, D or F (0 to 3), from the dashboard.
+ */
+private synchronized void setGain (int which, double value)
+{
+    double p = which == 0 ? value : this.loop.getP();
+    double i = which == 1 ? value : this.loop.getI();
+    double d = which == 2 ? value : this.loop.getD();
+    this.loop.setPID(p, i, d);
+    if (which == 3)
+        this.loop.setF(value);
+}
+
+// ================VARIABLES================
+
+private static final long NEVER = Long.MIN_VALUE;
+
+// Steps further apart than this are treated as this far apart
+private static final double MAX_DT = .1; // Seconds
+
+// WPILib's PIDController.kDefaultPeriod, which PIDSubsystems ran at
+public static final double LEGACY_PERIOD = .05; // Seconds
+
+private final PIDLoop loop = new PIDLoop(0, 0, 0);
+
+private final DoubleSupplier source;
+
+private final DoubleConsumer output;
+
+private final LoopScheduler scheduler;
+
+// The same object every time, so the scheduler can find it to remove it
+private final Runnable stepLoop = this::step;
+
+private volatile boolean enabled = false;
+
+private volatile PIDRecorder recorder = null;
+
+private LoopTimingMonitor timing = null;
+
+private StepResponse stepResponse = null;
+
+private GainSchedule gainSchedule = null;
+
+private Feedforward feedforwardModel = null;
+
+private boolean velocityFeedforward = false;
+
+private GainSchedule.Key scheduleKey = GainSchedule.Key.ERROR;
+
+private long lastStepTime = NEVER; // Nanoseconds
+
+// TUNABLES
+private double period; // Seconds
+}
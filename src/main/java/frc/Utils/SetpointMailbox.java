@@ -0,0 +1,186 @@
+package frc.Utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands a small group of numbers (setpoints) from one background thread to
+ * the robot's control loop, without either side ever waiting on a lock or
+ * creating garbage.
+ *
+ * It is a sequence lock: the writer bumps a counter to an odd number, writes
+ * the values, and bumps it back to even. The reader copies the values, and
+ * only keeps them if the counter was the same even number before and after
+ * the copy. A read that overlaps a write is simply retried, a few times at
+ * most, so a slow or stuck writer can never hold up the control loop.
+ *
+ * Only ONE thread may write and only ONE thread may read.
+ *
+ * Writing:
+ *
+ * <pre>
+ * mailbox.beginWrite();
+ * mailbox.set(0, left);
+ * mailbox.set(1, right);
+ * mailbox.endWrite();
+ * </pre>
+ *
+ * Reading, once per loop, into an array made once:
+ *
+ * <pre>
+ * if (mailbox.poll(values) == true)
+ *     // values[] holds a new, consistent set
+ * </pre>
+ *
+ * @author Kilroy
+ */
+public class SetpointMailbox
+{
+/**
+ * Creates the SetpointMailbox object.
+ *
+ * @param slots
+ *                  How many values are passed each time
+ */
+public SetpointMailbox (int slots)
+{
+    this.slots = slots;
+    // Slot 0 is the sequence counter, the values follow
+    this.data = new AtomicLongArray(slots + 1);
+    this.readBuffer = new double[slots];
+}
+
+/**
+ * Starts writing a new set of values. Must be followed by endWrite().
+ */
+public void beginWrite ()
+{
+    this.data.set(SEQUENCE, this.data.get(SEQUENCE) + 1);
+}
+
+/**
+ * Writes one value. Only call between beginWrite() and endWrite().
+ *
+ * @param slot
+ *                  Which value, from 0 to slots - 1
+ * @param value
+ *                  The value
+ */
+public void set (int slot, double value)
+{
+    this.data.set(slot + 1, Double.doubleToRawLongBits(value));
+}
+
+/**
+ * Finishes writing, making the new values visible to the reader all at once.
+ */
+public void endWrite ()
+{
+    this.data.set(SEQUENCE, this.data.get(SEQUENCE) + 1);
+}
+
+/**
+ * Writes a whole set of values at once.
+ *
+ * @param values
+ *                   One value per slot. Extra values are ignored.
+ */
+public void write (double[] values)
+{
+    this.beginWrite();
+    for (int i = 0; i < this.slots && i < values.length; i++)
+        this.set(i, values[i]);
+    this.endWrite();
+}
+
+/**
+ * Copies the newest values, if there are any the reader hasn't seen yet.
+ *
+ * @param out
+ *                An array of at least as many values as there are slots.
+ *                Only changed if this returns true.
+ * @return Whether or not a new, consistent set of values was copied. False if
+ *         nothing new was written, or the writer was busy on every try.
+ */
+public boolean poll (double[] out)
+{
+    for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++)
+        {
+        long before = this.data.get(SEQUENCE);
+
+        if (before == this.lastReadSequence)
+            return false;
+
+        // Odd means a write is in progress
+        if ((before & 1) != 0)
+            continue;
+
+        for (int i = 0; i < this.slots; i++)
+            this.readBuffer[i] = Double
+                    .longBitsToDouble(this.data.get(i + 1));
+
+        if (this.data.get(SEQUENCE) == before)
+            {
+            System.arraycopy(this.readBuffer, 0, out, 0, this.slots);
+            this.lastReadSequence = before;
+            this.successfulReads++;
+            return true;
+            }
+        }
+
+    this.failedReads++;
+    return false;
+}
+
+/**
+ * @return How many sets of values have been written
+ */
+public long getWriteCount ()
+{
+    return this.data.get(SEQUENCE) / 2;
+}
+
+/**
+ * @return How many sets of values poll() has returned
+ */
+public long getSuccessfulReads ()
+{
+    return this.successfulReads;
+}
+
+/**
+ * @return How many times poll() gave up because the writer was busy on every
+ *         try
+ */
+public long getFailedReads ()
+{
+    return this.failedReads;
+}
+
+/**
+ * @return How many values are passed each time
+ */
+public int getSlots ()
+{
+    return this.slots;
+}
+
+// ================VARIABLES================
+
+private static final int SEQUENCE = 0;
+
+private static final int MAX_READ_ATTEMPTS = 4;
+
+private final int slots;
+
+private final AtomicLongArray data;
+
+// Reader's state. The values are copied here first, and only handed out
+// once they are known to be consistent.
+private final double[] readBuffer;
+
+private long lastReadSequence = 0;
+
+private long successfulReads = 0;
+
+private long failedReads = 0;
+}
@@ -0,0 +1,118 @@
+package frc.Utils;
+
+/**
+ * The voltage a DC motor (or a whole drivetrain side) needs to move at a given
+ * velocity and acceleration:
+ *
+ * V = kS * sign(velocity) + kV * velocity + kA * acceleration
+ *
+ * kS is the voltage needed to overcome static friction, kV the voltage per
+ * unit of velocity and kA the voltage per unit of acceleration. The units of
+ * velocity are whatever the constants were measured in (inches per second for
+ * DriveCharacterization).
+ *
+ * @author Kilroy
+ */
+public class SimpleMotorFeedforward implements Feedforward
+{
+/**
+ * Creates the SimpleMotorFeedforward object.
+ *
+ * @param kS
+ *               Static friction voltage, in volts
+ * @param kV
+ *               Volts per unit of velocity
+ * @param kA
+ *               Volts per unit of acceleration
+ */
+public SimpleMotorFeedforward (double kS, double kV, double kA)
+{
+    this.kS = kS;
+    this.kV = kV;
+    this.kA = kA;
+}
+
+/**
+ * Calculates the voltage needed to hold a velocity and acceleration.
+ *
+ * @param velocity
+ *                         The desired velocity
+ * @param acceleration
+ *                         The desired acceleration
+ * @return The feedforward, in volts
+ */
+public double calculate (double velocity, double acceleration)
+{
+    return (this.kS * Math.signum(velocity)) + (this.kV * velocity)
+            + (this.kA * acceleration);
+}
+
+/**
+ * Calculates the voltage needed to hold a constant velocity.
+ *
+ * @param velocity
+ *                     The desired velocity
+ * @return The feedforward, in volts
+ */
+public double calculate (double velocity)
+{
+    return this.calculate(velocity, 0);
+}
+
+/**
+ * Calculates the voltage needed to hold a velocity and acceleration. Where
+ * the motor is doesn't matter to it.
+ *
+ * @param position
+ *                         Ignored
+ * @param velocity
+ *                         The desired velocity
+ * @param acceleration
+ *                         The desired acceleration
+ * @return The feedforward, in volts
+ */
+@Override
+public double calculate (double position, double velocity,
+        double acceleration)
+{
+    return this.calculate(velocity, acceleration);
+}
+
+/**
+ * @return Static friction voltage, in volts
+ */
+public double getKS ()
+{
+    return this.kS;
+}
+
+/**
+ * @return Volts per unit of velocity
+ */
+public double getKV ()
+{
+    return this.kV;
+}
+
+/**
+ * @return Volts per unit of acceleration
+ */
+public double getKA ()
+{
+    return this.kA;
+}
+
+@Override
+public String toString ()
+{
+    return "kS = " + this.kS + ", kV = " + this.kV + ", kA = " + this.kA;
+}
+
+// ================VARIABLES================
+
+private final double kS;
+
+private final double kV;
+
+private final double kA;
+}
@@ -16,14 +16,13 @@
 package frc.Utils;
 
 import edu.wpi.first.wpilibj.Encoder;
-import edu.wpi.first.wpilibj.Timer;
 
 // -------------------------------------------------------
 /**
  * This class determines the speed that Kilroy is traveling at.
  * To use this class, declare an instance of this object while
  * passing in the encoder that you want to be measured and
- * the timer that will be used to measure time, and then
+ * the clock that will be used to measure time, and then
  * call periodically in teleopPeriodic() the method watchJoystick()
  * passing in the value of the joystick that you want to use to
  * denote when we are calculating the speed. When the joystick is
@@ -32,9 +31,8 @@ import edu.wpi.first.wpilibj.Timer;
  * 
  * Translation by Ashley Espeland
  * declare the speed tester in hardware and only use one at a time. In the
- * declaration you pass in the encoder you are using and the timer
- * that you are using for the speed test. Make sure the timer you
- * are using is actually a thing...
+ * declaration you pass in the encoder you are using and the clock
+ * that you are using for the speed test (usually Clock.SYSTEM).
  * To actually use the speed tester code, use the watch joystick method
  * in teleop by printing it out. You must pass in two joysticks, but you can
  * pass in the
@@ -98,7 +96,7 @@ private Encoder encoderToMeasure = null;
  * @written Jun 18, 2011
  *          -------------------------------------------------------
  */
-private Timer speedTesterTimer = null;
+private Stopwatch speedTesterTimer = null;
 
 /**
  * constructor
@@ -107,17 +105,18 @@ private Timer speedTesterTimer = null;
  * @param encoderToMeasure
  *            - Encoder that will be used to measure
  *            distance
- * @param speedTesterTimer
- *            - timer that will be used to measure time
+ * @param clock
+ *            - clock that will be used to measure time
+ *            (usually Clock.SYSTEM)
  * @author Bob Brown
  * @written Jun 18, 2011
  *          -------------------------------------------------------
  */
 public SpeedTester (final Encoder encoderToMeasure,
-        final Timer speedTesterTimer)
+        final Clock clock)
 {
     this.encoderToMeasure = encoderToMeasure;
-    this.speedTesterTimer = speedTesterTimer;
+    this.speedTesterTimer = new Stopwatch(clock);
 } // end SpeedTester
 
 // -------------------------------------------------------
@@ -0,0 +1,229 @@
+package frc.Utils;
+
+/**
+ * Measures how well a closed loop moved to a new setpoint: how long it took
+ * to settle, how far it went past the target and how long it took to get
+ * most of the way there. Used to compare control routines and tune gains by
+ * numbers instead of by eye.
+ *
+ * Call start() when the setpoint changes, then update() with every sensor
+ * reading. Keeps no history, so it does not allocate.
+ *
+ * @author Kilroy
+ */
+public class StepResponse
+{
+/**
+ * Creates the StepResponse object.
+ *
+ * @param tolerance
+ *                      How close to the target counts as settled, in sensor
+ *                      units.
+ */
+public StepResponse (double tolerance)
+{
+    this.tolerance = Math.abs(tolerance);
+}
+
+/**
+ * Begins measuring a new step.
+ *
+ * @param initial
+ *                    The sensor reading when the step began
+ * @param target
+ *                    The new setpoint
+ * @param time
+ *                    The current time, in seconds
+ */
+public void start (double initial, double target, double time)
+{
+    this.initial = initial;
+    this.target = target;
+    this.startTime = time;
+    this.direction = target >= initial ? 1 : -1;
+    this.peak = initial;
+    this.riseTime = -1;
+    this.tenPercentTime = -1;
+    this.settleTime = -1;
+    this.inToleranceSince = -1;
+    this.lastTime = time;
+}
+
+/**
+ * Makes this the same as another StepResponse, such as to keep the best of
+ * several steps.
+ *
+ * @param other
+ *                  The StepResponse to copy
+ */
+public void copy (StepResponse other)
+{
+    this.tolerance = other.tolerance;
+    this.initial = other.initial;
+    this.target = other.target;
+    this.direction = other.direction;
+    this.startTime = other.startTime;
+    this.lastTime = other.lastTime;
+    this.peak = other.peak;
+    this.tenPercentTime = other.tenPercentTime;
+    this.riseTime = other.riseTime;
+    this.settleTime = other.settleTime;
+    this.inToleranceSince = other.inToleranceSince;
+}
+
+/**
+ * Adds a sensor reading.
+ *
+ * @param value
+ *                  The sensor reading
+ * @param time
+ *                  The current time, in seconds
+ */
+public void update (double value, double time)
+{
+    double elapsed = time - this.startTime;
+    double stepSize = Math.abs(this.target - this.initial);
+    // How far towards the target we are, in the direction of the step
+    double progress = (value - this.initial) * this.direction;
+
+    if ((value - this.peak) * this.direction > 0)
+        this.peak = value;
+
+    if (this.tenPercentTime < 0 && progress >= .1 * stepSize)
+        this.tenPercentTime = elapsed;
+    if (this.riseTime < 0 && progress >= .9 * stepSize)
+        this.riseTime = elapsed - Math.max(0, this.tenPercentTime);
+
+    if (Math.abs(value - this.target) <= this.tolerance)
+        {
+        if (this.inToleranceSince < 0)
+            this.inToleranceSince = elapsed;
+        this.settleTime = this.inToleranceSince;
+        }
+    else
+        {
+        this.inToleranceSince = -1;
+        this.settleTime = -1;
+        }
+
+    this.lastTime = time;
+}
+
+/**
+ * @param holdTime
+ *                     How long the reading must have stayed in tolerance, in
+ *                     seconds
+ * @return Whether or not the reading has been within tolerance of the target
+ *         for at least the hold time
+ */
+public boolean isSettled (double holdTime)
+{
+    return this.inToleranceSince >= 0 && (this.lastTime - this.startTime)
+            - this.inToleranceSince >= holdTime;
+}
+
+/**
+ * @return Seconds from start() until the reading entered the tolerance for
+ *         the last time, or -1 if it is not in tolerance.
+ */
+public double getSettleTime ()
+{
+    return this.settleTime;
+}
+
+/**
+ * @return How far the reading went past the target, in sensor units (0 if it
+ *         never passed it).
+ */
+public double getOvershoot ()
+{
+    return Math.max(0, (this.peak - this.target) * this.direction);
+}
+
+/**
+ * @return The overshoot as a percentage of the step size.
+ */
+public double getOvershootPercent ()
+{
+    double stepSize = Math.abs(this.target - this.initial);
+    if (stepSize == 0)
+        return 0;
+    return 100 * this.getOvershoot() / stepSize;
+}
+
+/**
+ * @return Seconds to go from 10% to 90% of the step, or -1 if it has not
+ *         reached 90% yet.
+ */
+public double getRiseTime ()
+{
+    return this.riseTime;
+}
+
+/**
+ * Sums up the step in one number, to compare gains with: the rise time, plus
+ * a penalty for every percent of overshoot. Lower is better.
+ *
+ * @param secondsPerPercent
+ *                              How much one percent of overshoot counts
+ *                              against the gains, in seconds of rise time
+ * @return The score, in seconds, or Double.MAX_VALUE if the reading never
+ *         reached 90% of the step.
+ */
+public double getScore (double secondsPerPercent)
+{
+    if (this.riseTime < 0)
+        return Double.MAX_VALUE;
+    return this.riseTime + (secondsPerPercent * this.getOvershootPercent());
+}
+
+/**
+ * @return The reading furthest in the direction of the step so far.
+ */
+public double getPeak ()
+{
+    return this.peak;
+}
+
+/**
+ * @param tolerance
+ *                      How close to the target counts as settled, in sensor
+ *                      units.
+ */
+public void setTolerance (double tolerance)
+{
+    this.tolerance = Math.abs(tolerance);
+}
+
+@Override
+public String toString ()
+{
+    return "settle = " + this.settleTime + "s, overshoot = "
+            + this.getOvershoot() + " (" + this.getOvershootPercent()
+            + "%), rise = " + this.riseTime + "s";
+}
+
+// ================VARIABLES================
+
+private double tolerance;
+
+private double initial = 0;
+
+private double target = 0;
+
+private double direction = 1;
+
+private double startTime = 0; // Seconds
+
+private double lastTime = 0; // Seconds
+
+private double peak = 0;
+
+private double tenPercentTime = -1; // Seconds after start
+
+private double riseTime = -1; // Seconds
+
+private double settleTime = -1; // Seconds after start
+
+private double inToleranceSince = -1; // Seconds after start
+}
@@ -0,0 +1,100 @@
+package frc.Utils;
+
+/**
+ * A start / stop timer like WPILib's Timer, but read from a Clock so it can be
+ * driven by a VirtualClock in simulation.
+ *
+ * @author Kilroy
+ */
+public class Stopwatch
+{
+/**
+ * Creates a Stopwatch using the system clock.
+ */
+public Stopwatch ()
+{
+    this(Clock.SYSTEM);
+}
+
+/**
+ * Creates a Stopwatch.
+ *
+ * @param clock
+ *                  Where the time is read from
+ */
+public Stopwatch (Clock clock)
+{
+    this.clock = clock;
+}
+
+/**
+ * Starts counting, adding on to whatever time has already been counted. Does
+ * nothing if already running.
+ */
+public void start ()
+{
+    if (this.running == false)
+        {
+        this.startTime = this.clock.nanoTime();
+        this.running = true;
+        }
+}
+
+/**
+ * Stops counting, keeping the time counted so far.
+ */
+public void stop ()
+{
+    this.accumulated = this.getNanos();
+    this.running = false;
+}
+
+/**
+ * Sets the counted time back to zero. Does not start or stop the stopwatch.
+ */
+public void reset ()
+{
+    this.accumulated = 0;
+    this.startTime = this.clock.nanoTime();
+}
+
+/**
+ * @return The time counted, in seconds.
+ */
+public double get ()
+{
+    return this.getNanos() / 1e9;
+}
+
+/**
+ * @return The time counted, in nanoseconds.
+ */
+public long getNanos ()
+{
+    if (this.running == true)
+        return this.accumulated + (this.clock.nanoTime() - this.startTime);
+    return this.accumulated;
+}
+
+/**
+ * Changes where the time is read from. Resets the stopwatch.
+ *
+ * @param clock
+ *                  The new clock
+ */
+public void setClock (Clock clock)
+{
+    this.clock = clock;
+    this.reset();
+}
+
+// ================VARIABLES================
+
+private Clock clock;
+
+private boolean running = false;
+
+private long startTime = 0; // Nanoseconds
+
+private long accumulated = 0; // Nanoseconds
+}
@@ -0,0 +1,45 @@
+package frc.Utils.action;
+
+/**
+ * A single step of an autonomous routine, such as driving a distance or
+ * turning a number of degrees.
+ *
+ * Actions are created once (usually while the routine is being built in
+ * init()) and re-used every time the routine runs, so nothing is allocated
+ * while the robot is moving. Whoever runs an action (the ActionRunner, or a
+ * parent action such as SequentialAction) will:
+ *
+ * 1. call start() once, right before the first update(),
+ * 2. call update() once per loop until it returns true,
+ * 3. call end() once, either after update() returned true or when the action
+ * was cut short by a race or a timeout.
+ *
+ * start() must put the action back in the same state as a freshly created
+ * one, so that the same object can be run again later.
+ *
+ * @author Kilroy
+ */
+public interface Action
+{
+/**
+ * Resets the action so that it can be run from the beginning. Called once
+ * before the first update().
+ */
+void start ();
+
+/**
+ * Runs one loop of the action.
+ *
+ * @return Whether or not the action has finished.
+ */
+boolean update ();
+
+/**
+ * Cleans up after the action.
+ *
+ * @param interrupted
+ *                        True if the action was stopped before update()
+ *                        returned true (timeouts, races, cancel()).
+ */
+void end (boolean interrupted);
+}
@@ -0,0 +1,92 @@
+package frc.Utils.action;
+
+/**
+ * Runs one action (usually a whole autonomous routine built out of
+ * SequentialAction / ParallelAction / RaceAction / TimeoutAction) by calling
+ * update() once per loop. Call update() from a periodic function such as
+ * Autonomous.periodic().
+ *
+ * The runner itself keeps no per-loop state beyond a reference to the current
+ * action, so switching routines or re-running one does not allocate.
+ *
+ * @author Kilroy
+ */
+public class ActionRunner
+{
+/**
+ * Starts running an action. If another action is already running, it is
+ * ended as interrupted first.
+ *
+ * @param action
+ *                   The action to run. null is the same as calling cancel().
+ */
+public void run (Action action)
+{
+    this.cancel();
+
+    if (action == null)
+        return;
+
+    this.currentAction = action;
+    this.finished = false;
+    this.currentAction.start();
+}
+
+/**
+ * Runs one loop of the current action. Does nothing if no action is running.
+ *
+ * @return Whether or not the current action has finished (also true if no
+ *         action is running).
+ */
+public boolean update ()
+{
+    if (this.currentAction == null)
+        return true;
+
+    if (this.currentAction.update() == true)
+        {
+        this.currentAction.end(false);
+        this.currentAction = null;
+        this.finished = true;
+        return true;
+        }
+
+    return false;
+}
+
+/**
+ * Stops the current action, if there is one, ending it as interrupted.
+ */
+public void cancel ()
+{
+    if (this.currentAction != null)
+        {
+        this.currentAction.end(true);
+        this.currentAction = null;
+        }
+    this.finished = false;
+}
+
+/**
+ * @return Whether or not an action is currently running.
+ */
+public boolean isRunning ()
+{
+    return this.currentAction != null;
+}
+
+/**
+ * @return Whether or not the last action that was run finished on its own
+ *         (rather than being cancelled).
+ */
+public boolean isFinished ()
+{
+    return this.finished;
+}
+
+// ================VARIABLES================
+
+private Action currentAction = null;
+
+private boolean finished = false;
+}
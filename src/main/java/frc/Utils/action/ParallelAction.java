@@ -0,0 +1,77 @@
+package frc.Utils.action;
+
+/**
+ * Runs several actions in the same loop, and finishes once every one of them
+ * has finished. Actions that finish early are ended right away and are not
+ * updated again.
+ *
+ * @author Kilroy
+ */
+public class ParallelAction implements Action
+{
+/**
+ * Creates the ParallelAction object.
+ *
+ * @param actions
+ *                    The actions to run at the same time.
+ */
+public ParallelAction (Action... actions)
+{
+    this.actions = actions;
+    this.finished = new boolean[actions.length];
+}
+
+@Override
+public void start ()
+{
+    for (int i = 0; i < this.actions.length; i++)
+        {
+        this.finished[i] = false;
+        this.actions[i].start();
+        }
+}
+
+@Override
+public boolean update ()
+{
+    boolean allFinished = true;
+
+    for (int i = 0; i < this.actions.length; i++)
+        {
+        if (this.finished[i] == true)
+            continue;
+
+        if (this.actions[i].update() == true)
+            {
+            this.finished[i] = true;
+            this.actions[i].end(false);
+            }
+        else
+            {
+            allFinished = false;
+            }
+        }
+
+    return allFinished;
+}
+
+@Override
+public void end (boolean interrupted)
+{
+    if (interrupted == false)
+        return;
+
+    for (int i = 0; i < this.actions.length; i++)
+        if (this.finished[i] == false)
+            {
+            this.finished[i] = true;
+            this.actions[i].end(true);
+            }
+}
+
+// ================VARIABLES================
+
+private final Action[] actions;
+
+private final boolean[] finished;
+}
@@ -0,0 +1,75 @@
+package frc.Utils.action;
+
+/**
+ * Runs several actions in the same loop, and finishes as soon as any one of
+ * them finishes. All of the others are then ended as interrupted.
+ *
+ * @author Kilroy
+ */
+public class RaceAction implements Action
+{
+/**
+ * Creates the RaceAction object.
+ *
+ * @param actions
+ *                    The actions that will race each other.
+ */
+public RaceAction (Action... actions)
+{
+    this.actions = actions;
+}
+
+@Override
+public void start ()
+{
+    this.winner = -1;
+    for (Action action : this.actions)
+        action.start();
+}
+
+@Override
+public boolean update ()
+{
+    if (this.winner >= 0)
+        return true;
+
+    for (int i = 0; i < this.actions.length; i++)
+        if (this.actions[i].update() == true)
+            {
+            this.winner = i;
+            break;
+            }
+
+    if (this.winner < 0)
+        return false;
+
+    // Tell everyone else they lost.
+    for (int i = 0; i < this.actions.length; i++)
+        this.actions[i].end(i != this.winner);
+
+    return true;
+}
+
+@Override
+public void end (boolean interrupted)
+{
+    if (interrupted == true && this.winner < 0)
+        for (Action action : this.actions)
+            action.end(true);
+}
+
+/**
+ * @return The index of the action that finished first, or -1 if the race is
+ *         still going (or was cancelled).
+ */
+public int getWinner ()
+{
+    return this.winner;
+}
+
+// ================VARIABLES================
+
+private final Action[] actions;
+
+private int winner = -1;
+}
@@ -0,0 +1,74 @@
+package frc.Utils.action;
+
+/**
+ * Runs a list of actions one after another. The next action is started in the
+ * same loop the previous one finishes, and runs for the first time on the
+ * following loop.
+ *
+ * @author Kilroy
+ */
+public class SequentialAction implements Action
+{
+/**
+ * Creates the SequentialAction object.
+ *
+ * @param actions
+ *                    The actions to run, in order.
+ */
+public SequentialAction (Action... actions)
+{
+    this.actions = actions;
+}
+
+@Override
+public void start ()
+{
+    this.currentAction = 0;
+    if (this.actions.length > 0)
+        this.actions[0].start();
+}
+
+@Override
+public boolean update ()
+{
+    if (this.currentAction >= this.actions.length)
+        return true;
+
+    if (this.actions[this.currentAction].update() == true)
+        {
+        this.actions[this.currentAction].end(false);
+        this.currentAction++;
+
+        if (this.currentAction >= this.actions.length)
+            return true;
+
+        this.actions[this.currentAction].start();
+        }
+
+    return false;
+}
+
+@Override
+public void end (boolean interrupted)
+{
+    // Only the action that was running at the time needs to be told it
+    // was cut short; the rest never started.
+    if (interrupted == true && this.currentAction < this.actions.length)
+        this.actions[this.currentAction].end(true);
+}
+
+/**
+ * @return The index of the action that is currently running, or the number
+ *         of actions if all of them have finished.
+ */
+public int getCurrentIndex ()
+{
+    return this.currentAction;
+}
+
+// ================VARIABLES================
+
+private final Action[] actions;
+
+private int currentAction = 0;
+}
@@ -0,0 +1,120 @@
+package frc.Utils.action;
+
+import frc.Utils.Clock;
+
+/**
+ * Runs an action, but gives up on it (and ends it as interrupted) if it has
+ * not finished within a set number of seconds. Useful for making sure a
+ * distance-based drive does not run forever if the robot gets stuck.
+ *
+ * @author Kilroy
+ */
+public class TimeoutAction implements Action
+{
+/**
+ * Creates the TimeoutAction object.
+ *
+ * @param action
+ *                    The action to run
+ * @param seconds
+ *                    How long the action is allowed to run before it is cut
+ *                    short.
+ */
+public TimeoutAction (Action action, double seconds)
+{
+    this(action, seconds, Clock.SYSTEM);
+}
+
+/**
+ * Creates the TimeoutAction object, timed with a given clock.
+ *
+ * @param action
+ *                    The action to run
+ * @param seconds
+ *                    How long the action is allowed to run before it is cut
+ *                    short.
+ * @param clock
+ *                    Where the time is read from
+ */
+public TimeoutAction (Action action, double seconds, Clock clock)
+{
+    this.action = action;
+    this.timeoutSeconds = seconds;
+    this.clock = clock;
+}
+
+@Override
+public void start ()
+{
+    this.timedOut = false;
+    this.actionFinished = false;
+    this.startTime = this.clock.nanoTime();
+    this.action.start();
+}
+
+@Override
+public boolean update ()
+{
+    if (this.actionFinished == true || this.timedOut == true)
+        return true;
+
+    if (this.action.update() == true)
+        {
+        this.actionFinished = true;
+        this.action.end(false);
+        return true;
+        }
+
+    if (this.clock.nanoTime() - this.startTime >= this.timeoutSeconds
+            * 1e9)
+        {
+        this.timedOut = true;
+        this.action.end(true);
+        return true;
+        }
+
+    return false;
+}
+
+@Override
+public void end (boolean interrupted)
+{
+    if (interrupted == true && this.actionFinished == false
+            && this.timedOut == false)
+        this.action.end(true);
+}
+
+/**
+ * @return Whether or not the last run was cut short by the timeout.
+ */
+public boolean hasTimedOut ()
+{
+    return this.timedOut;
+}
+
+/**
+ * Sets how long the action is allowed to run. Takes effect the next time the
+ * action is started.
+ *
+ * @param seconds
+ *                    The timeout, in seconds.
+ */
+public void setTimeout (double seconds)
+{
+    this.timeoutSeconds = seconds;
+}
+
+// ================VARIABLES================
+
+private final Action action;
+
+private double timeoutSeconds;
+
+private final Clock clock;
+
+private long startTime = 0; // Nanoseconds
+
+private boolean timedOut = false;
+
+private boolean actionFinished = false;
+}
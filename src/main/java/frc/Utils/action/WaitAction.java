@@ -0,0 +1,75 @@
+package frc.Utils.action;
+
+import frc.Utils.Clock;
+
+/**
+ * Does nothing for a set number of seconds. Used for delays between steps, or
+ * combined with a ParallelAction to make something run for at least a given
+ * time.
+ *
+ * @author Kilroy
+ */
+public class WaitAction implements Action
+{
+/**
+ * Creates the WaitAction object.
+ *
+ * @param seconds
+ *                    How long to wait.
+ */
+public WaitAction (double seconds)
+{
+    this(seconds, Clock.SYSTEM);
+}
+
+/**
+ * Creates the WaitAction object, timed with a given clock.
+ *
+ * @param seconds
+ *                    How long to wait.
+ * @param clock
+ *                    Where the time is read from
+ */
+public WaitAction (double seconds, Clock clock)
+{
+    this.waitSeconds = seconds;
+    this.clock = clock;
+}
+
+@Override
+public void start ()
+{
+    this.startTime = this.clock.nanoTime();
+}
+
+@Override
+public boolean update ()
+{
+    return this.clock.nanoTime() - this.startTime >= this.waitSeconds
+            * 1e9;
+}
+
+@Override
+public void end (boolean interrupted)
+{
+}
+
+/**
+ * Sets how long to wait. Takes effect the next time the action is started.
+ *
+ * @param seconds
+ *                    The delay, in seconds.
+ */
+public void setWaitTime (double seconds)
+{
+    this.waitSeconds = seconds;
+}
+
+// ================VARIABLES================
+
+private double waitSeconds;
+
+private final Clock clock;
+
+private long startTime = 0; // Nanoseconds
+}
@@ -7,6 +7,12 @@ import frc.HardwareInterfaces.Transmission.TankTransmission;
 import frc.HardwareInterfaces.Transmission.TransmissionBase;
 import frc.HardwareInterfaces.Transmission.TransmissionBase.MotorPosition;
 import frc.HardwareInterfaces.Transmission.TransmissionBase.TransmissionType;
+import frc.Utils.Clock;
+import frc.Utils.MotionProfile;
+import frc.Utils.PIDLoop;
+import frc.Utils.SetpointMailbox;
+import frc.Utils.SimpleMotorFeedforward;
+import frc.Utils.StepResponse;
 import edu.wpi.first.wpilibj.GyroBase;
 import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj.interfaces.Gyro;
@@ -132,29 +138,30 @@ public boolean accelerateProportionaly (double leftSpeed,
     // Avoid a divideByZero error.
     if (time <= 0)
         {
-        this.transmission.driveRaw(leftSpeed, rightSpeed);
+        this.driveWithTraction(leftSpeed, rightSpeed);
         return true;
         }
 
+    long now = this.clock.nanoTime();
+
     // If we timeout, then reset all the accelerate
-    if (System.currentTimeMillis() - lastAccelerateTime > INIT_TIMEOUT)
+    if (this.hasInitTimedOut(lastAccelerateTime, now) == true)
         {
-        lastAccelerateTime = System.currentTimeMillis();
+        lastAccelerateTime = now;
         accelMotorPower = accelStartingSpeed;
         }
 
     // main acceleration maths
-    double deltaSeconds = (System.currentTimeMillis()
-            - lastAccelerateTime) / 1000.0;
+    double deltaSeconds = (now - lastAccelerateTime) / 1e9;
     accelMotorPower += deltaSeconds / time;
 
     // Drive the robot based on the times and speeds
-    this.transmission.driveRaw(
+    this.driveWithTraction(
             leftSpeed * inRange(accelMotorPower, -1, 1),
             rightSpeed * inRange(accelMotorPower, -1, 1));
 
     // Reset the "timer"
-    lastAccelerateTime = System.currentTimeMillis();
+    lastAccelerateTime = now;
 
     if (accelMotorPower > 1.0)
         {
@@ -191,19 +198,20 @@ public boolean accelerateTo (double leftSpeed, double rightSpeed,
     // If the acceleration is 0, then just simply drive at speed. (disabled)
     if (percentPerSecond == 0)
         {
-        transmission.driveRaw(leftSpeed, rightSpeed);
+        this.driveWithTraction(leftSpeed, rightSpeed);
         return true;
         }
 
+    long now = this.clock.nanoTime();
+
     // If we timeout, then reset all the accelerate values
-    if (System.currentTimeMillis() - lastAccelerateTime > INIT_TIMEOUT)
+    if (this.hasInitTimedOut(lastAccelerateTime, now) == true)
         {
-        timeBetweenAccelerations = System.currentTimeMillis();
+        timeBetweenAccelerations = now;
         }
 
     double leftOut, rightOut;
-    long timeDelta = (System.currentTimeMillis()
-            - timeBetweenAccelerations) / 1000;
+    double timeDelta = (now - timeBetweenAccelerations) / 1e9;
 
     // Using algebra, we know that if acceleration is distance per second
     // squared,
@@ -222,9 +230,9 @@ public boolean accelerateTo (double leftSpeed, double rightSpeed,
             -Math.abs(rightSpeed),
             Math.abs(rightSpeed));
 
-    transmission.driveRaw(leftOut, rightOut);
+    this.driveWithTraction(leftOut, rightOut);
 
-    lastAccelerateTime = System.currentTimeMillis();
+    lastAccelerateTime = now;
 
     if (leftOut == leftSpeed && rightOut == rightSpeed)
         return true;
@@ -271,6 +279,7 @@ public boolean arc (double speed, double radius, double arcLength,
     if (getEncoderDistanceAverage(MotorPosition.ALL) > arcLength)
         {
         getTransmission().stop();
+        arcInit = true;
         return true;
         }
     // The circumference of the smaller circle
@@ -568,6 +577,73 @@ public boolean brake (BrakeType type)
     return false;
 } // end brake()
 
+/**
+ * Stops the robot by driving the velocity of each side to zero, in a separate
+ * loop that runs much faster than the periodic functions. Finishes as soon as
+ * both sides are measured slower than the stop threshold, instead of after a
+ * set number of iterations like brake().
+ *
+ * The stopping distance and time of the last brake can be read from
+ * getLastBrakeStoppingDistance() and getLastBrakeStoppingTime(). The loop itself can
+ * be tuned through getVelocityBrake().
+ *
+ * @param type
+ *                 What kind of brake is being used, after driving, or after
+ *                 turning. Decides the most power the brake may use.
+ *
+ * @return Whether or not the robot has stopped moving.
+ */
+public boolean brakeClosedLoop (BrakeType type)
+{
+    VelocityBrake brake = this.getVelocityBrake();
+
+    if (brake.isRunning() == false)
+        {
+        // The brake finished (or timed out) since we last checked
+        if (this.velocityBrakeStarted == true)
+            {
+            this.velocityBrakeStarted = false;
+            return true;
+            }
+
+        brake.start(type == BrakeType.AFTER_TURN ? this.brakeTurnPower
+                : this.brakeDrivePower);
+        this.velocityBrakeStarted = true;
+        }
+
+    return false;
+}
+
+/**
+ * Gets the velocity brake used by brakeClosedLoop(), creating it if needed.
+ * Use this to tune its gains, stop threshold and loop rate.
+ *
+ * @return The VelocityBrake object
+ */
+public VelocityBrake getVelocityBrake ()
+{
+    if (this.velocityBrake == null)
+        this.velocityBrake = new VelocityBrake(this);
+    return this.velocityBrake;
+}
+
+/**
+ * @return How far the robot traveled during the last brakeClosedLoop(), in
+ *         inches.
+ */
+public double getLastBrakeStoppingDistance ()
+{
+    return this.getVelocityBrake().getLastStoppingDistance();
+}
+
+/**
+ * @return How long the last brakeClosedLoop() took, in seconds.
+ */
+public double getLastBrakeStoppingTime ()
+{
+    return this.getVelocityBrake().getLastStoppingTime();
+}
+
 /**
  * Stops the robot suddenly, to prevent drifting during autonomous functions,
  * and increase the precision.
@@ -603,7 +679,8 @@ public boolean brakeOld (BrakeType type)
             power = brakeTurnPower;
             }
 
-    if (System.currentTimeMillis() - previousBrakeTime > INIT_TIMEOUT)
+    if (this.hasInitTimedOut(previousBrakeTime,
+            this.clock.nanoTime()) == true)
         {
         brakePrevEncoderVals = new int[4];
 
@@ -712,7 +789,7 @@ public boolean brakeOld (BrakeType type)
                 .set(-brakeMotorDirection[3] * power);
         }
     // END SET MOTORS
-    this.previousBrakeTime = System.currentTimeMillis();
+    this.previousBrakeTime = this.clock.nanoTime();
     return false;
 } // end brake()
 
@@ -931,6 +1008,69 @@ public void drive (double leftVal, double rightVal)
             }
 }
 
+/**
+ * Drives the transmission raw, but with the power cut back while the slip
+ * detector (if there is one) says the wheels are slipping. Used by the
+ * encoder-based driving functions, which would otherwise overrun.
+ *
+ * @param leftVal
+ *                     The left value of the robot, -1.0 to 1.0
+ * @param rightVal
+ *                     The right value of the robot, -1.0 to 1.0
+ */
+private void driveWithTraction (double leftVal, double rightVal)
+{
+    if (this.slipDetector == null)
+        {
+        this.transmission.driveRaw(leftVal, rightVal);
+        return;
+        }
+
+    this.slipDetector.update();
+    double scale = this.slipDetector.getPowerScale();
+    this.transmission.driveRaw(leftVal * scale, rightVal * scale);
+}
+
+/**
+ * Drives the robot from the setpoints a background thread (vision, a path
+ * follower...) put in getSetpointMailbox(). Call once at the start of every
+ * loop, in place of the other drive functions.
+ *
+ * The producer writes, from its own thread:
+ *
+ * <pre>
+ * SetpointMailbox mailbox = drive.getSetpointMailbox();
+ * mailbox.beginWrite();
+ * mailbox.set(Drive.MAILBOX_LEFT, left);
+ * mailbox.set(Drive.MAILBOX_RIGHT, right);
+ * mailbox.set(Drive.MAILBOX_TIME, drive.getClock().getSeconds());
+ * mailbox.endWrite();
+ * </pre>
+ *
+ * If the newest setpoint is older than the mailbox timeout (the producer
+ * stopped or crashed), the robot is stopped instead.
+ *
+ * @return Whether or not the robot is being driven by a fresh setpoint.
+ */
+public boolean driveFromMailbox ()
+{
+    // The values stay in mailboxValues until a newer, consistent set
+    // arrives
+    this.setpointMailbox.poll(this.mailboxValues);
+
+    if (this.clock.getSeconds()
+            - this.mailboxValues[MAILBOX_TIME] > this.mailboxTimeout)
+        {
+        this.transmission.stop();
+        return false;
+        }
+
+    this.transmission.driveRaw(
+            inRange(this.mailboxValues[MAILBOX_LEFT], -1, 1),
+            inRange(this.mailboxValues[MAILBOX_RIGHT], -1, 1));
+    return true;
+}
+
 /**
  * Drives the robot with a omni-directional drive, with a single 3 axis
  * joystick.
@@ -1027,7 +1167,7 @@ public boolean driveInches (int distance, double speed)
         }
 
     // sets transmission speed to the input
-    this.transmission.driveRaw(speed, speed);
+    this.driveWithTraction(speed, speed);
     return false;
 }
 
@@ -1049,8 +1189,8 @@ public void driveStraight (double speed, double acceleration,
         boolean isUsingGyro)
 {
     // "Reset" the encoders (will not mess with driveInches or such)
-    if (System.currentTimeMillis()
-            - driveStraightLastTime > INIT_TIMEOUT)
+    if (this.hasInitTimedOut(driveStraightLastTime,
+            this.clock.nanoTime()) == true)
         {
         if (isUsingGyro == true)
             this.gyro.reset();
@@ -1095,7 +1235,7 @@ public void driveStraight (double speed, double acceleration,
     this.accelerateProportionaly(leftSpeed, rightSpeed, acceleration);
     // Reset the "timer" to know when to "reset" the encoders for this
     // method.
-    driveStraightLastTime = System.currentTimeMillis();
+    driveStraightLastTime = this.clock.nanoTime();
 }
 
 /**
@@ -1142,6 +1282,44 @@ public boolean driveStraightInches (double distance, double speed,
     return false;
 }
 
+/**
+ * Lets the transmission pick the gear from the encoder speed and the driver's
+ * throttle. Call once per loop before driving; see
+ * TransmissionBase.autoShift() for how the gear is chosen and how to set it
+ * up.
+ *
+ * @param throttle
+ *                     What the driver is asking for, -1.0 to 1.0. For tank
+ *                     drive, the larger of the two joysticks.
+ * @return Whether or not the gear was changed.
+ */
+public boolean autoShift (double throttle)
+{
+    return this.autoShift(throttle, 0);
+}
+
+/**
+ * Lets the transmission pick the gear from the encoder speed, the driver's
+ * throttle and the current draw. Call once per loop before driving; see
+ * TransmissionBase.autoShift() for how the gear is chosen and how to set it
+ * up.
+ *
+ * @param throttle
+ *                     What the driver is asking for, -1.0 to 1.0. For tank
+ *                     drive, the larger of the two joysticks.
+ * @param current
+ *                     Total current of the drive motors, in amps (from the
+ *                     PDP, for instance)
+ * @return Whether or not the gear was changed.
+ */
+public boolean autoShift (double throttle, double current)
+{
+    double velocity = (Math.abs(this.getEncoderRate(MotorPosition.LEFT))
+            + Math.abs(this.getEncoderRate(MotorPosition.RIGHT))) / 2.0;
+
+    return this.transmission.autoShift(velocity, throttle, current);
+}
+
 /**
  * Expected distance that it will take to stop during brake()
  *
@@ -1379,6 +1557,34 @@ public int getMaxBrakeIterations ()
     return this.maxBrakeIterations;
 }
 
+/**
+ * @return The clock all of Drive's timing is read from
+ */
+public Clock getClock ()
+{
+    return this.clock;
+}
+
+/**
+ * @return The feedforward of the left side of the drivetrain, in volts per
+ *         inch per second. All zeros until set by setFeedforward() or
+ *         DriveCharacterization.fit().
+ */
+public SimpleMotorFeedforward getLeftFeedforward ()
+{
+    return this.leftFeedforward;
+}
+
+/**
+ * @return The feedforward of the right side of the drivetrain, in volts per
+ *         inch per second. All zeros until set by setFeedforward() or
+ *         DriveCharacterization.fit().
+ */
+public SimpleMotorFeedforward getRightFeedforward ()
+{
+    return this.rightFeedforward;
+}
+
 /**
  * Gets the transmission object stored. ONLY use it for transmission.stop() and
  * transmission.driveRaw()
@@ -1390,9 +1596,46 @@ public TransmissionBase getTransmission ()
     return this.transmission;
 }
 
+/**
+ * @return The mailbox a background thread can write setpoints into, to be
+ *         read by driveFromMailbox(). See MAILBOX_LEFT, MAILBOX_RIGHT and
+ *         MAILBOX_TIME for the slots.
+ */
+public SetpointMailbox getSetpointMailbox ()
+{
+    return this.setpointMailbox;
+}
+
+/**
+ * @return The slip detector, or null if there is none
+ */
+public SlipDetector getSlipDetector ()
+{
+    return this.slipDetector;
+}
+
+/**
+ * @return The settle time, overshoot and rise time of the last (or current)
+ *         turnDegreesProfiled(), in degrees and seconds.
+ */
+public StepResponse getTurnStepResponse ()
+{
+    return this.turnStepResponse;
+}
+
+/**
+ * @return The distance from the wheel to the turning center point, in inches.
+ */
+public double getTurningRadius ()
+{
+    return turningRadius;
+}
+
 /**
  * Tests whether any encoder reads larger than the input length. Useful for
- * knowing when to stop the robot.
+ * knowing when to stop the robot. If there is a slip detector, the distance
+ * the wheels slipped since the last resetEncoders() is taken off, and the
+ * distance the robot was pushed past what the wheels turned is added.
  *
  * @param length
  *                   The desired length
@@ -1400,8 +1643,12 @@ public TransmissionBase getTransmission ()
  */
 public boolean isAnyEncoderLargerThan (double length)
 {
+    double slipped = 0;
+    if (this.slipDetector != null)
+        slipped = this.slipDetector.getSlipDistance();
+
     for (KilroyEncoder enc : encoders)
-        if (Math.abs(enc.getDistance()) > length)
+        if (Math.abs(enc.getDistance() - slipped) > length)
             return true;
     return false;
 }
@@ -1504,6 +1751,22 @@ public boolean pivotTurnDegrees (int degrees, double power,
     return false;
 }
 
+/**
+ * Whether or not enough time has passed since a function was last called that
+ * it should initialize again.
+ *
+ * @param lastTime
+ *                     When the function was last called, from the clock, or
+ *                     NEVER
+ * @param now
+ *                     The current time, from the clock
+ * @return True if the function has not been called for INIT_TIMEOUT
+ */
+protected boolean hasInitTimedOut (long lastTime, long now)
+{
+    return lastTime == NEVER || now - lastTime > INIT_TIMEOUT;
+}
+
 /**
  * Resets the Drive class's functions, in case they were cut short.
  *
@@ -1512,6 +1775,7 @@ public boolean pivotTurnDegrees (int degrees, double power,
 public void reset ()
 {
     // sets to true
+    this.arcInit = true;
     this.driveInchesInit = true;
     this.driveStraightInchesInit = true;
     this.turnDegreesInit = true;
@@ -1519,10 +1783,15 @@ public void reset ()
     this.pivotTurnDegreesInit = true;
     this.strafeStraightInchesInit = true;
     this.turnDegrees2StageInit = true;
+    this.turnDegreesProfiledInit = true;
 
     this.currentBrakeIteration = 0;
-    this.lastAccelerateTime = 0;
-    this.previousBrakeTime = 0;
+    this.lastAccelerateTime = NEVER;
+    this.previousBrakeTime = NEVER;
+
+    if (this.velocityBrake != null)
+        this.velocityBrake.cancel();
+    this.velocityBrakeStarted = false;
 }
 
 // ================ DRIVE METHODS ================
@@ -1549,6 +1818,9 @@ public void resetEncoders ()
         // System.out.print("reset encoders is commented out temporarly");
 
         }
+
+    if (this.slipDetector != null)
+        this.slipDetector.resetSlipDistance();
 }
 
 /**
@@ -1727,6 +1999,37 @@ public void setEncoderDistancePerPulse (double value,
         }
 }
 
+/**
+ * Sets where Drive reads the time from: acceleration, drive straight and brake
+ * timing, and the velocity brake. Clock.SYSTEM by default; use a VirtualClock
+ * to run in simulation.
+ *
+ * @param clock
+ *                  The new time source
+ */
+public void setClock (Clock clock)
+{
+    this.clock = clock;
+    this.transmission.setClock(clock);
+    this.reset();
+}
+
+/**
+ * Stores the feedforward constants of each side of the drivetrain, usually
+ * found with DriveCharacterization.
+ *
+ * @param left
+ *                  Feedforward of the left side, in inches per second
+ * @param right
+ *                  Feedforward of the right side, in inches per second
+ */
+public void setFeedforward (SimpleMotorFeedforward left,
+        SimpleMotorFeedforward right)
+{
+    this.leftFeedforward = left;
+    this.rightFeedforward = right;
+}
+
 /**
  * Sets the current gear of the robot, 0 being the lowest max being the highest.
  *
@@ -1787,6 +2090,20 @@ public int setMaxBrakeIterations (int newMaxBrakeIterations)
     return this.getMaxBrakeIterations();
 }
 
+/**
+ * Gives the drive a slip detector. While it says the wheels are slipping, the
+ * encoder-based driving functions (driveInches, driveStraight,
+ * driveStraightInches, accelerateTo) cut their power, and slipped distance is
+ * not counted towards distances driven.
+ *
+ * @param detector
+ *                     The slip detector, or null to stop detecting slip
+ */
+public void setSlipDetector (SlipDetector detector)
+{
+    this.slipDetector = detector;
+}
+
 /**
  * Sets the scalar for the strafeStraightInches function.
  *
@@ -1814,6 +2131,64 @@ public void setTurnDegreesFudgeFactor (double degrees)
     this.turnDegreesFudgeFactor = degrees;
 }
 
+/**
+ * Sets how old the newest mailbox setpoint may be before driveFromMailbox()
+ * stops the robot.
+ *
+ * @param seconds
+ *                    The timeout, in seconds. .1 by default.
+ */
+public void setMailboxTimeout (double seconds)
+{
+    this.mailboxTimeout = seconds;
+}
+
+/**
+ * Sets the limits of the motion profile used by turnDegreesProfiled(). Use
+ * what the robot can actually do: a turn rate and acceleration it can't reach
+ * will make it lag the profile and overshoot.
+ *
+ * @param maxDegreesPerSecond
+ *                                       Fastest turn rate
+ * @param maxDegreesPerSecondSquared
+ *                                       Fastest turn acceleration
+ */
+public void setTurnProfileConstraints (double maxDegreesPerSecond,
+        double maxDegreesPerSecondSquared)
+{
+    this.turnProfile.setConstraints(maxDegreesPerSecond,
+            maxDegreesPerSecondSquared);
+}
+
+/**
+ * Sets the gains of the heading loop used by turnDegreesProfiled().
+ *
+ * @param p
+ *              Percent per degree of error
+ * @param i
+ *              Percent per degree-second of error
+ * @param d
+ *              Percent per degree per second of error
+ */
+public void setTurnProfilePID (double p, double i, double d)
+{
+    this.turnPID.setPID(p, i, d);
+}
+
+/**
+ * Sets how close turnDegreesProfiled() must get to finish.
+ *
+ * @param degrees
+ *                           Plus or minus, in degrees
+ * @param holdSeconds
+ *                           How long the heading must stay in tolerance
+ */
+public void setTurnProfileTolerance (double degrees, double holdSeconds)
+{
+    this.turnStepResponse.setTolerance(degrees);
+    this.turnProfileHoldTime = holdSeconds;
+}
+
 /**
  * Sets the distance from the wheel to the turning center point.
  *
@@ -2126,6 +2501,90 @@ public boolean turnDegrees (int degrees, double speed,
     return false;
 }
 
+/**
+ * Turns the robot in place following a trapezoidal motion profile: it speeds
+ * up at the maximum turn acceleration, turns at the maximum turn rate, and
+ * slows down to reach the target heading at the same time the profile does.
+ * The motors are driven by the drivetrain feedforward for the profile's turn
+ * rate (see DriveCharacterization), plus a PID loop on the heading error, so
+ * no fudge factor or slow second stage is needed.
+ *
+ * Finishes once the profile is over and the heading has stayed within the
+ * tolerance for a short time (or the settle timeout runs out). The settle
+ * time and overshoot of each turn are kept in getTurnStepResponse().
+ *
+ * @param degrees
+ *                      How far to turn. Positive for clockwise.
+ * @param usingGyro
+ *                      Whether the gyro (true) or encoders (false) measure the
+ *                      heading
+ * @return Whether or not the robot has finished turning.
+ */
+public boolean turnDegreesProfiled (int degrees, boolean usingGyro)
+{
+    long now = this.clock.nanoTime();
+
+    if (turnDegreesProfiledInit == true)
+        {
+        if (usingGyro == true)
+            this.gyro.reset();
+        else
+            this.resetEncoders();
+
+        this.turnProfile.setGoal(degrees);
+        this.turnPID.reset();
+        this.turnStepResponse.start(0, degrees, 0);
+        this.turnProfileStartTime = now;
+        this.turnProfileLastTime = now;
+        turnDegreesProfiledInit = false;
+        }
+
+    double time = (now - this.turnProfileStartTime) / 1e9;
+    double dt = (now - this.turnProfileLastTime) / 1e9;
+    this.turnProfileLastTime = now;
+
+    double angle;
+    if (usingGyro == true)
+        angle = this.gyro.getAngle();
+    else
+        angle = Math.toDegrees((this.getEncoderDistanceAverage(
+                MotorPosition.LEFT)
+                - this.getEncoderDistanceAverage(MotorPosition.RIGHT))
+                / (2 * turningRadius));
+
+    this.turnStepResponse.update(angle, time);
+
+    if (this.turnProfile.isFinished(time) == true
+            && (this.turnStepResponse
+                    .isSettled(this.turnProfileHoldTime) == true
+                    || time > this.turnProfile.getTotalTime()
+                            + this.turnProfileSettleTimeout))
+        {
+        this.transmission.stop();
+        turnDegreesProfiledInit = true;
+        return true;
+        }
+
+    this.turnProfile.sample(time);
+    this.turnPID.setSetpoint(this.turnProfile.getPosition());
+    double correction = this.turnPID.calculate(angle, dt);
+
+    // The profile's turn rate, as the speed of each wheel around the
+    // turning radius
+    double wheelVelocity = Math.toRadians(this.turnProfile.getVelocity())
+            * turningRadius;
+    double wheelAcceleration = Math
+            .toRadians(this.turnProfile.getAcceleration()) * turningRadius;
+
+    double left = (this.leftFeedforward.calculate(wheelVelocity,
+            wheelAcceleration) / NOMINAL_VOLTAGE) + correction;
+    double right = (this.rightFeedforward.calculate(-wheelVelocity,
+            -wheelAcceleration) / NOMINAL_VOLTAGE) - correction;
+
+    this.transmission.driveRaw(inRange(left, -1, 1), inRange(right, -1, 1));
+    return false;
+}
+
 // The transmission objects. Only one is used based on the transmission
 // object that is input.
 
@@ -2198,6 +2657,8 @@ private boolean turnDegrees2StageInit = true;
 
 private boolean turnDegreesInit = true;
 
+private boolean turnDegreesProfiledInit = true;
+
 private boolean strafeStraightInchesInit = true;
 
 // private boolean turnDegreesGyroInit = true;
@@ -2211,13 +2672,61 @@ private int brakeLoopThroughs = 0;
 
 private int maxBrakeIterations = 5;
 
-private long driveStraightLastTime = 0;
+private long driveStraightLastTime = NEVER; // Nanoseconds
+
+private long lastAccelerateTime = NEVER; // Nanoseconds
+
+private long timeBetweenAccelerations = 0; // Nanoseconds
+
+private long previousBrakeTime = NEVER; // Nanoseconds
+
+private long turnProfileStartTime = 0; // Nanoseconds
+
+private long turnProfileLastTime = 0; // Nanoseconds
+
+private Clock clock = Clock.SYSTEM;
+
+private VelocityBrake velocityBrake = null;
+
+private boolean velocityBrakeStarted = false;
 
-private long lastAccelerateTime = 0; // Milliseconds
+private SlipDetector slipDetector = null;
 
-private long timeBetweenAccelerations = 0; // Milliseconds
+private SimpleMotorFeedforward leftFeedforward = new SimpleMotorFeedforward(
+        0, 0, 0);
 
-private long previousBrakeTime = 0; // milliseconds
+private SimpleMotorFeedforward rightFeedforward = new SimpleMotorFeedforward(
+        0, 0, 0);
+
+private final MotionProfile turnProfile = new MotionProfile(270, 720);
+
+private final PIDLoop turnPID = new PIDLoop(.02, 0, .001);
+
+private final StepResponse turnStepResponse = new StepResponse(1.5);
+
+private double turnProfileHoldTime = .1; // Seconds
+
+private double turnProfileSettleTimeout = 1.0; // Seconds
+
+// The voltage the feedforward constants are scaled against
+private static final double NOMINAL_VOLTAGE = 12.0;
+
+/** Mailbox slot: left side power, -1.0 to 1.0 */
+public static final int MAILBOX_LEFT = 0;
+
+/** Mailbox slot: right side power, -1.0 to 1.0 */
+public static final int MAILBOX_RIGHT = 1;
+
+/** Mailbox slot: when the setpoint was made, in seconds from getClock() */
+public static final int MAILBOX_TIME = 2;
+
+private final SetpointMailbox setpointMailbox = new SetpointMailbox(3);
+
+// Starts out stale, so the robot doesn't move until a setpoint arrives
+private final double[] mailboxValues =
+    {0, 0, Double.NEGATIVE_INFINITY};
+
+private double mailboxTimeout = .1; // Seconds
 
 // TUNABLES
 private double accelMotorPower = 0;// Power sent to each motor
@@ -2269,7 +2778,11 @@ private double turnDegreesTriggerStage = 40;// Degrees
 // Nov 4 changed from 16 to 17
 private static double turningRadius = 16.75;
 
-protected static final int INIT_TIMEOUT = 300;// Milliseconds until the
-                                              // initialization should
-                                              // reset.
+protected static final long INIT_TIMEOUT = 300_000_000L;// Nanoseconds
+                                                        // until the
+                                                        // initialization
+                                                        // should reset.
+
+// Stored in a "last time" variable to force the next call to initialize
+protected static final long NEVER = Long.MIN_VALUE;
 }
@@ -0,0 +1,415 @@
+package frc.Utils.drive;
+
+import frc.Utils.action.Action;
+import frc.Utils.drive.Drive.BrakeType;
+
+/**
+ * Wraps the Drive class's autonomous routines as Actions, so they can be put
+ * together with SequentialAction, ParallelAction, RaceAction and
+ * TimeoutAction instead of a hand-written state machine.
+ *
+ * Every action resets the Drive object when it starts, so a routine that was
+ * cut short last time (by a timeout, for instance) always begins from its
+ * initialization step. If an action is interrupted, the drive motors are
+ * stopped.
+ *
+ * Build the actions once, in init, and re-use them:
+ *
+ * <pre>
+ * Action routine = new SequentialAction(
+ *         new DriveActions.DriveStraightInches(drive, 48, .5, .6, true),
+ *         new DriveActions.Brake(drive, BrakeType.AFTER_DRIVE),
+ *         new TimeoutAction(
+ *                 new DriveActions.TurnDegrees(drive, 90, .4, .3, true), 2));
+ * </pre>
+ *
+ * @author Kilroy
+ */
+public class DriveActions
+{
+/**
+ * The common start / end behavior of every drive action.
+ *
+ * @author Kilroy
+ */
+abstract static class DriveAction implements Action
+{
+/**
+ * @param drive
+ *                  The drive object whose routine will be run.
+ */
+DriveAction (Drive drive)
+{
+    this.drive = drive;
+}
+
+@Override
+public void start ()
+{
+    this.drive.reset();
+}
+
+@Override
+public void end (boolean interrupted)
+{
+    if (interrupted == true)
+        {
+        this.drive.stop();
+        // Clear the routine's initialization so that it starts over the
+        // next time it is run.
+        this.drive.reset();
+        }
+}
+
+protected final Drive drive;
+}
+
+/**
+ * Runs {@link Drive#driveInches(int, double)}.
+ */
+public static class DriveInches extends DriveAction
+{
+/**
+ * @param drive
+ *                     The drive object
+ * @param distance
+ *                     How far to travel, in inches (always positive)
+ * @param speed
+ *                     How fast to travel. Negative for backwards.
+ */
+public DriveInches (Drive drive, int distance, double speed)
+{
+    super(drive);
+    this.distance = distance;
+    this.speed = speed;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.driveInches(this.distance, this.speed);
+}
+
+private final int distance;
+
+private final double speed;
+}
+
+/**
+ * Runs {@link Drive#driveStraightInches(double, double, double, boolean)}.
+ */
+public static class DriveStraightInches extends DriveAction
+{
+/**
+ * @param drive
+ *                         The drive object
+ * @param distance
+ *                         How far to travel, in inches
+ * @param speed
+ *                         How fast to travel
+ * @param acceleration
+ *                         Acceleration time, in seconds
+ * @param usingGyro
+ *                         Whether the gyro (true) or encoders (false) correct
+ *                         the heading
+ */
+public DriveStraightInches (Drive drive, double distance, double speed,
+        double acceleration, boolean usingGyro)
+{
+    super(drive);
+    this.distance = distance;
+    this.speed = speed;
+    this.acceleration = acceleration;
+    this.usingGyro = usingGyro;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.driveStraightInches(this.distance, this.speed,
+            this.acceleration, this.usingGyro);
+}
+
+private final double distance;
+
+private final double speed;
+
+private final double acceleration;
+
+private final boolean usingGyro;
+}
+
+/**
+ * Runs {@link Drive#turnDegrees(int, double, double, boolean)}.
+ */
+public static class TurnDegrees extends DriveAction
+{
+/**
+ * @param drive
+ *                         The drive object
+ * @param degrees
+ *                         How far to turn. Positive for clockwise.
+ * @param speed
+ *                         How fast to turn (0.0 to 1.0)
+ * @param acceleration
+ *                         Acceleration time, in seconds
+ * @param usingGyro
+ *                         Whether the gyro (true) or encoders (false) are used
+ */
+public TurnDegrees (Drive drive, int degrees, double speed,
+        double acceleration, boolean usingGyro)
+{
+    super(drive);
+    this.degrees = degrees;
+    this.speed = speed;
+    this.acceleration = acceleration;
+    this.usingGyro = usingGyro;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.turnDegrees(this.degrees, this.speed,
+            this.acceleration, this.usingGyro);
+}
+
+private final int degrees;
+
+private final double speed;
+
+private final double acceleration;
+
+private final boolean usingGyro;
+}
+
+/**
+ * Runs {@link Drive#turnDegreesProfiled(int, boolean)}.
+ */
+public static class TurnDegreesProfiled extends DriveAction
+{
+/**
+ * @param drive
+ *                      The drive object
+ * @param degrees
+ *                      How far to turn. Positive for clockwise.
+ * @param usingGyro
+ *                      Whether the gyro (true) or encoders (false) are used
+ */
+public TurnDegreesProfiled (Drive drive, int degrees, boolean usingGyro)
+{
+    super(drive);
+    this.degrees = degrees;
+    this.usingGyro = usingGyro;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.turnDegreesProfiled(this.degrees, this.usingGyro);
+}
+
+private final int degrees;
+
+private final boolean usingGyro;
+}
+
+/**
+ * Runs {@link Drive#pivotTurnDegrees(int, double, double, boolean)}.
+ */
+public static class PivotTurnDegrees extends DriveAction
+{
+/**
+ * @param drive
+ *                             The drive object
+ * @param degrees
+ *                             How far to turn. Positive for clockwise.
+ * @param power
+ *                             How fast to turn (0.0 to 1.0)
+ * @param accelerationTime
+ *                             Acceleration time, in seconds
+ * @param usingGyro
+ *                             Whether the gyro (true) or encoders (false) are
+ *                             used
+ */
+public PivotTurnDegrees (Drive drive, int degrees, double power,
+        double accelerationTime, boolean usingGyro)
+{
+    super(drive);
+    this.degrees = degrees;
+    this.power = power;
+    this.accelerationTime = accelerationTime;
+    this.usingGyro = usingGyro;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.pivotTurnDegrees(this.degrees, this.power,
+            this.accelerationTime, this.usingGyro);
+}
+
+private final int degrees;
+
+private final double power;
+
+private final double accelerationTime;
+
+private final boolean usingGyro;
+}
+
+/**
+ * Runs {@link Drive#arc(double, double, double, double)}.
+ */
+public static class Arc extends DriveAction
+{
+/**
+ * @param drive
+ *                             The drive object
+ * @param speed
+ *                             How fast to travel. Negative for backwards.
+ * @param radius
+ *                             Radius of the arc, in inches. Positive for a
+ *                             right turn.
+ * @param arcLength
+ *                             How far to travel along the arc, in inches
+ * @param accelerationTime
+ *                             Acceleration time, in seconds
+ */
+public Arc (Drive drive, double speed, double radius, double arcLength,
+        double accelerationTime)
+{
+    super(drive);
+    this.speed = speed;
+    this.radius = radius;
+    this.arcLength = arcLength;
+    this.accelerationTime = accelerationTime;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.arc(this.speed, this.radius, this.arcLength,
+            this.accelerationTime);
+}
+
+private final double speed;
+
+private final double radius;
+
+private final double arcLength;
+
+private final double accelerationTime;
+}
+
+/**
+ * Runs {@link Drive#strafeStraightInches(int, double, int)}.
+ */
+public static class StrafeStraightInches extends DriveAction
+{
+/**
+ * @param drive
+ *                             The drive object
+ * @param inches
+ *                             How far to travel
+ * @param speed
+ *                             How fast to travel (0.0 to 1.0)
+ * @param directionDegrees
+ *                             Which way to travel. 0 is forwards, 90 is right.
+ */
+public StrafeStraightInches (Drive drive, int inches, double speed,
+        int directionDegrees)
+{
+    super(drive);
+    this.inches = inches;
+    this.speed = speed;
+    this.directionDegrees = directionDegrees;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.strafeStraightInches(this.inches, this.speed,
+            this.directionDegrees);
+}
+
+private final int inches;
+
+private final double speed;
+
+private final int directionDegrees;
+}
+
+/**
+ * Runs {@link Drive#brake(BrakeType)}.
+ */
+public static class Brake extends DriveAction
+{
+/**
+ * @param drive
+ *                      The drive object
+ * @param type
+ *                      Whether we are braking after driving or after turning
+ */
+public Brake (Drive drive, BrakeType type)
+{
+    super(drive);
+    this.type = type;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.brake(this.type);
+}
+
+private final BrakeType type;
+}
+
+/**
+ * Runs {@link Drive#brakeClosedLoop(BrakeType)}.
+ */
+public static class BrakeClosedLoop extends DriveAction
+{
+/**
+ * @param drive
+ *                 The drive object
+ * @param type
+ *                 Whether we are braking after driving or after turning
+ */
+public BrakeClosedLoop (Drive drive, BrakeType type)
+{
+    super(drive);
+    this.type = type;
+}
+
+@Override
+public boolean update ()
+{
+    return this.drive.brakeClosedLoop(this.type);
+}
+
+private final BrakeType type;
+}
+
+/**
+ * Stops the drive motors and finishes right away.
+ */
+public static class Stop extends DriveAction
+{
+/**
+ * @param drive
+ *                  The drive object
+ */
+public Stop (Drive drive)
+{
+    super(drive);
+}
+
+@Override
+public boolean update ()
+{
+    this.drive.stop();
+    return true;
+}
+}
+}
@@ -0,0 +1,447 @@
+package frc.Utils.drive;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import frc.HardwareInterfaces.Transmission.TransmissionBase.MotorPosition;
+import frc.Utils.SimpleMotorFeedforward;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Measures the feedforward constants (kS, kV and kA) of each side of the
+ * drivetrain, so that profiles and velocity loops can command the voltage the
+ * robot actually needs instead of relying on large feedback gains.
+ *
+ * Two kinds of tests are run, forwards and backwards:
+ *
+ * Quasi-static: the voltage ramps up slowly, so acceleration is close to zero
+ * and voltage vs. velocity gives kS and kV.
+ *
+ * Step: a fixed voltage is applied all at once, so the robot accelerates hard
+ * and kA can be found.
+ *
+ * Every loop of every test is logged into arrays that are created once, in the
+ * constructor. When the tests are done, fit() finds the constants for each
+ * side with a least squares fit of
+ *
+ * V = kS * sign(v) + kV * v + kA * a
+ *
+ * and stores them in the Drive object. The samples can also be written to a
+ * CSV file with writeCSV() to be fit offline.
+ *
+ * Usage (in Test or Teleop, with plenty of room in front of AND behind the
+ * robot):
+ *
+ * <pre>
+ * if (characterization.run(TestType.QUASISTATIC_FORWARD) == true)
+ *     // move on to the next test, then call fit()
+ * </pre>
+ *
+ * @author Kilroy
+ */
+public class DriveCharacterization
+{
+/**
+ * The tests that can be run.
+ */
+public static enum TestType
+    {
+    QUASISTATIC_FORWARD, QUASISTATIC_BACKWARD, STEP_FORWARD, STEP_BACKWARD
+    }
+
+/**
+ * Creates the DriveCharacterization object and the sample buffer.
+ *
+ * @param drive
+ *                       The drive object whose encoders and transmission are
+ *                       used
+ * @param maxSamples
+ *                       How many samples (loops) can be stored across all
+ *                       tests. 3000 is one minute at 50Hz.
+ */
+public DriveCharacterization (Drive drive, int maxSamples)
+{
+    this.drive = drive;
+    this.time = new double[maxSamples];
+    this.leftVolts = new double[maxSamples];
+    this.rightVolts = new double[maxSamples];
+    this.leftVelocity = new double[maxSamples];
+    this.rightVelocity = new double[maxSamples];
+    this.leftAcceleration = new double[maxSamples];
+    this.rightAcceleration = new double[maxSamples];
+}
+
+/**
+ * Runs a test. Call once per loop, until it returns true.
+ *
+ * The test stops when it times out, when the quasi-static ramp reaches the
+ * maximum voltage or when the sample buffer is full.
+ *
+ * @param type
+ *                 Which test to run
+ * @return Whether or not the test has finished.
+ */
+public boolean run (TestType type)
+{
+    double now = this.drive.getClock().getSeconds();
+    double leftRate = this.drive.getEncoderRate(MotorPosition.LEFT);
+    double rightRate = this.drive.getEncoderRate(MotorPosition.RIGHT);
+
+    if (this.testRunning == false)
+        {
+        this.testRunning = true;
+        this.testStartTime = now;
+        this.appliedVolts = 0;
+        }
+    else
+        {
+        // The voltage sent last loop is what moved the robot between then
+        // and now, so it is logged against what was measured now.
+        double dt = now - this.previousTime;
+        if (dt > 0 && this.sampleCount < this.time.length)
+            {
+            this.time[this.sampleCount] = now;
+            this.leftVolts[this.sampleCount] = this.appliedVolts;
+            this.rightVolts[this.sampleCount] = this.appliedVolts;
+            this.leftVelocity[this.sampleCount] = leftRate;
+            this.rightVelocity[this.sampleCount] = rightRate;
+            this.leftAcceleration[this.sampleCount] = (leftRate
+                    - this.previousLeftRate) / dt;
+            this.rightAcceleration[this.sampleCount] = (rightRate
+                    - this.previousRightRate) / dt;
+            this.sampleCount++;
+            }
+        }
+
+    this.previousTime = now;
+    this.previousLeftRate = leftRate;
+    this.previousRightRate = rightRate;
+
+    double elapsed = now - this.testStartTime;
+    double volts;
+    switch (type)
+        {
+        default:
+        case QUASISTATIC_FORWARD:
+        case QUASISTATIC_BACKWARD:
+            volts = this.rampRate * elapsed;
+            break;
+        case STEP_FORWARD:
+        case STEP_BACKWARD:
+            // Held at the maximum, so a high step voltage still runs the test
+            volts = Math.min(this.stepVoltage, this.maxVoltage);
+            break;
+        }
+
+    // Only the ramp of a quasi-static test can pass the maximum
+    if (elapsed >= this.testTimeout || volts > this.maxVoltage
+            || this.sampleCount >= this.time.length)
+        {
+        this.stop();
+        return true;
+        }
+
+    if (type == TestType.QUASISTATIC_BACKWARD
+            || type == TestType.STEP_BACKWARD)
+        volts = -volts;
+
+    // Keep the voltage the same as the battery sags
+    double battery = RobotController.getBatteryVoltage();
+    double percent = Math.max(-1, Math.min(1, volts / battery));
+    this.appliedVolts = percent * battery;
+    this.drive.getTransmission().driveRaw(percent, percent);
+
+    return false;
+}
+
+/**
+ * Stops the current test and the motors. The samples are kept.
+ */
+public void stop ()
+{
+    this.testRunning = false;
+    this.appliedVolts = 0;
+    this.drive.getTransmission().stop();
+}
+
+/**
+ * Throws away all the stored samples.
+ */
+public void clear ()
+{
+    this.sampleCount = 0;
+}
+
+/**
+ * Finds kS, kV and kA for each side from the stored samples, and stores them
+ * in the Drive object (see Drive.getLeftFeedforward() and
+ * Drive.getRightFeedforward()).
+ *
+ * Samples slower than the minimum velocity are ignored, since the robot may
+ * not have broken free of static friction yet.
+ *
+ * @return Whether or not both fits succeeded. Fails if there are too few
+ *         samples, or only one kind of test was run.
+ */
+public boolean fit ()
+{
+    SimpleMotorFeedforward left = this.fitSide(this.leftVolts,
+            this.leftVelocity, this.leftAcceleration);
+    if (left == null)
+        return false;
+    this.leftRSquared = this.lastRSquared;
+
+    SimpleMotorFeedforward right = this.fitSide(this.rightVolts,
+            this.rightVelocity, this.rightAcceleration);
+    if (right == null)
+        return false;
+    this.rightRSquared = this.lastRSquared;
+
+    this.drive.setFeedforward(left, right);
+    return true;
+}
+
+/**
+ * Ordinary least squares fit of volts = kS * sign(v) + kV * v + kA * a,
+ * solved from the 3x3 normal equations with Cramer's rule.
+ *
+ * @param volts
+ *                         The applied voltage of each sample
+ * @param velocity
+ *                         The measured velocity of each sample
+ * @param acceleration
+ *                         The measured acceleration of each sample
+ * @return The fitted constants, or null if the fit could not be done.
+ */
+private SimpleMotorFeedforward fitSide (double[] volts, double[] velocity,
+        double[] acceleration)
+{
+    // Sums of the products of the regressors (s = sign(v), v, a) and of the
+    // regressors with the voltage
+    double ss = 0, sv = 0, sa = 0, vv = 0, va = 0, aa = 0;
+    double sy = 0, vy = 0, ay = 0, yy = 0, ySum = 0;
+    int n = 0;
+
+    for (int i = 0; i < this.sampleCount; i++)
+        {
+        double v = velocity[i];
+        if (Math.abs(v) < this.minimumVelocity)
+            continue;
+        double s = Math.signum(v);
+        double a = acceleration[i];
+        double y = volts[i];
+
+        ss += s * s;
+        sv += s * v;
+        sa += s * a;
+        vv += v * v;
+        va += v * a;
+        aa += a * a;
+        sy += s * y;
+        vy += v * y;
+        ay += a * y;
+        yy += y * y;
+        ySum += y;
+        n++;
+        }
+
+    if (n < MINIMUM_FIT_SAMPLES)
+        return null;
+
+    double det = determinant(ss, sv, sa, sv, vv, va, sa, va, aa);
+    if (Math.abs(det) < 1e-9)
+        return null;
+
+    double kS = determinant(sy, sv, sa, vy, vv, va, ay, va, aa) / det;
+    double kV = determinant(ss, sy, sa, sv, vy, va, sa, ay, aa) / det;
+    double kA = determinant(ss, sv, sy, sv, vv, vy, sa, va, ay) / det;
+
+    // R^2 = 1 - (residual sum of squares / total sum of squares), with the
+    // residual sum expanded out so the samples don't need a second pass
+    double residual = yy - 2 * (kS * sy + kV * vy + kA * ay)
+            + (kS * kS * ss + kV * kV * vv + kA * kA * aa)
+            + 2 * (kS * kV * sv + kS * kA * sa + kV * kA * va);
+    double total = yy - (ySum * ySum / n);
+    this.lastRSquared = total > 0 ? 1 - (residual / total) : 0;
+
+    return new SimpleMotorFeedforward(kS, kV, kA);
+}
+
+/**
+ * The determinant of a 3x3 matrix, given row by row.
+ */
+private static double determinant (double a, double b, double c, double d,
+        double e, double f, double g, double h, double i)
+{
+    return a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+}
+
+/**
+ * Writes every stored sample to a CSV file, one row per sample:
+ * time, leftVolts, rightVolts, leftVelocity, rightVelocity,
+ * leftAcceleration, rightAcceleration
+ *
+ * Don't call this while a test is running; it is slow.
+ *
+ * @param path
+ *                 The file to write, e.g. "/home/lvuser/characterization.csv"
+ * @return Whether or not the file was written.
+ */
+public boolean writeCSV (String path)
+{
+    try (PrintWriter writer = new PrintWriter(path))
+        {
+        writer.println(
+                "time,leftVolts,rightVolts,leftVelocity,rightVelocity,leftAcceleration,rightAcceleration");
+        for (int i = 0; i < this.sampleCount; i++)
+            writer.println(this.time[i] + "," + this.leftVolts[i] + ","
+                    + this.rightVolts[i] + "," + this.leftVelocity[i] + ","
+                    + this.rightVelocity[i] + "," + this.leftAcceleration[i]
+                    + "," + this.rightAcceleration[i]);
+        }
+    catch (IOException e)
+        {
+        System.out.println("Could not write " + path + ": " + e.getMessage());
+        return false;
+        }
+
+    return true;
+}
+
+/**
+ * @return How many samples are stored.
+ */
+public int getSampleCount ()
+{
+    return this.sampleCount;
+}
+
+/**
+ * @return How well the last fit of the left side matched the samples, 0 to
+ *         1.
+ */
+public double getLeftRSquared ()
+{
+    return this.leftRSquared;
+}
+
+/**
+ * @return How well the last fit of the right side matched the samples, 0 to
+ *         1.
+ */
+public double getRightRSquared ()
+{
+    return this.rightRSquared;
+}
+
+/**
+ * Sets how fast the voltage increases during a quasi-static test.
+ *
+ * @param voltsPerSecond
+ *                           Ramp rate. Slower is more accurate, but needs
+ *                           more room.
+ */
+public void setRampRate (double voltsPerSecond)
+{
+    this.rampRate = voltsPerSecond;
+}
+
+/**
+ * Sets the voltage applied during a step test.
+ *
+ * @param volts
+ *                  Step voltage. Anything over the maximum voltage is applied
+ *                  as the maximum.
+ */
+public void setStepVoltage (double volts)
+{
+    this.stepVoltage = volts;
+}
+
+/**
+ * Sets the highest voltage a quasi-static test will ramp up to, and the
+ * highest a step test will apply.
+ *
+ * @param volts
+ *                  Maximum voltage
+ */
+public void setMaxVoltage (double volts)
+{
+    this.maxVoltage = volts;
+}
+
+/**
+ * Sets how long any one test may run.
+ *
+ * @param seconds
+ *                    Test length, in seconds
+ */
+public void setTestTimeout (double seconds)
+{
+    this.testTimeout = seconds;
+}
+
+/**
+ * Sets the slowest velocity a sample may have to be used in fit().
+ *
+ * @param inchesPerSecond
+ *                            Minimum velocity
+ */
+public void setMinimumVelocity (double inchesPerSecond)
+{
+    this.minimumVelocity = Math.abs(inchesPerSecond);
+}
+
+// ================VARIABLES================
+
+private static final int MINIMUM_FIT_SAMPLES = 10;
+
+private final Drive drive;
+
+// Sample buffer
+private final double[] time; // Seconds
+
+private final double[] leftVolts;
+
+private final double[] rightVolts;
+
+private final double[] leftVelocity; // Inches per second
+
+private final double[] rightVelocity; // Inches per second
+
+private final double[] leftAcceleration; // Inches per second squared
+
+private final double[] rightAcceleration; // Inches per second squared
+
+private int sampleCount = 0;
+
+// Test state
+private boolean testRunning = false;
+
+private double testStartTime = 0; // Seconds
+
+private double previousTime = 0; // Seconds
+
+private double previousLeftRate = 0;
+
+private double previousRightRate = 0;
+
+private double appliedVolts = 0;
+
+// Fit results
+private double lastRSquared = 0;
+
+private double leftRSquared = 0;
+
+private double rightRSquared = 0;
+
+// TUNABLES
+private double rampRate = .25; // Volts per second
+
+private double stepVoltage = 6;
+
+private double maxVoltage = 7;
+
+private double testTimeout = 10; // Seconds
+
+private double minimumVelocity = 1; // Inches per second
+}
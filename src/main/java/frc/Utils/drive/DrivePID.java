@@ -3,9 +3,13 @@ package frc.Utils.drive;
 import frc.HardwareInterfaces.KilroyEncoder;
 import frc.HardwareInterfaces.Transmission.TransmissionBase;
 import frc.HardwareInterfaces.Transmission.TransmissionBase.MotorPosition;
+import frc.Utils.PIDRecorder;
+import frc.Utils.RelayAutoTuner;
+import frc.Utils.RelayAutoTuner.TuningRule;
+import frc.Utils.ScheduledPID;
+import frc.Utils.StepResponse;
 import edu.wpi.first.wpilibj.GyroBase;
 import edu.wpi.first.wpilibj.SendableBase;
-import edu.wpi.first.wpilibj.command.PIDSubsystem;
 import edu.wpi.first.wpilibj.livewindow.LiveWindow;
 import edu.wpi.first.wpilibj.smartdashboard.SendableBuilder;
 
@@ -85,6 +89,7 @@ public class DrivePID extends Drive {
      */
     public void reset() {
         super.reset();
+        this.stopAutoTune();
         this.turnDegreesInit = true;
         this.turnDegreesGyroInit = true;
         this.driveStraightInchesInit = true;
@@ -95,10 +100,14 @@ public class DrivePID extends Drive {
     /**
      * Sets the p, i, and d of the drive function selected for autonomous driving.
      *
+     * The gains are in WPILib PIDController units, as they were when these loops
+     * were PIDSubsystems: I and D are per 50ms step, and are converted for the
+     * scheduled loops (see ScheduledPID.setLegacyPIDF()).
+     *
      * @param driveFunction Which PID loop will be tuned
      * @param p             the Proportional value
-     * @param i             the Integral value
-     * @param d             the Derivative value
+     * @param i             the Integral value, per 50ms step
+     * @param d             the Derivative value, per 50ms step
      * @param tolerance     How far when we are considered "on target", in default
      *                      sensor units.
      *
@@ -160,9 +169,9 @@ public class DrivePID extends Drive {
         if (brakeInit == true) {
             this.brakeType = brakeType;
             super.resetEncoders();
-            this.brakePID.getPIDController().setPID(brakePIDTolerance[0], brakePIDTolerance[1], brakePIDTolerance[2]);
-            this.brakePID.getPIDController().setAbsoluteTolerance(brakePIDTolerance[3]);
-            this.brakePID.getPIDController().reset();
+            this.brakePID.setLegacyPIDF(brakePIDTolerance[0], brakePIDTolerance[1], brakePIDTolerance[2], 0);
+            this.brakePID.setTolerance(brakePIDTolerance[3]);
+            this.brakePID.reset();
             this.brakePID.setSetpoint(0);
             this.brakePID.enable();
             brakeInit = false;
@@ -196,10 +205,10 @@ public class DrivePID extends Drive {
     public boolean turnDegrees(int degrees, double speed) {
         if (turnDegreesInit == true) {
             super.resetEncoders();
-            this.turnDegreesPID_enc.getPIDController().reset();
-            this.turnDegreesPID_enc.getPIDController().setPID(turnPIDToleranceAccel[0], turnPIDToleranceAccel[1],
-                    turnPIDToleranceAccel[2]);
-            this.turnDegreesPID_enc.setAbsoluteTolerance(turnPIDToleranceAccel[3]);
+            this.turnDegreesPID_enc.reset();
+            this.turnDegreesPID_enc.setLegacyPIDF(turnPIDToleranceAccel[0], turnPIDToleranceAccel[1],
+                    turnPIDToleranceAccel[2], 0);
+            this.turnDegreesPID_enc.setTolerance(turnPIDToleranceAccel[3]);
             this.turnDegreesPID_enc.setOutputRange(-speed, speed);
             this.turnDegreesPID_enc.setSetpoint(degrees);
             this.turnDegreesPID_enc.enable();
@@ -230,11 +239,11 @@ public class DrivePID extends Drive {
      */
     public boolean turnDegreesGyro(int degrees, double speed) {
         if (turnDegreesGyroInit == true) {
-            turnDegreesPID_gyro.getPIDController().setPID(turnGyroPIDToleranceAccel[0], turnGyroPIDToleranceAccel[1],
-                    turnGyroPIDToleranceAccel[2]);
-            turnDegreesPID_gyro.getPIDController().setAbsoluteTolerance(turnGyroPIDToleranceAccel[3]);
+            turnDegreesPID_gyro.setLegacyPIDF(turnGyroPIDToleranceAccel[0], turnGyroPIDToleranceAccel[1],
+                    turnGyroPIDToleranceAccel[2], 0);
+            turnDegreesPID_gyro.setTolerance(turnGyroPIDToleranceAccel[3]);
             turnDegreesPID_gyro.setOutputRange(-speed, speed);
-            turnDegreesPID_gyro.getPIDController().reset();
+            turnDegreesPID_gyro.reset();
             turnDegreesPID_gyro.setSetpoint(degrees);
             turnDegreesPID_gyro.enable();
             super.reset();
@@ -260,18 +269,18 @@ public class DrivePID extends Drive {
      *                     for correction. If false, it will use encoders.
      */
     public void driveStraight(double speed, double acceleration, boolean isUsingGyro) {
-        if (System.currentTimeMillis() - driveStraightLastTime > INIT_TIMEOUT) {
+        if (this.hasInitTimedOut(driveStraightLastTime, this.getClock().nanoTime())) {
             if (isUsingGyro == true) {
-                this.driveStraightPID_gyro.getPIDController().reset();
-                this.driveStraightPID_gyro.getPIDController().setPID(driveStraightGyroPIDTolerance[0],
-                        driveStraightGyroPIDTolerance[1], driveStraightGyroPIDTolerance[2]);
+                this.driveStraightPID_gyro.reset();
+                this.driveStraightPID_gyro.setLegacyPIDF(driveStraightGyroPIDTolerance[0],
+                        driveStraightGyroPIDTolerance[1], driveStraightGyroPIDTolerance[2], 0);
                 this.driveStraightPID_gyro.setSetpoint(0);
                 this.driveStraightPID_gyro.enable();
                 super.getGyro().reset();
             } else {
-                this.driveStraightPID_enc.getPIDController().reset();
-                this.driveStraightPID_enc.getPIDController().setPID(driveStraightPIDTolerance[0],
-                        driveStraightPIDTolerance[1], driveStraightPIDTolerance[2]);
+                this.driveStraightPID_enc.reset();
+                this.driveStraightPID_enc.setLegacyPIDF(driveStraightPIDTolerance[0],
+                        driveStraightPIDTolerance[1], driveStraightPIDTolerance[2], 0);
                 this.driveStraightPID_enc.setSetpoint(0);
                 this.driveStraightPID_enc.enable();
             }
@@ -283,7 +292,7 @@ public class DrivePID extends Drive {
             super.accelerateProportionaly(speed + driveStraightPIDOutput_enc, speed - driveStraightPIDOutput_enc,
                     acceleration);
 
-        driveStraightLastTime = System.currentTimeMillis();
+        driveStraightLastTime = this.getClock().nanoTime();
     }
 
     /**
@@ -307,10 +316,10 @@ public class DrivePID extends Drive {
         /// set maximum speed, and begin moving.
         if (driveStraightInchesInit == true) {
             resetEncoders();
-            driveStraightInchesPID.getPIDController().setPID(driveStraightInchesPIDTolerance[0],
-                    driveStraightInchesPIDTolerance[1], driveStraightInchesPIDTolerance[2]);
-            driveStraightInchesPID.setAbsoluteTolerance(driveStraightInchesPIDTolerance[3]);
-            driveStraightInchesPID.getPIDController().reset();
+            driveStraightInchesPID.setLegacyPIDF(driveStraightInchesPIDTolerance[0],
+                    driveStraightInchesPIDTolerance[1], driveStraightInchesPIDTolerance[2], 0);
+            driveStraightInchesPID.setTolerance(driveStraightInchesPIDTolerance[3]);
+            driveStraightInchesPID.reset();
             driveStraightInchesPID.setSetpoint(distance);
             driveStraightInchesPID.setOutputRange(-speed, speed);
             driveStraightInchesPID.enable();
@@ -412,151 +421,389 @@ public class DrivePID extends Drive {
     }
 
     /**
-     * @return Whether or not the PID loops are being tuned.
+     * Records every step of one drive function's PID loop from now on, to tune it
+     * from the recording after the match.
+     *
+     * @param driveFunction Which PID loop is recorded
+     * @param recorder      Where the steps are recorded, or null to stop
+     *                      recording.
      */
-    public boolean isTuningPID() {
-        return isTuningPID;
+    public void setRecorder(PIDDriveFunction driveFunction, PIDRecorder recorder) {
+        this.getScheduledPID(driveFunction).setRecorder(recorder);
     }
 
     /**
-     * Describes the different drive-by-pid functions
+     * Reads the sensor a drive function's PID loop is controlling.
      *
-     * @author Ryan McGee
+     * @param driveFunction Which drive function
+     * @return The measurement, in the loop's sensor units
      */
-    public enum PIDDriveFunction {
-        BRAKE,
-        /** Turning via encoders */
-        TURN_ENC,
-        /** Turning via gyro sensor */
-        TURN_GYRO,
-        /** Driving straight via encoders */
-        DRIVESTRAIGHT_ENC,
-        /** Driving straight via gyro sensor */
-        DRIVESTRAIGHT_GYRO,
-        /** Driving straight X number of inches */
-        DRIVESTRAIGHTINCHES
-    }
-
-    private final PIDSubsystem brakePID = new PIDSubsystem(0, 0, 0) {
-        @Override
-        protected double returnPIDInput() {
-            if (brakeType == BrakeType.AFTER_DRIVE)
+    private double getMeasurement(PIDDriveFunction driveFunction) {
+        switch (driveFunction) {
+        case BRAKE:
+            if (this.brakeType == BrakeType.AFTER_DRIVE)
                 return getEncoderRate(MotorPosition.ALL);
-            else if (brakeType == BrakeType.AFTER_TURN)
+            else if (this.brakeType == BrakeType.AFTER_TURN)
                 return getEncoderRate(MotorPosition.LEFT);
             // If all else fails, return 0
             return 0;
+        case TURN_ENC:
+            return getEncoderDegreesTurned();
+        case TURN_GYRO:
+        case DRIVESTRAIGHT_GYRO:
+            return getGyro().getAngle();
+        case DRIVESTRAIGHT_ENC:
+            return getEncoderDistanceAverage(MotorPosition.LEFT) - getEncoderDistanceAverage(MotorPosition.RIGHT);
+        case DRIVESTRAIGHTINCHES:
+        default:
+            return (getEncoderDistanceAverage(MotorPosition.LEFT) + getEncoderDistanceAverage(MotorPosition.RIGHT))
+                    / 2.0;
         }
+    }
 
-        @Override
-        protected void usePIDOutput(double output) {
-            brakePIDOut = output;
-        }
-
-        @Override
-        protected void initDefaultCommand() {
+    /**
+     * @param driveFunction Which drive function
+     * @return The PID loop behind the drive function
+     */
+    private ScheduledPID getScheduledPID(PIDDriveFunction driveFunction) {
+        switch (driveFunction) {
+        case BRAKE:
+            return this.brakePID;
+        case TURN_ENC:
+            return this.turnDegreesPID_enc;
+        case TURN_GYRO:
+            return this.turnDegreesPID_gyro;
+        case DRIVESTRAIGHT_ENC:
+            return this.driveStraightPID_enc;
+        case DRIVESTRAIGHT_GYRO:
+            return this.driveStraightPID_gyro;
+        case DRIVESTRAIGHTINCHES:
+        default:
+            return this.driveStraightInchesPID;
         }
+    }
 
-    };
-
-    private final PIDSubsystem turnDegreesPID_enc = new PIDSubsystem(0, 0, 0) {
+    // ======================PID Auto Tuning=====================
 
-        @Override
-        protected double returnPIDInput() {
-            return getEncoderDegreesTurned();
-        }
+    /*
+     * Instead of guessing at gains with the PIDTuner widgets, autoTunePID() finds
+     * them by experiment, in two parts:
+     *
+     * 1. Relay: the PID loop is replaced by full push one way, then the other, each
+     * time the sensor crosses the starting point. The robot rocks back and forth
+     * (turns left and right, drives forwards and backwards, or weaves while driving
+     * straight) in a steady oscillation. Its period and size give starting gains
+     * for each tuning rule (see RelayAutoTuner).
+     *
+     * 2. Steps: the gains from each rule are tried on a scripted step, out by the
+     * step size and back again, and scored by rise time and overshoot (see
+     * StepResponse). The best scoring gains are kept.
+     *
+     * The robot WILL move: give it room. Call it once per loop until it returns
+     * true; reset() or stopAutoTune() stops it.
+     */
 
-        @Override
-        protected void usePIDOutput(double output) {
-            turnDegreesPIDOut = output;
+    /**
+     * Auto-tunes one drive function's PID loop. Once finished, the best gains are
+     * set as if by setPIDToleranceAccel() (keeping the tolerance and acceleration)
+     * and shown in that function's PIDTuner, if it has one.
+     *
+     * @param driveFunction Which PID loop is tuned
+     * @param relayPower    How hard the robot is pushed during the relay test, in
+     *                      percent. Enough to move the robot clearly.
+     * @param stepSize      How far each scripted step moves the setpoint, in the
+     *                      loop's sensor units (degrees for turns and gyro drive
+     *                      straight, inches for distance, inches per second for
+     *                      braking).
+     * @param speed         How fast to drive forwards while tuning the drive
+     *                      straight functions, in percent. Not used for the others.
+     * @return Whether or not tuning has finished (or failed; see
+     *         getAutoTuneRule()).
+     */
+    public boolean autoTunePID(PIDDriveFunction driveFunction, double relayPower, double stepSize, double speed) {
+        double now = this.getClock().getSeconds();
+
+        if (this.autoTuneState == AutoTuneState.IDLE || this.autoTuneFunction != driveFunction) {
+            this.stopAutoTune();
+            this.autoTuneFunction = driveFunction;
+            this.autoTuneCenter = getMeasurement(driveFunction);
+            this.autoTuneSpeed = speed;
+            this.autoTuner.setRelayPower(relayPower);
+            this.autoTuner.setHysteresis(getPIDArray(driveFunction)[3]);
+            this.autoTuner.start(this.autoTuneCenter, now);
+            this.autoTuneRule = null;
+            this.autoTuneScore = Double.MAX_VALUE;
+            this.autoTuneState = AutoTuneState.RELAY;
         }
 
-        @Override
-        protected void initDefaultCommand() {
-
+        switch (this.autoTuneState) {
+        case RELAY:
+            this.applyTuningOutput(driveFunction, this.autoTuner.update(getMeasurement(driveFunction), now));
+
+            if (this.autoTuner.isFailed() == true) {
+                this.stop();
+                this.autoTuneState = AutoTuneState.FINISHED;
+            } else if (this.autoTuner.isFinished() == true) {
+                this.autoTuneStep = 0;
+                this.startTuningStep(driveFunction, stepSize, now);
+                this.autoTuneState = AutoTuneState.STEP;
+            }
+            break;
+        case STEP:
+            ScheduledPID pid = getScheduledPID(driveFunction);
+            this.applyTuningOutput(driveFunction, pid.getOutput());
+            this.autoTuneResponse.update(getMeasurement(driveFunction), now);
+
+            if (this.autoTuneResponse.isSettled(AUTO_TUNE_SETTLE_TIME) == true
+                    || now - this.autoTuneStepStart > AUTO_TUNE_STEP_TIMEOUT) {
+                TuningRule rule = TuningRule.values()[this.autoTuneStep];
+                double score = this.autoTuneResponse.getScore(AUTO_TUNE_OVERSHOOT_COST);
+                if (score < this.autoTuneScore) {
+                    this.autoTuneScore = score;
+                    this.autoTuneRule = rule;
+                    this.autoTuneBestResponse.copy(this.autoTuneResponse);
+                }
+
+                this.autoTuneStep++;
+                if (this.autoTuneStep < TuningRule.values().length) {
+                    this.startTuningStep(driveFunction, stepSize, now);
+                } else {
+                    pid.disable();
+                    this.stop();
+                    this.applyTunedGains(driveFunction);
+                    this.autoTuneState = AutoTuneState.FINISHED;
+                }
+            }
+            break;
+        case FINISHED:
+        default:
+            return true;
         }
-    };
 
-    private final PIDSubsystem turnDegreesPID_gyro = new PIDSubsystem(0, 0, 0) {
+        return this.autoTuneState == AutoTuneState.FINISHED;
+    }
 
-        @Override
-        protected void initDefaultCommand() {
+    /**
+     * Starts the next scripted step, with the gains from the next tuning rule.
+     * Even steps go out from the starting point, odd steps come back.
+     */
+    private void startTuningStep(PIDDriveFunction driveFunction, double stepSize, double now) {
+        TuningRule rule = TuningRule.values()[this.autoTuneStep];
+        double target = this.autoTuneCenter + (this.autoTuneStep % 2 == 0 ? stepSize : 0);
+
+        ScheduledPID pid = getScheduledPID(driveFunction);
+        pid.setPID(this.autoTuner.getP(rule), this.autoTuner.getI(rule), this.autoTuner.getD(rule));
+        pid.setTolerance(getPIDArray(driveFunction)[3]);
+        pid.setOutputRange(-AUTO_TUNE_MAX_OUTPUT, AUTO_TUNE_MAX_OUTPUT);
+        pid.reset();
+        pid.setSetpoint(target);
+        pid.enable();
+
+        this.autoTuneResponse.setTolerance(getPIDArray(driveFunction)[3]);
+        this.autoTuneResponse.start(getMeasurement(driveFunction), target, now);
+        this.autoTuneStepStart = now;
+    }
 
+    /**
+     * Drives the robot the way the drive function would use its PID output.
+     */
+    private void applyTuningOutput(PIDDriveFunction driveFunction, double output) {
+        switch (driveFunction) {
+        case BRAKE:
+            if (this.brakeType == BrakeType.AFTER_TURN)
+                getTransmission().driveRaw(output, -output);
+            else
+                getTransmission().driveRaw(output, output);
+            break;
+        case TURN_ENC:
+        case TURN_GYRO:
+            getTransmission().driveRaw(output, -output);
+            break;
+        case DRIVESTRAIGHT_ENC:
+        case DRIVESTRAIGHT_GYRO:
+            getTransmission().driveRaw(this.autoTuneSpeed + output, this.autoTuneSpeed - output);
+            break;
+        case DRIVESTRAIGHTINCHES:
+        default:
+            getTransmission().driveRaw(output, output);
+            break;
         }
+    }
+
+    /**
+     * Keeps the best scoring gains for the drive function, and shows them on its
+     * PIDTuner.
+     */
+    private void applyTunedGains(PIDDriveFunction driveFunction) {
+        if (this.autoTuneRule == null)
+            return;
 
-        @Override
-        protected void usePIDOutput(double output) {
-            turnDegreesGyroPIDOut = output;
+        // The tuner's gains are per second; the stored ones are per 50ms step
+        double[] values = getPIDArray(driveFunction);
+        double p = this.autoTuner.getP(this.autoTuneRule);
+        double i = this.autoTuner.getI(this.autoTuneRule) * ScheduledPID.LEGACY_PERIOD;
+        double d = this.autoTuner.getD(this.autoTuneRule) / ScheduledPID.LEGACY_PERIOD;
+        values[0] = p;
+        values[1] = i;
+        values[2] = d;
+
+        PIDTuner tuner = getTuner(driveFunction);
+        if (tuner != null) {
+            tuner.p = p;
+            tuner.i = i;
+            tuner.d = d;
         }
+    }
 
-        @Override
-        protected double returnPIDInput() {
-            return getGyro().getAngle();
+    /**
+     * Stops auto-tuning, if it is running, and stops the robot.
+     */
+    public void stopAutoTune() {
+        if (this.autoTuneState == AutoTuneState.RELAY || this.autoTuneState == AutoTuneState.STEP) {
+            getScheduledPID(this.autoTuneFunction).disable();
+            this.stop();
         }
-    };
+        this.autoTuneState = AutoTuneState.IDLE;
+    }
 
     /**
-     * The PID controller behind the driveStraight function when using encoders
+     * @return Whether or not autoTunePID() is running.
      */
-    private final PIDSubsystem driveStraightPID_enc = new PIDSubsystem(0, 0, 0) {
+    public boolean isAutoTuning() {
+        return this.autoTuneState == AutoTuneState.RELAY || this.autoTuneState == AutoTuneState.STEP;
+    }
 
-        @Override
-        protected double returnPIDInput() {
-            return getEncoderDistanceAverage(MotorPosition.LEFT) - getEncoderDistanceAverage(MotorPosition.RIGHT);
-        }
+    /**
+     * @return The tuning rule whose gains scored best in the last auto-tune, or
+     *         null if it failed (the relay test never oscillated, or no step ever
+     *         reached its target).
+     */
+    public TuningRule getAutoTuneRule() {
+        return this.autoTuneRule;
+    }
 
-        @Override
-        protected void usePIDOutput(double output) {
-            driveStraightPIDOutput_enc = output;
-        }
+    /**
+     * @return The score of the best gains in the last auto-tune: rise time plus
+     *         .02 seconds per percent of overshoot. Lower is
+     *         better.
+     */
+    public double getAutoTuneScore() {
+        return this.autoTuneScore;
+    }
 
-        @Override
-        protected void initDefaultCommand() {
-        }
+    /**
+     * @return The step response of the best gains in the last auto-tune.
+     */
+    public StepResponse getAutoTuneResponse() {
+        return this.autoTuneBestResponse;
+    }
 
-    };
+    /**
+     * @return The relay experiment behind the last auto-tune, with the measured
+     *         ultimate gain and period.
+     */
+    public RelayAutoTuner getAutoTuner() {
+        return this.autoTuner;
+    }
 
     /**
-     * The PID controller behind the driveStraight function when using the
-     * gyroscopic sensor
+     * @param driveFunction Which drive function
+     * @return The {P, I, D, Tolerance, ...} array of the drive function
      */
-    private final PIDSubsystem driveStraightPID_gyro = new PIDSubsystem(0, 0, 0) {
-        @Override
-        protected double returnPIDInput() {
-            return getGyro().getAngle();
+    private double[] getPIDArray(PIDDriveFunction driveFunction) {
+        switch (driveFunction) {
+        case BRAKE:
+            return this.brakePIDTolerance;
+        case TURN_ENC:
+            return this.turnPIDToleranceAccel;
+        case TURN_GYRO:
+            return this.turnGyroPIDToleranceAccel;
+        case DRIVESTRAIGHT_ENC:
+            return this.driveStraightPIDTolerance;
+        case DRIVESTRAIGHT_GYRO:
+            return this.driveStraightGyroPIDTolerance;
+        case DRIVESTRAIGHTINCHES:
+        default:
+            return this.driveStraightInchesPIDTolerance;
         }
+    }
 
-        @Override
-        protected void usePIDOutput(double output) {
-            driveStraightPIDOutput_gyro = output;
+    /**
+     * @param driveFunction Which drive function
+     * @return The drive function's PIDTuner, or null if it doesn't have one
+     */
+    private PIDTuner getTuner(PIDDriveFunction driveFunction) {
+        switch (driveFunction) {
+        case BRAKE:
+            return this.brakeTuner;
+        case TURN_ENC:
+            return this.turnDegreesTuner_enc;
+        case DRIVESTRAIGHT_GYRO:
+            return this.driveStraightTuner_gyro;
+        case DRIVESTRAIGHTINCHES:
+            return this.driveInchesTuner;
+        default:
+            return null;
         }
+    }
 
-        @Override
-        protected void initDefaultCommand() {
-        }
-    };
+    /**
+     * @return Whether or not the PID loops are being tuned.
+     */
+    public boolean isTuningPID() {
+        return isTuningPID;
+    }
 
     /**
-     * The PID loop behind the driveStraightInches function, for distance
+     * Describes the different drive-by-pid functions
+     *
+     * @author Ryan McGee
      */
-    private final PIDSubsystem driveStraightInchesPID = new PIDSubsystem(0, 0, 0) {
+    public enum PIDDriveFunction {
+        BRAKE,
+        /** Turning via encoders */
+        TURN_ENC,
+        /** Turning via gyro sensor */
+        TURN_GYRO,
+        /** Driving straight via encoders */
+        DRIVESTRAIGHT_ENC,
+        /** Driving straight via gyro sensor */
+        DRIVESTRAIGHT_GYRO,
+        /** Driving straight X number of inches */
+        DRIVESTRAIGHTINCHES
+    }
 
-        @Override
-        protected double returnPIDInput() {
-            return (getEncoderDistanceAverage(MotorPosition.LEFT) + getEncoderDistanceAverage(MotorPosition.RIGHT))
-                    / 2.0;
-        }
+    // The PID loops behind the drive functions. None of them has a thread of
+    // its own: while enabled, they are all stepped by the shared LoopScheduler.
 
-        @Override
-        protected void usePIDOutput(double output) {
-            driveStraightInchesSpeed = output;
-        }
+    private final ScheduledPID brakePID = new ScheduledPID(() -> getMeasurement(PIDDriveFunction.BRAKE),
+            (output) -> brakePIDOut = output);
 
-        @Override
-        protected void initDefaultCommand() {
-        }
+    private final ScheduledPID turnDegreesPID_enc = new ScheduledPID(() -> getMeasurement(PIDDriveFunction.TURN_ENC),
+            (output) -> turnDegreesPIDOut = output);
+
+    private final ScheduledPID turnDegreesPID_gyro = new ScheduledPID(
+            () -> getMeasurement(PIDDriveFunction.TURN_GYRO), (output) -> turnDegreesGyroPIDOut = output);
+
+    /**
+     * The PID controller behind the driveStraight function when using encoders
+     */
+    private final ScheduledPID driveStraightPID_enc = new ScheduledPID(
+            () -> getMeasurement(PIDDriveFunction.DRIVESTRAIGHT_ENC), (output) -> driveStraightPIDOutput_enc = output);
+
+    /**
+     * The PID controller behind the driveStraight function when using the
+     * gyroscopic sensor
+     */
+    private final ScheduledPID driveStraightPID_gyro = new ScheduledPID(
+            () -> getMeasurement(PIDDriveFunction.DRIVESTRAIGHT_GYRO),
+            (output) -> driveStraightPIDOutput_gyro = output);
 
-    };
+    /**
+     * The PID loop behind the driveStraightInches function, for distance
+     */
+    private final ScheduledPID driveStraightInchesPID = new ScheduledPID(
+            () -> getMeasurement(PIDDriveFunction.DRIVESTRAIGHTINCHES), (output) -> driveStraightInchesSpeed = output);
 
     private final KilroyEncoder[] encoders;
 
@@ -602,7 +849,7 @@ public class DrivePID extends Drive {
 
     private double driveStraightPIDOutput_enc = 0;
 
-    private long driveStraightLastTime = 0;
+    private long driveStraightLastTime = NEVER;
 
     private double[] driveStraightPIDTolerance =
             // {P, I, D, Tolerance}
@@ -618,6 +865,46 @@ public class DrivePID extends Drive {
 
     private double[] driveStraightInchesPIDTolerance = { 0, 0, 0, 0 };
 
+    /**
+     * Where autoTunePID() is up to
+     */
+    private enum AutoTuneState {
+        IDLE, RELAY, STEP, FINISHED
+    }
+
+    // How much one percent of overshoot counts against gains, in seconds of rise
+    // time
+    private static final double AUTO_TUNE_OVERSHOOT_COST = .02;
+
+    // How long each scripted step must stay on target to be done, in seconds
+    private static final double AUTO_TUNE_SETTLE_TIME = .25;
+
+    private static final double AUTO_TUNE_STEP_TIMEOUT = 4; // Seconds
+
+    private static final double AUTO_TUNE_MAX_OUTPUT = 1;
+
+    private final RelayAutoTuner autoTuner = new RelayAutoTuner(.3, 0);
+
+    private final StepResponse autoTuneResponse = new StepResponse(0);
+
+    private final StepResponse autoTuneBestResponse = new StepResponse(0);
+
+    private AutoTuneState autoTuneState = AutoTuneState.IDLE;
+
+    private PIDDriveFunction autoTuneFunction = PIDDriveFunction.BRAKE;
+
+    private double autoTuneCenter = 0;
+
+    private double autoTuneSpeed = 0;
+
+    private int autoTuneStep = 0;
+
+    private double autoTuneStepStart = 0; // Seconds
+
+    private TuningRule autoTuneRule = null;
+
+    private double autoTuneScore = Double.MAX_VALUE;
+
     /**
      * A class designed to use the Shuffleboard built in tuner for PID loops. This
      * is useful if you have multiple PID controllers that all need the same tuning
@@ -0,0 +1,310 @@
+package frc.Utils.drive;
+
+import frc.HardwareInterfaces.Transmission.TransmissionBase.MotorPosition;
+import frc.Utils.LoopScheduler;
+import edu.wpi.first.wpilibj.GyroBase;
+
+/**
+ * One heading for the whole robot, made by combining the gyro with the
+ * encoders so that each covers the other's weakness:
+ *
+ * - the gyro doesn't care about wheel slip, but drifts, so its bias is
+ * measured continuously by comparing it with the encoders whenever the wheels
+ * are known to be gripping;
+ *
+ * - the encoders don't drift, but lie when a wheel slips, so whenever the
+ * encoder turn rate and the gyro turn rate disagree by more than the slip
+ * threshold, the encoders are ignored until they agree again.
+ *
+ * Heading = integral of (gyroWeight * (gyroRate - bias) + (1 - gyroWeight) *
+ * encoderRate)
+ *
+ * This is a complementary filter on turn rate with online bias estimation (the
+ * steady-state form of a one-state Kalman filter), run at a fixed rate much
+ * faster than the periodic functions. Since it extends GyroBase, it can be
+ * given to Drive.setGyro() (or anything else that takes a gyro) so every
+ * turning and driving-straight function reads the same heading:
+ *
+ * <pre>
+ * HeadingEstimator heading = new HeadingEstimator(drive, Hardware.gyro);
+ * heading.start();
+ * drive.setGyro(heading);
+ * </pre>
+ *
+ * Like the gyro, positive is clockwise.
+ *
+ * @author Kilroy
+ */
+public class HeadingEstimator extends GyroBase
+{
+/**
+ * Creates the HeadingEstimator object. It does not run until start() is
+ * called, or update() is called by hand.
+ *
+ * @param drive
+ *                  The drive object whose encoders and clock are used
+ * @param gyro
+ *                  The real gyro. If null, only the encoders are used.
+ */
+public HeadingEstimator (Drive drive, GyroBase gyro)
+{
+    this.drive = drive;
+    this.gyro = gyro;
+}
+
+/**
+ * Starts updating the heading in the background, at the loop period, on the
+ * shared LoopScheduler.
+ */
+public void start ()
+{
+    LoopScheduler.getDefault().add(this.updateLoop, this.loopPeriod);
+}
+
+/**
+ * Stops updating the heading in the background.
+ */
+public void stop ()
+{
+    LoopScheduler.getDefault().remove(this.updateLoop);
+}
+
+/**
+ * Runs one step of the filter. Called by the background loop after start(),
+ * or call it yourself once per loop (in simulation, for instance).
+ */
+public synchronized void update ()
+{
+    long now = this.drive.getClock().nanoTime();
+    double dt = (now - this.lastUpdateTime) / 1e9;
+    this.lastUpdateTime = now;
+
+    double gyroAngle = this.gyro == null ? 0 : this.gyro.getAngle();
+    double gyroTurn = gyroAngle - this.lastGyroAngle;
+    this.lastGyroAngle = gyroAngle;
+
+    // The first call only sets the starting time and angle
+    if (this.hasUpdated == false || dt <= 0)
+        {
+        this.hasUpdated = true;
+        return;
+        }
+
+    // Turn rate from the encoders: the difference between the sides,
+    // around the turning radius. Clockwise positive, like the gyro.
+    this.encoderRate = Math.toDegrees((this.drive.getEncoderRate(
+            MotorPosition.LEFT)
+            - this.drive.getEncoderRate(MotorPosition.RIGHT))
+            / (2 * this.drive.getTurningRadius()));
+
+    // After a long pause (an overrun, or stop() and start()) the rates say
+    // nothing about the whole gap, but the gyro's angle does, so the turn
+    // isn't lost. Without a gyro, the gap counts as MAX_DT.
+    if (dt > MAX_DT)
+        {
+        if (this.gyro != null)
+            {
+            this.rate = gyroTurn / dt - this.bias;
+            this.heading += gyroTurn - (this.bias * dt);
+            }
+        else
+            {
+            this.rate = this.encoderRate;
+            this.heading += this.rate * MAX_DT;
+            }
+        return;
+        }
+
+    if (this.gyro == null)
+        {
+        this.slipping = false;
+        this.rate = this.encoderRate;
+        this.heading += this.rate * dt;
+        return;
+        }
+
+    double gyroRate = this.gyro.getRate() - this.bias;
+    double disagreement = gyroRate - this.encoderRate;
+
+    if (Math.abs(disagreement) > this.slipThreshold)
+        {
+        // The wheels are slipping (or the robot was pushed): trust only the
+        // gyro until they agree again
+        if (this.slipping == false)
+            this.slipCount++;
+        this.slipping = true;
+        this.rate = gyroRate;
+        }
+    else
+        {
+        this.slipping = false;
+        // Any steady difference while gripping is gyro drift
+        this.bias += this.biasGain * disagreement * dt;
+        this.rate = (this.gyroWeight * gyroRate)
+                + ((1 - this.gyroWeight) * this.encoderRate);
+        }
+
+    this.heading += this.rate * dt;
+}
+
+/**
+ * Calibrates the real gyro (the robot must be still) and forgets the
+ * measured drift.
+ */
+@Override
+public synchronized void calibrate ()
+{
+    if (this.gyro != null)
+        this.gyro.calibrate();
+    this.bias = 0;
+    // Calibrating may move the gyro's angle; start again from wherever it is
+    this.hasUpdated = false;
+}
+
+/**
+ * Sets the heading back to zero. The measured drift is kept.
+ */
+@Override
+public synchronized void reset ()
+{
+    this.heading = 0;
+}
+
+/**
+ * @return The robot's heading since the last reset, in degrees clockwise.
+ */
+@Override
+public double getAngle ()
+{
+    return this.heading;
+}
+
+/**
+ * @return How fast the robot is turning, in degrees per second clockwise.
+ */
+@Override
+public double getRate ()
+{
+    return this.rate;
+}
+
+/**
+ * @return Whether or not the encoders were being ignored for slipping on the
+ *         last update.
+ */
+public boolean isSlipping ()
+{
+    return this.slipping;
+}
+
+/**
+ * @return How many times slipping has started since the estimator was
+ *         created.
+ */
+public int getSlipCount ()
+{
+    return this.slipCount;
+}
+
+/**
+ * @return The gyro's measured drift, in degrees per second.
+ */
+public double getGyroBias ()
+{
+    return this.bias;
+}
+
+/**
+ * @return The turn rate measured by the encoders alone on the last update,
+ *         in degrees per second.
+ */
+public double getEncoderRate ()
+{
+    return this.encoderRate;
+}
+
+/**
+ * Sets how much the gyro is trusted over the encoders when they agree.
+ *
+ * @param weight
+ *                   0.0 (encoders only) to 1.0 (gyro only). .8 by default.
+ */
+public void setGyroWeight (double weight)
+{
+    this.gyroWeight = Math.max(0, Math.min(1, weight));
+}
+
+/**
+ * Sets how far apart the gyro and encoder turn rates can be before the wheels
+ * are considered to be slipping.
+ *
+ * @param degreesPerSecond
+ *                             The slip threshold
+ */
+public void setSlipThreshold (double degreesPerSecond)
+{
+    this.slipThreshold = Math.abs(degreesPerSecond);
+}
+
+/**
+ * Sets how quickly the gyro's drift is learned.
+ *
+ * @param gain
+ *                 Per second. Higher learns faster, but lets more encoder
+ *                 noise into the bias. .05 by default.
+ */
+public void setBiasGain (double gain)
+{
+    this.biasGain = gain;
+}
+
+/**
+ * Sets how often the background loop runs. Takes effect on the next start().
+ *
+ * @param seconds
+ *                    Loop period, in seconds (.005 is 200Hz)
+ */
+public void setLoopPeriod (double seconds)
+{
+    this.loopPeriod = seconds;
+}
+
+// ================VARIABLES================
+
+// Updates further apart than this only use the gyro's change in angle
+private static final double MAX_DT = .1; // Seconds
+
+private final Drive drive;
+
+private final GyroBase gyro;
+
+// The same object every time, so the scheduler can find it to remove it
+private final Runnable updateLoop = this::update;
+
+private volatile double heading = 0; // Degrees
+
+private volatile double rate = 0; // Degrees per second
+
+private volatile double encoderRate = 0; // Degrees per second
+
+private volatile double bias = 0; // Degrees per second
+
+private volatile boolean slipping = false;
+
+private volatile int slipCount = 0;
+
+private long lastUpdateTime = 0; // Nanoseconds
+
+private double lastGyroAngle = 0; // Degrees
+
+private boolean hasUpdated = false;
+
+// TUNABLES
+private double gyroWeight = .8;
+
+private double slipThreshold = 30; // Degrees per second
+
+private double biasGain = .05; // Per second
+
+private double loopPeriod = .005; // Seconds
+}
@@ -0,0 +1,345 @@
+package frc.Utils.drive;
+
+import java.util.function.DoubleSupplier;
+import frc.HardwareInterfaces.KilroyAccel;
+import frc.HardwareInterfaces.KilroyAccel.Axis;
+import frc.HardwareInterfaces.Transmission.TransmissionBase.MotorPosition;
+
+/**
+ * Notices when the wheels stop matching the ground: spinning the wheels on a
+ * hard start, or being pushed. It compares how fast the encoders say the
+ * robot is speeding up with what the accelerometer feels. When the two
+ * disagree for a few loops in a row, the wheels are slipping.
+ *
+ * While slipping, Drive multiplies its power by getPowerScale() so the tires
+ * can grip again. Drive also uses getSlipDistance() to take the slipped
+ * inches off the encoder distance, so distance-based moves stop in the right
+ * place.
+ *
+ * <pre>
+ * SlipDetector slip = new SlipDetector(drive, Hardware.accelerometer,
+ *         Axis.Y, false);
+ * drive.setSlipDetector(slip);
+ * </pre>
+ *
+ * Drive calls update() every time it drives, so nothing else needs to be
+ * called. Nothing is allocated after the constructor.
+ *
+ * @author Kilroy
+ */
+public class SlipDetector
+{
+/**
+ * Creates the SlipDetector object from the roboRIO's accelerometer.
+ *
+ * @param drive
+ *                     The drive object whose encoders and clock are used
+ * @param accel
+ *                     The accelerometer
+ * @param axis
+ *                     Which axis of the accelerometer points to the front of
+ *                     the robot
+ * @param inverted
+ *                     True if that axis reads negative when the robot speeds
+ *                     up forwards
+ */
+public SlipDetector (Drive drive, KilroyAccel accel, Axis axis,
+        boolean inverted)
+{
+    // Read straight from the sensor: getAcceleration() is only updated by
+    // KilroyAccel's calculation thread, which may never have been started
+    this(drive, () -> (inverted == true ? -INCHES_PER_G : INCHES_PER_G)
+            * readAxis(accel, axis));
+}
+
+/**
+ * @return The accelerometer's reading on one axis, in g
+ */
+private static double readAxis (KilroyAccel accel, Axis axis)
+{
+    switch (axis)
+        {
+        case X:
+            return accel.getX();
+        case Y:
+            return accel.getY();
+        default:
+            return accel.getZ();
+        }
+}
+
+/**
+ * Creates the SlipDetector object from any source of forward acceleration (a
+ * different accelerometer, or a simulation).
+ *
+ * @param drive
+ *                               The drive object whose encoders and clock are
+ *                               used
+ * @param groundAcceleration
+ *                               The robot's forward acceleration, in inches
+ *                               per second squared
+ */
+public SlipDetector (Drive drive, DoubleSupplier groundAcceleration)
+{
+    this.drive = drive;
+    this.groundAccelSource = groundAcceleration;
+}
+
+/**
+ * Reads the sensors and decides whether the wheels are slipping. Drive calls
+ * this each time it drives; only call it yourself if the robot is being
+ * driven some other way.
+ */
+public void update ()
+{
+    long now = this.drive.getClock().nanoTime();
+    double dt = (now - this.lastUpdateTime) / 1e9;
+    this.lastUpdateTime = now;
+
+    double wheelVelocity = (this.drive.getEncoderRate(MotorPosition.LEFT)
+            + this.drive.getEncoderRate(MotorPosition.RIGHT)) / 2.0;
+
+    // The first call, or a long pause, only sets the starting values
+    if (this.hasUpdated == false || dt <= 0 || dt > MAX_DT)
+        {
+        this.hasUpdated = true;
+        this.lastWheelVelocity = wheelVelocity;
+        this.groundVelocity = wheelVelocity;
+        this.wheelAcceleration = 0;
+        this.groundAcceleration = 0;
+        return;
+        }
+
+    // Both accelerations are noisy, so low-pass filter them the same way
+    this.wheelAcceleration += this.filter
+            * (((wheelVelocity - this.lastWheelVelocity) / dt)
+                    - this.wheelAcceleration);
+    this.groundAcceleration += this.filter
+            * (this.groundAccelSource.getAsDouble()
+                    - this.groundAcceleration);
+    this.lastWheelVelocity = wheelVelocity;
+
+    boolean disagree = Math.abs(this.wheelAcceleration
+            - this.groundAcceleration) > this.accelThreshold;
+
+    if (this.slipping == false)
+        {
+        // While gripping, the wheels are the better measure of speed
+        this.groundVelocity = wheelVelocity;
+
+        if (disagree == true)
+            this.cycleCount++;
+        else
+            this.cycleCount = 0;
+
+        if (this.cycleCount >= this.detectCycles)
+            {
+            this.slipping = true;
+            this.slipCount++;
+            this.cycleCount = 0;
+            this.powerScale = this.slipPowerScale;
+            }
+        }
+    else
+        {
+        // While slipping, the accelerometer is the only measure of speed
+        this.groundVelocity += this.groundAcceleration * dt;
+        // Signed, so being pushed further than the wheels turned counts the
+        // other way
+        this.slipDistance += (wheelVelocity - this.groundVelocity) * dt;
+
+        // Gripping again once the wheels have come back to the ground's
+        // speed and stayed there
+        if (disagree == false && Math.abs(wheelVelocity
+                - this.groundVelocity) < this.velocityThreshold)
+            this.cycleCount++;
+        else
+            this.cycleCount = 0;
+
+        if (this.cycleCount >= this.detectCycles)
+            {
+            this.slipping = false;
+            this.cycleCount = 0;
+            }
+        }
+
+    // Bring the power back up smoothly after gripping again, so it doesn't
+    // break loose straight away
+    if (this.slipping == false && this.powerScale < 1)
+        this.powerScale = Math.min(1,
+                this.powerScale + (this.recoveryRate * dt));
+}
+
+/**
+ * @return Whether or not the wheels were slipping on the last update.
+ */
+public boolean isSlipping ()
+{
+    return this.slipping;
+}
+
+/**
+ * @return What the drive power should be multiplied by: the slip power scale
+ *         while slipping, ramping back up to 1.0 afterwards.
+ */
+public double getPowerScale ()
+{
+    return this.powerScale;
+}
+
+/**
+ * @return How many inches further the wheels turned than the robot moved
+ *         since the last resetSlipDistance(), forwards positive. Negative
+ *         when the robot was pushed further than the wheels turned.
+ */
+public double getSlipDistance ()
+{
+    return this.slipDistance;
+}
+
+/**
+ * Sets the slipped distance back to zero. Drive does this whenever it resets
+ * its encoders.
+ */
+public void resetSlipDistance ()
+{
+    this.slipDistance = 0;
+}
+
+/**
+ * @return How many times slipping has started since the detector was created.
+ */
+public int getSlipCount ()
+{
+    return this.slipCount;
+}
+
+/**
+ * @return The filtered acceleration measured by the encoders, in inches per
+ *         second squared.
+ */
+public double getWheelAcceleration ()
+{
+    return this.wheelAcceleration;
+}
+
+/**
+ * @return The filtered acceleration measured by the accelerometer, in inches
+ *         per second squared.
+ */
+public double getGroundAcceleration ()
+{
+    return this.groundAcceleration;
+}
+
+/**
+ * Sets how far apart the wheel and ground accelerations can be before the
+ * wheels count as slipping.
+ *
+ * @param inchesPerSecondSquared
+ *                                   The threshold. 60 (about .15G) by default.
+ */
+public void setAccelerationThreshold (double inchesPerSecondSquared)
+{
+    this.accelThreshold = Math.abs(inchesPerSecondSquared);
+}
+
+/**
+ * Sets how close the wheel speed must get to the ground speed before the
+ * wheels count as gripping again.
+ *
+ * @param inchesPerSecond
+ *                            The threshold. 6 by default.
+ */
+public void setVelocityThreshold (double inchesPerSecond)
+{
+    this.velocityThreshold = Math.abs(inchesPerSecond);
+}
+
+/**
+ * Sets how many updates in a row must agree before slipping starts or ends.
+ *
+ * @param cycles
+ *                   Number of updates. 3 by default.
+ */
+public void setDetectCycles (int cycles)
+{
+    this.detectCycles = Math.max(1, cycles);
+}
+
+/**
+ * Sets how much power Drive keeps while slipping, and how fast it comes back
+ * afterwards.
+ *
+ * @param scale
+ *                         Power multiplier while slipping, 0.0 to 1.0. .6 by
+ *                         default.
+ * @param recoveryRate
+ *                         How much of the power comes back per second after
+ *                         gripping again. 2 by default.
+ */
+public void setPowerLimit (double scale, double recoveryRate)
+{
+    this.slipPowerScale = Math.max(0, Math.min(1, scale));
+    this.recoveryRate = Math.abs(recoveryRate);
+}
+
+/**
+ * Sets how much of each new reading goes into the filtered accelerations.
+ *
+ * @param filter
+ *                   0.0 to 1.0. Lower is smoother but slower to notice. .5 by
+ *                   default.
+ */
+public void setFilter (double filter)
+{
+    this.filter = Math.max(0, Math.min(1, filter));
+}
+
+// ================VARIABLES================
+
+// One g, in inches per second squared
+private static final double INCHES_PER_G = 32.2 * 12;
+
+// Updates further apart than this are treated as a restart
+private static final double MAX_DT = .1; // Seconds
+
+private final Drive drive;
+
+private final DoubleSupplier groundAccelSource;
+
+private long lastUpdateTime = 0; // Nanoseconds
+
+private boolean hasUpdated = false;
+
+private double lastWheelVelocity = 0; // Inches per second
+
+private double groundVelocity = 0; // Inches per second
+
+private double wheelAcceleration = 0; // Inches per second squared
+
+private double groundAcceleration = 0; // Inches per second squared
+
+private int cycleCount = 0;
+
+private boolean slipping = false;
+
+private int slipCount = 0;
+
+private double slipDistance = 0; // Inches
+
+private double powerScale = 1;
+
+// TUNABLES
+private double accelThreshold = 60; // Inches per second squared
+
+private double velocityThreshold = 6; // Inches per second
+
+private int detectCycles = 3;
+
+private double slipPowerScale = .6;
+
+private double recoveryRate = 2; // Per second
+
+private double filter = .5;
+}
@@ -0,0 +1,283 @@
+package frc.Utils.drive;
+
+import frc.HardwareInterfaces.Transmission.TransmissionBase.MotorPosition;
+import frc.Utils.LoopScheduler;
+import frc.Utils.PIDLoop;
+
+/**
+ * Stops the robot by driving the wheel velocity of each side to zero with a
+ * velocity loop, instead of pushing a fixed power for a few 20ms loops like
+ * Drive.brake() does.
+ *
+ * The loop runs on the shared LoopScheduler at a much higher rate than the
+ * robot's periodic functions (200Hz by default), and is finished as soon as
+ * both sides have been measured below the stop threshold for a few samples in
+ * a row. The distance and time it took to stop are kept for tuning.
+ *
+ * Started and polled through Drive.brakeClosedLoop().
+ *
+ * @author Kilroy
+ */
+public class VelocityBrake
+{
+/**
+ * Creates the VelocityBrake object. Nothing is added to the scheduler until
+ * the first brake, so a Drive object can be made without the HAL.
+ *
+ * @param drive
+ *                  The drive object whose encoders and transmission are used
+ */
+public VelocityBrake (Drive drive)
+{
+    this.drive = drive;
+    this.leftPID.setSetpoint(0);
+    this.rightPID.setSetpoint(0);
+}
+
+/**
+ * Begins braking. The motors are controlled by the brake's own loop until
+ * isFinished() returns true or cancel() is called.
+ *
+ * @param maxPower
+ *                     The most power the brake may send to the motors (0.0 to
+ *                     1.0)
+ */
+public synchronized void start (double maxPower)
+{
+    if (this.running == true)
+        return;
+
+    this.leftPID.reset();
+    this.rightPID.reset();
+    this.leftPID.setOutputRange(-Math.abs(maxPower), Math.abs(maxPower));
+    this.rightPID.setOutputRange(-Math.abs(maxPower),
+            Math.abs(maxPower));
+
+    this.startLeftDistance = this.drive
+            .getEncoderDistanceAverage(MotorPosition.LEFT);
+    this.startRightDistance = this.drive
+            .getEncoderDistanceAverage(MotorPosition.RIGHT);
+    this.startTime = this.drive.getClock().getSeconds();
+    this.lastLoopTime = this.startTime;
+    this.samplesBelowThreshold = 0;
+    this.finished = false;
+    this.running = true;
+
+    this.scheduler.add(this.brakeLoop, this.loopPeriod);
+}
+
+/**
+ * Stops the brake's loop without waiting for the robot to stop, and stops
+ * the motors. A step of the loop already running in the scheduler's thread
+ * finishes first, so no brake power is sent after this returns.
+ */
+public synchronized void cancel ()
+{
+    if (this.running == false)
+        return;
+
+    this.scheduler.remove(this.brakeLoop);
+    this.running = false;
+    this.drive.getTransmission().stop();
+}
+
+/**
+ * One step of the velocity loop. Runs in the scheduler's thread, under the
+ * same lock as cancel(), since the scheduler may still run a step that
+ * started before the loop was removed.
+ */
+private synchronized void loop ()
+{
+    if (this.running == false)
+        return;
+
+    double now = this.drive.getClock().getSeconds();
+    double dt = now - this.lastLoopTime;
+    this.lastLoopTime = now;
+
+    double leftRate = this.drive.getEncoderRate(MotorPosition.LEFT);
+    double rightRate = this.drive.getEncoderRate(MotorPosition.RIGHT);
+
+    if (Math.abs(leftRate) <= this.stopVelocity
+            && Math.abs(rightRate) <= this.stopVelocity)
+        this.samplesBelowThreshold++;
+    else
+        this.samplesBelowThreshold = 0;
+
+    if (this.samplesBelowThreshold >= this.samplesToFinish
+            || now - this.startTime > this.timeout)
+        {
+        this.finish(now);
+        return;
+        }
+
+    this.drive.getTransmission().driveRaw(
+            this.leftPID.calculate(leftRate, dt),
+            this.rightPID.calculate(rightRate, dt));
+}
+
+/**
+ * Stops the motors and the loop, and records how long and how far it took.
+ *
+ * @param now
+ *                The current time from Drive's clock, in seconds.
+ */
+private synchronized void finish (double now)
+{
+    this.drive.getTransmission().stop();
+    this.scheduler.remove(this.brakeLoop);
+
+    this.lastStoppingTime = now - this.startTime;
+    this.lastStoppingDistance = (Math.abs(this.drive
+            .getEncoderDistanceAverage(MotorPosition.LEFT)
+            - this.startLeftDistance)
+            + Math.abs(this.drive
+                    .getEncoderDistanceAverage(MotorPosition.RIGHT)
+                    - this.startRightDistance))
+            / 2.0;
+
+    this.running = false;
+    this.finished = true;
+}
+
+/**
+ * @return Whether or not the brake's loop is controlling the motors.
+ */
+public boolean isRunning ()
+{
+    return this.running;
+}
+
+/**
+ * @return Whether or not the last brake finished on its own. Cleared by
+ *         start().
+ */
+public boolean isFinished ()
+{
+    return this.finished;
+}
+
+/**
+ * @return How far the robot traveled during the last finished brake, in
+ *         inches (the average of both sides).
+ */
+public double getLastStoppingDistance ()
+{
+    return this.lastStoppingDistance;
+}
+
+/**
+ * @return How long the last finished brake took, in seconds.
+ */
+public double getLastStoppingTime ()
+{
+    return this.lastStoppingTime;
+}
+
+/**
+ * Sets the gains of the velocity loop used on each side.
+ *
+ * @param p
+ *              Percent per (inch per second) of error
+ * @param i
+ *              Percent per inch of accumulated error
+ * @param d
+ *              Percent per (inch per second squared)
+ */
+public void setPID (double p, double i, double d)
+{
+    this.leftPID.setPID(p, i, d);
+    this.rightPID.setPID(p, i, d);
+}
+
+/**
+ * Sets how slow both sides must be going for the robot to be considered
+ * stopped.
+ *
+ * @param inchesPerSecond
+ *                            The stop threshold
+ * @param samples
+ *                            How many loops in a row both sides must be under
+ *                            the threshold
+ */
+public void setStopThreshold (double inchesPerSecond, int samples)
+{
+    this.stopVelocity = Math.abs(inchesPerSecond);
+    this.samplesToFinish = Math.max(1, samples);
+}
+
+/**
+ * Sets how often the brake's loop runs. Takes effect on the next brake.
+ *
+ * @param seconds
+ *                    Loop period, in seconds (.005 is 200Hz)
+ */
+public void setLoopPeriod (double seconds)
+{
+    this.loopPeriod = seconds;
+}
+
+/**
+ * Sets what runs the brake's loop. Takes effect on the next brake.
+ *
+ * @param scheduler
+ *                      LoopScheduler.getDefault() by default. A simulation
+ *                      gives its own, and steps it with runOnce().
+ */
+public void setScheduler (LoopScheduler scheduler)
+{
+    if (this.running == false)
+        this.scheduler = scheduler;
+}
+
+/**
+ * Sets the longest the brake is allowed to run before giving up.
+ *
+ * @param seconds
+ *                    Timeout, in seconds
+ */
+public void setTimeout (double seconds)
+{
+    this.timeout = seconds;
+}
+
+// ================VARIABLES================
+
+private final Drive drive;
+
+private final PIDLoop leftPID = new PIDLoop(.02, 0, 0);
+
+private final PIDLoop rightPID = new PIDLoop(.02, 0, 0);
+
+private LoopScheduler scheduler = LoopScheduler.getDefault();
+
+// The same object every time, so the scheduler can find it to remove it
+private final Runnable brakeLoop = this::loop;
+
+private volatile boolean running = false;
+
+private volatile boolean finished = false;
+
+private double startLeftDistance = 0;
+
+private double startRightDistance = 0;
+
+private double startTime = 0; // Seconds
+
+private double lastLoopTime = 0; // Seconds
+
+private int samplesBelowThreshold = 0;
+
+private volatile double lastStoppingDistance = 0; // Inches
+
+private volatile double lastStoppingTime = 0; // Seconds
+
+// TUNABLES
+private double loopPeriod = .005; // Seconds
+
+private double stopVelocity = 2; // Inches per second
+
+private int samplesToFinish = 3;
+
+private double timeout = 1.0; // Seconds
+}
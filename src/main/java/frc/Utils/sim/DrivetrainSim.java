@@ -0,0 +1,513 @@
+package frc.Utils.sim;
+
+import java.util.function.BooleanSupplier;
+import edu.wpi.first.wpilibj.SpeedControllerGroup;
+import frc.HardwareInterfaces.KilroyEncoder;
+import frc.HardwareInterfaces.Simulation.SimulatedEncoder;
+import frc.HardwareInterfaces.Simulation.SimulatedGyro;
+import frc.HardwareInterfaces.Simulation.SimulatedMotor;
+import frc.HardwareInterfaces.Transmission.TankTransmission;
+import frc.Utils.DCMotorModel;
+import frc.Utils.drive.Drive;
+
+/**
+ * A physics model of a tank (differential) drivetrain, for running Drive and
+ * the transmissions without a robot.
+ *
+ * The simulation owns one SimulatedMotor per side, one SimulatedEncoder per
+ * side and a SimulatedGyro. Build the robot code out of those the same way
+ * Hardware does with real parts:
+ *
+ * <pre>
+ * DrivetrainSim sim = new DrivetrainSim(DCMotorModel.cim(2, 10.71), 120, 6,
+ *         25, new VirtualClock());
+ * KilroyEncoder left = new KilroyEncoder(sim.getLeftEncoder());
+ * KilroyEncoder right = new KilroyEncoder(sim.getRightEncoder());
+ * Drive drive = new Drive(
+ *         new TankTransmission(new SpeedControllerGroup(sim.getLeftMotor()),
+ *                 new SpeedControllerGroup(sim.getRightMotor())),
+ *         left, right, sim.getGyro());
+ * drive.setClock(sim.getClock());
+ *
+ * boolean done = sim.runUntil(
+ *         () -> drive.driveStraightInches(48, .5, .6, false), 5);
+ * </pre>
+ *
+ * Nothing here waits on a real clock: runUntil() calls the robot code every
+ * loop period of VIRTUAL time, stepping the physics in between, so a 15
+ * second autonomous takes a few milliseconds to run.
+ *
+ * Positive motor output (after inversion) drives that side of the robot
+ * forwards, so unlike on the robot, the right side should not be inverted.
+ * The encoders read inches and inches per second, and the gyro reads degrees,
+ * positive clockwise.
+ *
+ * WPILib registers the gyro and the SpeedControllerGroups with LiveWindow,
+ * which needs its desktop native libraries, so run anything built on this
+ * through the build (./gradlew drivetrainSim runs main()).
+ *
+ * @author Kilroy
+ */
+public class DrivetrainSim
+{
+/**
+ * Creates the DrivetrainSim object.
+ *
+ * @param sideGearbox
+ *                           The motors and gearing of ONE side
+ * @param massPounds
+ *                           Weight of the robot, with battery and bumpers
+ * @param wheelDiameter
+ *                           Diameter of the wheels, in inches
+ * @param trackWidth
+ *                           Distance between the left and right wheels, in
+ *                           inches
+ * @param clock
+ *                           The clock the simulation advances as it runs
+ */
+public DrivetrainSim (DCMotorModel sideGearbox, double massPounds,
+        double wheelDiameter, double trackWidth, VirtualClock clock)
+{
+    this.gearbox = sideGearbox;
+    this.mass = massPounds * KG_PER_POUND;
+    this.wheelRadius = wheelDiameter / 2 * METERS_PER_INCH;
+    this.trackWidth = trackWidth * METERS_PER_INCH;
+    this.clock = clock;
+
+    // Treat the robot as a square plate as wide as its track width
+    this.momentOfInertia = this.mass * this.trackWidth * this.trackWidth
+            / 6;
+}
+
+/**
+ * Moves the simulation forwards, reading the motors and updating the
+ * encoders, gyro and clock.
+ *
+ * @param dt
+ *               How far to move, in seconds. Keep this around a millisecond
+ *               for accuracy.
+ */
+public void step (double dt)
+{
+    double halfTrack = this.trackWidth / 2;
+
+    // Battery voltage sags with the current drawn last step
+    double volts = this.batteryVoltage
+            - (this.batteryResistance * this.totalCurrent);
+
+    double leftVolts = this.leftMotor.getOutput() * volts;
+    double rightVolts = this.rightMotor.getOutput() * volts;
+
+    double leftWheelSpeed = this.leftVelocity / this.wheelRadius;
+    double rightWheelSpeed = this.rightVelocity / this.wheelRadius;
+
+    this.totalCurrent = Math
+            .abs(this.gearbox.getCurrent(leftVolts, leftWheelSpeed))
+            + Math.abs(this.gearbox.getCurrent(rightVolts,
+                    rightWheelSpeed));
+
+    double leftForce = this.gearbox.getTorque(leftVolts, leftWheelSpeed)
+            / this.wheelRadius;
+    double rightForce = this.gearbox.getTorque(rightVolts,
+            rightWheelSpeed) / this.wheelRadius;
+
+    // Rolling resistance, split evenly between the sides
+    leftForce -= this.frictionForce(this.leftVelocity, leftForce);
+    rightForce -= this.frictionForce(this.rightVelocity, rightForce);
+
+    double linearVelocity = (this.leftVelocity + this.rightVelocity) / 2;
+    // Clockwise positive, like the gyro
+    double angularVelocity = (this.leftVelocity - this.rightVelocity)
+            / this.trackWidth;
+
+    linearVelocity += (leftForce + rightForce) / this.mass * dt;
+    angularVelocity += ((leftForce - rightForce) * halfTrack)
+            / this.momentOfInertia * dt;
+
+    this.leftVelocity = linearVelocity + (angularVelocity * halfTrack);
+    this.rightVelocity = linearVelocity - (angularVelocity * halfTrack);
+
+    this.leftPosition += this.leftVelocity * dt;
+    this.rightPosition += this.rightVelocity * dt;
+    this.heading += angularVelocity * dt;
+    this.x += linearVelocity * Math.sin(this.heading) * dt;
+    this.y += linearVelocity * Math.cos(this.heading) * dt;
+
+    this.leftEncoder.update(this.leftPosition / METERS_PER_INCH,
+            this.leftVelocity / METERS_PER_INCH);
+    this.rightEncoder.update(this.rightPosition / METERS_PER_INCH,
+            this.rightVelocity / METERS_PER_INCH);
+    this.gyro.update(Math.toDegrees(this.heading),
+            Math.toDegrees(angularVelocity));
+
+    this.clock.advance(dt);
+}
+
+/**
+ * How much of the driving force on one side is used up by rolling
+ * resistance. A side that is stopped and not pushed hard enough stays
+ * stopped.
+ *
+ * @param velocity
+ *                     Speed of the side, in meters per second
+ * @param force
+ *                     Force from the motors on the side, in newtons
+ * @return The friction force, in the direction it opposes
+ */
+private double frictionForce (double velocity, double force)
+{
+    double friction = this.rollingResistance * this.mass * GRAVITY / 2;
+
+    if (Math.abs(velocity) > 1e-4)
+        return Math.copySign(friction, velocity);
+
+    // Static: cancel the motor's force, up to the friction limit
+    return Math.max(-friction, Math.min(friction, force));
+}
+
+/**
+ * Runs the robot code and the physics together for a length of virtual time.
+ *
+ * @param loop
+ *                    The robot code to run once per loop period, such as
+ *                    Autonomous.periodic()
+ * @param seconds
+ *                    How long to run, in virtual seconds
+ */
+public void run (Runnable loop, double seconds)
+{
+    long end = this.clock.nanoTime() + Math.round(seconds * 1e9);
+
+    while (this.clock.nanoTime() < end)
+        {
+        loop.run();
+        this.stepLoop();
+        }
+}
+
+/**
+ * Runs the robot code and the physics together until the robot code says it
+ * is done, or the timeout runs out. Made for the Drive functions that return
+ * true when finished.
+ *
+ * @param loop
+ *                    The robot code to run once per loop period. Returns
+ *                    true when finished.
+ * @param timeout
+ *                    The longest to run, in virtual seconds
+ * @return Whether or not the robot code finished before the timeout.
+ */
+public boolean runUntil (BooleanSupplier loop, double timeout)
+{
+    long end = this.clock.nanoTime() + Math.round(timeout * 1e9);
+
+    while (this.clock.nanoTime() < end)
+        {
+        if (loop.getAsBoolean() == true)
+            return true;
+        this.stepLoop();
+        }
+
+    return false;
+}
+
+/**
+ * Steps the physics for one loop period.
+ */
+private void stepLoop ()
+{
+    int steps = Math.max(1,
+            (int) Math.round(this.loopPeriod / this.physicsPeriod));
+    double dt = this.loopPeriod / steps;
+
+    for (int i = 0; i < steps; i++)
+        this.step(dt);
+
+    this.loopCount++;
+}
+
+/**
+ * Puts the robot back at the start, stopped, facing forwards. The clock is
+ * not changed.
+ */
+public void reset ()
+{
+    this.leftVelocity = 0;
+    this.rightVelocity = 0;
+    this.leftPosition = 0;
+    this.rightPosition = 0;
+    this.heading = 0;
+    this.x = 0;
+    this.y = 0;
+    this.totalCurrent = 0;
+    this.leftMotor.set(0);
+    this.rightMotor.set(0);
+    this.leftEncoder.update(0, 0);
+    this.rightEncoder.update(0, 0);
+    this.gyro.update(0, 0);
+}
+
+/**
+ * @return The motor(s) of the left side
+ */
+public SimulatedMotor getLeftMotor ()
+{
+    return this.leftMotor;
+}
+
+/**
+ * @return The motor(s) of the right side
+ */
+public SimulatedMotor getRightMotor ()
+{
+    return this.rightMotor;
+}
+
+/**
+ * @return The encoder of the left side, in inches
+ */
+public SimulatedEncoder getLeftEncoder ()
+{
+    return this.leftEncoder;
+}
+
+/**
+ * @return The encoder of the right side, in inches
+ */
+public SimulatedEncoder getRightEncoder ()
+{
+    return this.rightEncoder;
+}
+
+/**
+ * @return The robot's gyro, in degrees
+ */
+public SimulatedGyro getGyro ()
+{
+    return this.gyro;
+}
+
+/**
+ * @return The clock the simulation advances
+ */
+public VirtualClock getClock ()
+{
+    return this.clock;
+}
+
+/**
+ * @return How far the robot has moved sideways from the start, in inches.
+ *         Positive is to the right of where it started facing.
+ */
+public double getX ()
+{
+    return this.x / METERS_PER_INCH;
+}
+
+/**
+ * @return How far the robot has moved forwards from the start, in inches.
+ */
+public double getY ()
+{
+    return this.y / METERS_PER_INCH;
+}
+
+/**
+ * @return The robot's true heading, in degrees clockwise.
+ */
+public double getHeading ()
+{
+    return Math.toDegrees(this.heading);
+}
+
+/**
+ * @return The current drawn by the drivetrain last step, in amps
+ */
+public double getCurrent ()
+{
+    return this.totalCurrent;
+}
+
+/**
+ * @return How many times the robot code has been run
+ */
+public long getLoopCount ()
+{
+    return this.loopCount;
+}
+
+/**
+ * Sets how often the robot code is run, in virtual time.
+ *
+ * @param seconds
+ *                    Loop period, in seconds. .02 like TimedRobot by
+ *                    default.
+ */
+public void setLoopPeriod (double seconds)
+{
+    this.loopPeriod = seconds;
+}
+
+/**
+ * Sets the length of each physics step.
+ *
+ * @param seconds
+ *                    Physics period, in seconds. .001 by default.
+ */
+public void setPhysicsPeriod (double seconds)
+{
+    this.physicsPeriod = seconds;
+}
+
+/**
+ * Sets the robot's resistance to turning, if the square plate guess is not
+ * close enough.
+ *
+ * @param kilogramMetersSquared
+ *                                  Moment of inertia about the center of the
+ *                                  robot
+ */
+public void setMomentOfInertia (double kilogramMetersSquared)
+{
+    this.momentOfInertia = kilogramMetersSquared;
+}
+
+/**
+ * Sets how hard it is to roll the robot along the carpet.
+ *
+ * @param coefficient
+ *                        Rolling resistance coefficient (.02 is typical
+ *                        for pneumatic wheels on carpet)
+ */
+public void setRollingResistance (double coefficient)
+{
+    this.rollingResistance = coefficient;
+}
+
+/**
+ * Sets the battery the motors are run from.
+ *
+ * @param volts
+ *                     Resting voltage of the battery
+ * @param ohms
+ *                     Internal resistance of the battery and wiring
+ */
+public void setBattery (double volts, double ohms)
+{
+    this.batteryVoltage = volts;
+    this.batteryResistance = ohms;
+}
+
+/**
+ * Wires Drive to the simulation the way the class description shows, drives
+ * it straight 48 inches, and prints how far it went. Exits with 1 if the
+ * drive never finished, or finished more than MAX_DRIVE_ERROR away, so the
+ * build fails.
+ *
+ * <pre>
+ * ./gradlew drivetrainSim
+ * </pre>
+ *
+ * @param args
+ *                 Not used
+ */
+public static void main (String[] args)
+{
+    DrivetrainSim sim = new DrivetrainSim(DCMotorModel.cim(2, 10.71), 120,
+            6, 25, new VirtualClock());
+    Drive drive = new Drive(
+            new TankTransmission(new SpeedControllerGroup(sim.getLeftMotor()),
+                    new SpeedControllerGroup(sim.getRightMotor())),
+            new KilroyEncoder(sim.getLeftEncoder()),
+            new KilroyEncoder(sim.getRightEncoder()), sim.getGyro());
+    drive.setClock(sim.getClock());
+
+    boolean done = sim.runUntil(
+            () -> drive.driveStraightInches(48, .5, .6, true), 5);
+    double finishedAt = sim.getY();
+    long loops = sim.getLoopCount();
+
+    // The motors are only stopped, not braked, so it coasts
+    sim.run(() ->
+        {
+        }, 1);
+
+    double error = finishedAt - 48;
+    System.out.println("Finished: " + done + " at "
+            + Math.round(finishedAt * 100) / 100.0 + " in, after "
+            + loops + " loops; coasted to "
+            + Math.round(sim.getY() * 100) / 100.0 + " in forwards, "
+            + Math.round(sim.getX() * 100) / 100.0 + " in sideways, heading "
+            + Math.round(sim.getHeading() * 100) / 100.0 + " degrees");
+
+    if (done == false || Math.abs(error) > MAX_DRIVE_ERROR)
+        {
+        System.out.println("Missed 48 inches by more than "
+                + MAX_DRIVE_ERROR);
+        System.exit(1);
+        }
+}
+
+// ================VARIABLES================
+
+// How far from its distance main()'s drive may stop, in inches
+private static final double MAX_DRIVE_ERROR = 6;
+
+private static final double KG_PER_POUND = .45359237;
+
+private static final double METERS_PER_INCH = .0254;
+
+private static final double GRAVITY = 9.81; // Meters per second squared
+
+private final DCMotorModel gearbox;
+
+private final double mass; // Kilograms
+
+private final double wheelRadius; // Meters
+
+private final double trackWidth; // Meters
+
+private final VirtualClock clock;
+
+private final SimulatedMotor leftMotor = new SimulatedMotor();
+
+private final SimulatedMotor rightMotor = new SimulatedMotor();
+
+private final SimulatedEncoder leftEncoder = new SimulatedEncoder();
+
+private final SimulatedEncoder rightEncoder = new SimulatedEncoder();
+
+private final SimulatedGyro gyro = new SimulatedGyro();
+
+// State, in SI units
+private double leftVelocity = 0;
+
+private double rightVelocity = 0;
+
+private double leftPosition = 0;
+
+private double rightPosition = 0;
+
+private double heading = 0; // Radians, clockwise
+
+private double x = 0;
+
+private double y = 0;
+
+private double totalCurrent = 0; // Amps
+
+private long loopCount = 0;
+
+// TUNABLES
+private double momentOfInertia; // Kilogram meters squared
+
+private double rollingResistance = .02;
+
+private double batteryVoltage = 12.5;
+
+private double batteryResistance = .015; // Ohms
+
+private double loopPeriod = .02; // Seconds
+
+private double physicsPeriod = .001; // Seconds
+}
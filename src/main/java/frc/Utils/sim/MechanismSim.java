@@ -0,0 +1,335 @@
+package frc.Utils.sim;
+
+import frc.HardwareInterfaces.Simulation.SimulatedEncoder;
+import frc.HardwareInterfaces.Simulation.SimulatedMotor;
+import frc.Utils.DCMotorModel;
+
+/**
+ * A physics model of one mechanism driven by a DC motor gearbox, for running
+ * PID code without a robot: a flywheel (or any plain motor and load), an
+ * arm, an elevator, or one side of a drivetrain.
+ *
+ * The simulation owns a SimulatedMotor and a SimulatedEncoder. Build the
+ * robot code out of them the way Hardware does with real parts:
+ *
+ * <pre>
+ * MechanismSim arm = MechanismSim.arm(DCMotorModel.neo(1, 100), 10, 20);
+ * KilroyPID armPID = new KilroyPID(arm.getMotor(),
+ *         new KilroyEncoder(arm.getEncoder()), harness.getScheduler());
+ * </pre>
+ *
+ * or hand getPosition() and setOutput() to a ScheduledPID directly.
+ * PIDSimHarness steps it along with the robot code.
+ *
+ * Each kind of mechanism reads in the units the robot code would use:
+ * flywheels in rotations (and rotations per second), arms in degrees from
+ * level, elevators and drivetrain sides in inches. Positive output moves the
+ * mechanism in the positive direction (an arm up, an elevator up).
+ *
+ * @author Kilroy
+ */
+public class MechanismSim
+{
+/**
+ * Creates a MechanismSim. Use the factory methods unless the mechanism is
+ * like none of them.
+ *
+ * @param gearbox
+ *                             The motors and gearing
+ * @param inertia
+ *                             Moment of inertia at the gearbox output, in kg
+ *                             m^2
+ * @param gravityTorque
+ *                             Torque gravity puts on the output, in newton
+ *                             meters (at its worst, for an arm)
+ * @param armGravity
+ *                             true if gravity's torque goes with the cosine
+ *                             of the angle (an arm), false if it is the same
+ *                             everywhere
+ * @param unitsPerRadian
+ *                             What one radian of the gearbox output reads as
+ *                             on the encoder
+ */
+public MechanismSim (DCMotorModel gearbox, double inertia,
+        double gravityTorque, boolean armGravity, double unitsPerRadian)
+{
+    this.gearbox = gearbox;
+    this.inertia = inertia;
+    this.gravityTorque = gravityTorque;
+    this.armGravity = armGravity;
+    this.unitsPerRadian = unitsPerRadian;
+}
+
+/**
+ * @param gearbox
+ *                                  The motors and gearing
+ * @param momentOfInertiaLbIn2
+ *                                  The wheel's moment of inertia, in pound
+ *                                  square inches
+ * @return A flywheel (or roller), read in rotations
+ */
+public static MechanismSim flywheel (DCMotorModel gearbox,
+        double momentOfInertiaLbIn2)
+{
+    return new MechanismSim(gearbox,
+            momentOfInertiaLbIn2 * KG_PER_POUND * METERS_PER_INCH
+                    * METERS_PER_INCH,
+            0, false, 1 / (2 * Math.PI));
+}
+
+/**
+ * @param gearbox
+ *                         The motors and gearing
+ * @param massPounds
+ *                         The arm and whatever it carries
+ * @param lengthInches
+ *                         From the pivot to the arm's center of mass
+ * @return An arm, read in degrees from level, starting level
+ */
+public static MechanismSim arm (DCMotorModel gearbox, double massPounds,
+        double lengthInches)
+{
+    double mass = massPounds * KG_PER_POUND;
+    double length = lengthInches * METERS_PER_INCH;
+    return new MechanismSim(gearbox, mass * length * length,
+            mass * GRAVITY * length, true, 180 / Math.PI);
+}
+
+/**
+ * @param gearbox
+ *                               The motors and gearing
+ * @param massPounds
+ *                               The carriage and whatever it carries
+ * @param drumDiameterInches
+ *                               The drum or sprocket the cable or chain
+ *                               winds on
+ * @return An elevator, read in inches, starting at the bottom, which it
+ *         can't go below
+ */
+public static MechanismSim elevator (DCMotorModel gearbox, double massPounds,
+        double drumDiameterInches)
+{
+    double mass = massPounds * KG_PER_POUND;
+    double radius = drumDiameterInches / 2 * METERS_PER_INCH;
+    MechanismSim elevator = new MechanismSim(gearbox, mass * radius * radius,
+            mass * GRAVITY * radius, false, drumDiameterInches / 2);
+    elevator.setLimits(0, Double.MAX_VALUE);
+    return elevator;
+}
+
+/**
+ * @param gearbox
+ *                                The motors and gearing of ONE side
+ * @param robotMassPounds
+ *                                The whole robot; each side moves half
+ * @param wheelDiameterInches
+ *                                The drive wheels
+ * @return One side of a drivetrain driving straight, read in inches, with
+ *         rolling resistance
+ */
+public static MechanismSim drivetrainSide (DCMotorModel gearbox,
+        double robotMassPounds, double wheelDiameterInches)
+{
+    double mass = robotMassPounds / 2 * KG_PER_POUND;
+    double radius = wheelDiameterInches / 2 * METERS_PER_INCH;
+    MechanismSim side = new MechanismSim(gearbox, mass * radius * radius, 0,
+            false, wheelDiameterInches / 2);
+    side.setFriction(ROLLING_RESISTANCE * mass * GRAVITY * radius);
+    return side;
+}
+
+/**
+ * Moves the simulation forwards, reading the motor and updating the
+ * encoder.
+ *
+ * @param dt
+ *               How far to move, in seconds. Keep this around a millisecond
+ *               for accuracy.
+ */
+public void step (double dt)
+{
+    double volts = this.motor.getOutput() * this.batteryVoltage;
+
+    double torque = this.gearbox.getTorque(volts, this.velocity)
+            - this.getGravityTorque();
+    torque -= this.frictionTorque(torque);
+
+    this.velocity += torque / this.inertia * dt;
+    this.angle += this.velocity * dt;
+
+    // Hard stops take all of the speed
+    if (this.angle < this.minAngle)
+        {
+        this.angle = this.minAngle;
+        this.velocity = Math.max(0, this.velocity);
+        }
+    else
+        if (this.angle > this.maxAngle)
+            {
+            this.angle = this.maxAngle;
+            this.velocity = Math.min(0, this.velocity);
+            }
+
+    this.encoder.update(this.angle * this.unitsPerRadian,
+            this.velocity * this.unitsPerRadian);
+}
+
+/**
+ * @return Gravity's torque on the output where the mechanism is now, in
+ *         newton meters
+ */
+private double getGravityTorque ()
+{
+    if (this.armGravity == true)
+        return this.gravityTorque * Math.cos(this.angle);
+    return this.gravityTorque;
+}
+
+/**
+ * How much of the torque on the output is used up by friction. A mechanism
+ * that is stopped and not pushed hard enough stays stopped.
+ */
+private double frictionTorque (double torque)
+{
+    if (Math.abs(this.velocity) > 1e-4)
+        return Math.copySign(this.friction, this.velocity);
+
+    // Static: cancel the push, up to the friction limit
+    return Math.max(-this.friction, Math.min(this.friction, torque));
+}
+
+/**
+ * Puts the mechanism back, stopped, at a position. Nothing else is changed.
+ *
+ * @param position
+ *                     Where to start, in the mechanism's units
+ */
+public void reset (double position)
+{
+    this.angle = position / this.unitsPerRadian;
+    this.velocity = 0;
+    this.motor.set(0);
+    this.encoder.update(position, 0);
+}
+
+/**
+ * Adds hard stops the mechanism can't move past.
+ *
+ * @param minimum
+ *                    The lowest position, in the mechanism's units
+ * @param maximum
+ *                    The highest position, in the mechanism's units
+ */
+public void setLimits (double minimum, double maximum)
+{
+    this.minAngle = minimum / this.unitsPerRadian;
+    this.maxAngle = maximum / this.unitsPerRadian;
+}
+
+/**
+ * @param torque
+ *                   Friction at the gearbox output, in newton meters. 0 by
+ *                   default, except for drivetrain sides.
+ */
+public void setFriction (double torque)
+{
+    this.friction = Math.abs(torque);
+}
+
+/**
+ * @param volts
+ *                  What full output gives the motors. 12 by default.
+ */
+public void setBatteryVoltage (double volts)
+{
+    this.batteryVoltage = volts;
+}
+
+/**
+ * @param output
+ *                   Motor power, -1 to 1. The same as getMotor().set().
+ */
+public void setOutput (double output)
+{
+    this.motor.set(output);
+}
+
+/**
+ * @return Where the mechanism is, in its units
+ */
+public double getPosition ()
+{
+    return this.angle * this.unitsPerRadian;
+}
+
+/**
+ * @return How fast the mechanism is moving, in its units per second
+ */
+public double getVelocity ()
+{
+    return this.velocity * this.unitsPerRadian;
+}
+
+/**
+ * @return The voltage that holds the mechanism still against gravity (level,
+ *         for an arm). The kG of an ArmFeedforward or ElevatorFeedforward.
+ */
+public double getGravityVolts ()
+{
+    return this.gravityTorque / this.gearbox.getTorque(1, 0);
+}
+
+/**
+ * @return The motor the robot code drives
+ */
+public SimulatedMotor getMotor ()
+{
+    return this.motor;
+}
+
+/**
+ * @return The encoder on the mechanism, in its units
+ */
+public SimulatedEncoder getEncoder ()
+{
+    return this.encoder;
+}
+
+// ================VARIABLES================
+
+private static final double KG_PER_POUND = .45359237;
+
+private static final double METERS_PER_INCH = .0254;
+
+private static final double GRAVITY = 9.81; // Meters per second squared
+
+// Rolling resistance of a drivetrain, as a fraction of its weight
+private static final double ROLLING_RESISTANCE = .015;
+
+private final DCMotorModel gearbox;
+
+private final double inertia; // kg m^2
+
+private final double gravityTorque; // Newton meters
+
+private final boolean armGravity;
+
+private final double unitsPerRadian;
+
+private final SimulatedMotor motor = new SimulatedMotor();
+
+private final SimulatedEncoder encoder = new SimulatedEncoder();
+
+private double angle = 0; // Radians, at the gearbox output
+
+private double velocity = 0; // Radians per second
+
+// TUNABLES
+private double friction = 0; // Newton meters
+
+private double batteryVoltage = 12;
+
+private double minAngle = -Double.MAX_VALUE; // Radians
+
+private double maxAngle = Double.MAX_VALUE; // Radians
+}
@@ -0,0 +1,378 @@
+package frc.Utils.sim;
+
+import java.util.ArrayList;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+import frc.Utils.ArmFeedforward;
+import frc.Utils.DCMotorModel;
+import frc.Utils.LoopScheduler;
+import frc.Utils.ScheduledPID;
+import frc.Utils.StepResponse;
+
+/**
+ * Runs the robot's PID code against MechanismSim plants on a VirtualClock, so
+ * a scripted sequence of setpoints takes milliseconds instead of a robot and
+ * a practice field. Thousands of gain sets can be tried in the time it takes
+ * to deploy once, and a change to the loop code that makes a mechanism slower
+ * or bouncier shows up as a number.
+ *
+ * The harness owns a LoopScheduler with no thread of its own. Make the
+ * controller on getScheduler() (ScheduledPID, CascadedPositionController,
+ * PIDVelocityController or an on-RIO KilroyPID all take one), add() the
+ * mechanisms it drives, and runSequence():
+ *
+ * <pre>
+ * PIDSimHarness harness = new PIDSimHarness(.005);
+ * MechanismSim arm = MechanismSim.arm(DCMotorModel.neo(1, 100), 10, 20);
+ * harness.add(arm);
+ * ScheduledPID armPID = new ScheduledPID(arm::getPosition, arm::setOutput,
+ *         harness.getScheduler());
+ * armPID.setPID(.05, 0, .002);
+ * armPID.enable();
+ * harness.runSequence(armPID::setSetpoint, arm::getPosition,
+ *         new double[] {45, 90, 0}, 2, 1);
+ * System.out.println(harness);
+ * </pre>
+ *
+ * Each scheduler tick runs the robot code first (it reads the sensors and
+ * sets the motors) and then the physics for one period, in steps of about a
+ * millisecond. Every step of the sequence is measured with a StepResponse,
+ * plus the steady-state error: the average error over the last fifth of the
+ * step.
+ *
+ * main() sweeps an arm's gains as an example, and exits with an error when
+ * the best score is worse than a limit. The build runs it as part of check
+ * (./gradlew pidSimHarness on its own).
+ *
+ * @author Kilroy
+ */
+public class PIDSimHarness
+{
+/**
+ * Creates the PIDSimHarness object.
+ *
+ * @param periodSeconds
+ *                          How often the robot code runs, in seconds; the
+ *                          scheduler's period
+ */
+public PIDSimHarness (double periodSeconds)
+{
+    this.scheduler = new LoopScheduler(periodSeconds, false);
+    this.scheduler.setClock(this.clock);
+    this.substeps = Math.max(1,
+            (int) Math.round(periodSeconds / PHYSICS_STEP));
+    this.physicsStep = periodSeconds / this.substeps;
+}
+
+/**
+ * @param mechanism
+ *                      A plant to move along with the clock
+ */
+public void add (MechanismSim mechanism)
+{
+    this.mechanisms.add(mechanism);
+}
+
+/**
+ * Runs the robot code and the physics, with no setpoint changes.
+ *
+ * @param seconds
+ *                    How long to run, in simulated seconds
+ */
+public void run (double seconds)
+{
+    long ticks = Math.round(seconds / this.scheduler.getPeriod());
+    for (long i = 0; i < ticks; i++)
+        this.tick();
+}
+
+/**
+ * Runs one scheduler tick: the robot code, then one period of physics.
+ */
+private void tick ()
+{
+    this.scheduler.runOnce();
+    for (int step = 0; step < this.substeps; step++)
+        {
+        for (MechanismSim mechanism : this.mechanisms)
+            mechanism.step(this.physicsStep);
+        this.clock.advance(this.physicsStep);
+        }
+}
+
+/**
+ * Steps the setpoint through a list, holding each one for the same time, and
+ * measures every step. The results replace the last sequence's.
+ *
+ * @param setpoint
+ *                          Where each setpoint goes, such as
+ *                          ScheduledPID::setSetpoint
+ * @param measurement
+ *                          What is being controlled, in the setpoint's units
+ * @param setpoints
+ *                          The setpoints, in order
+ * @param secondsEach
+ *                          How long each setpoint is held, in simulated
+ *                          seconds
+ * @param tolerance
+ *                          How close to the setpoint counts as settled
+ */
+public void runSequence (DoubleConsumer setpoint, DoubleSupplier measurement,
+        double[] setpoints, double secondsEach, double tolerance)
+{
+    int steps = setpoints.length;
+    this.setpoints = setpoints.clone();
+    this.riseTimes = new double[steps];
+    this.settleTimes = new double[steps];
+    this.overshoots = new double[steps];
+    this.steadyStateErrors = new double[steps];
+
+    long ticks = Math.max(1, Math.round(secondsEach
+            / this.scheduler.getPeriod()));
+    long steadyTicks = Math.max(1,
+            Math.round(ticks * STEADY_STATE_FRACTION));
+    StepResponse response = new StepResponse(tolerance);
+
+    for (int i = 0; i < steps; i++)
+        {
+        response.start(measurement.getAsDouble(), setpoints[i],
+                this.clock.getSeconds());
+        setpoint.accept(setpoints[i]);
+
+        double errorSum = 0;
+        for (long tick = 0; tick < ticks; tick++)
+            {
+            this.tick();
+            double value = measurement.getAsDouble();
+            response.update(value, this.clock.getSeconds());
+            if (tick >= ticks - steadyTicks)
+                errorSum += Math.abs(setpoints[i] - value);
+            }
+
+        this.riseTimes[i] = response.getRiseTime();
+        this.settleTimes[i] = response.getSettleTime();
+        this.overshoots[i] = response.getOvershootPercent();
+        this.steadyStateErrors[i] = errorSum / steadyTicks;
+        }
+}
+
+/**
+ * Sums the last sequence up in one number, to compare gains with: for every
+ * step, the rise time plus a penalty for every percent of overshoot, the
+ * same as StepResponse.getScore(). Lower is better.
+ *
+ * @param secondsPerPercent
+ *                              How much one percent of overshoot counts
+ *                              against the gains, in seconds of rise time
+ * @return The score, in seconds, or Double.MAX_VALUE if any step never
+ *         reached 90% of the way
+ */
+public double getScore (double secondsPerPercent)
+{
+    double score = 0;
+    for (int i = 0; i < this.riseTimes.length; i++)
+        {
+        if (this.riseTimes[i] < 0)
+            return Double.MAX_VALUE;
+        score += this.riseTimes[i] + (secondsPerPercent * this.overshoots[i]);
+        }
+    return score;
+}
+
+/**
+ * @return The largest steady-state error of any step in the last sequence
+ */
+public double getWorstSteadyStateError ()
+{
+    double worst = 0;
+    for (double error : this.steadyStateErrors)
+        worst = Math.max(worst, error);
+    return worst;
+}
+
+/**
+ * @return Whether or not every step in the last sequence ended in tolerance
+ */
+public boolean isSettled ()
+{
+    for (double settleTime : this.settleTimes)
+        if (settleTime < 0)
+            return false;
+    return true;
+}
+
+/**
+ * @return Each step's 10% to 90% rise time in the last sequence, in seconds,
+ *         -1 where it never got 90% of the way
+ */
+public double[] getRiseTimes ()
+{
+    return this.riseTimes.clone();
+}
+
+/**
+ * @return When each step in the last sequence entered the tolerance for the
+ *         last time, in seconds after it began, -1 where it ended outside
+ */
+public double[] getSettleTimes ()
+{
+    return this.settleTimes.clone();
+}
+
+/**
+ * @return Each step's overshoot in the last sequence, as a percentage of the
+ *         step
+ */
+public double[] getOvershootPercents ()
+{
+    return this.overshoots.clone();
+}
+
+/**
+ * @return Each step's average error over the last fifth of it, in the
+ *         setpoint's units
+ */
+public double[] getSteadyStateErrors ()
+{
+    return this.steadyStateErrors.clone();
+}
+
+/**
+ * @return The scheduler to run the controller under test on
+ */
+public LoopScheduler getScheduler ()
+{
+    return this.scheduler;
+}
+
+/**
+ * @return The simulation's clock, which the scheduler reads
+ */
+public VirtualClock getClock ()
+{
+    return this.clock;
+}
+
+@Override
+public String toString ()
+{
+    StringBuilder table = new StringBuilder(
+            "setpoint   rise(s)   settle(s)   overshoot(%)   steady error\n");
+    for (int i = 0; i < this.setpoints.length; i++)
+        table.append(String.format("%8.2f %9.3f %11.3f %14.1f %14.3f%n",
+                this.setpoints[i], this.riseTimes[i], this.settleTimes[i],
+                this.overshoots[i], this.steadyStateErrors[i]));
+    return table.toString();
+}
+
+/**
+ * Sweeps the P and D of a ScheduledPID on a NEO arm with an ArmFeedforward,
+ * prints the best gains, their steps and how fast the sweep ran. Runs on any
+ * computer with a JDK, no robot needed; WPILib's jars have to be on the
+ * classpath, so run it through the build:
+ *
+ * <pre>
+ * ./gradlew pidSimHarness
+ * </pre>
+ *
+ * @param args
+ *                 Optionally, the worst score to accept. If the best gains
+ *                 score worse, it exits with 1 so the build fails.
+ */
+public static void main (String[] args)
+{
+    double maxScore = args.length > 0 ? Double.parseDouble(args[0])
+            : Double.MAX_VALUE;
+    double[] sequence = {45, 90, 0, -30, 60};
+
+    long start = System.nanoTime();
+    int runs = 0;
+    double bestScore = Double.MAX_VALUE;
+    double bestP = 0;
+    double bestD = 0;
+
+    // Counted in whole steps, so the gains print without rounding error
+    for (int pStep = 1; pStep <= 20; pStep++)
+        for (int dStep = 0; dStep <= 20; dStep++)
+            {
+            double p = pStep * .005;
+            double d = dStep * .0005;
+            double score = runArm(p, d, sequence).getScore(SECONDS_PER_PERCENT);
+            runs++;
+            if (score < bestScore)
+                {
+                bestScore = score;
+                bestP = p;
+                bestD = d;
+                }
+            }
+
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println(runs + " runs of " + sequence.length * ARM_STEP_SECONDS
+            + " simulated seconds in " + Math.round(seconds * 1000) / 1000.0
+            + " s (" + Math.round(runs / seconds) + " runs per second)");
+    System.out.println("Best: P = " + bestP + ", D = " + bestD + ", score = "
+            + bestScore);
+    System.out.print(runArm(bestP, bestD, sequence));
+
+    if (bestScore > maxScore)
+        {
+        System.out.println("Score is worse than " + maxScore);
+        System.exit(1);
+        }
+}
+
+/**
+ * Runs one sequence on a fresh arm with the given gains.
+ */
+private static PIDSimHarness runArm (double p, double d, double[] sequence)
+{
+    PIDSimHarness harness = new PIDSimHarness(.005);
+    MechanismSim arm = MechanismSim.arm(DCMotorModel.neo(1, 100), 10, 20);
+    harness.add(arm);
+
+    ScheduledPID armPID = new ScheduledPID(arm::getPosition, arm::setOutput,
+            harness.getScheduler());
+    armPID.setPID(p, 0, d);
+    armPID.setFeedforward(new ArmFeedforward(0, arm.getGravityVolts(), 0, 0),
+            false);
+    armPID.enable();
+
+    harness.runSequence(armPID::setSetpoint, arm::getPosition, sequence,
+            ARM_STEP_SECONDS, 1);
+    return harness;
+}
+
+// ================VARIABLES================
+
+// Roughly how long each physics step is, in seconds
+private static final double PHYSICS_STEP = .001;
+
+// How much of the end of each step the steady-state error is averaged over
+private static final double STEADY_STATE_FRACTION = .2;
+
+// How much a percent of overshoot counts in main()'s sweep, in seconds
+private static final double SECONDS_PER_PERCENT = .02;
+
+private static final double ARM_STEP_SECONDS = 1.5;
+
+private final VirtualClock clock = new VirtualClock();
+
+private final LoopScheduler scheduler;
+
+private final ArrayList<MechanismSim> mechanisms = new ArrayList<>();
+
+private final int substeps;
+
+private final double physicsStep; // Seconds
+
+private double[] setpoints = new double[0];
+
+private double[] riseTimes = new double[0]; // Seconds
+
+private double[] settleTimes = new double[0]; // Seconds
+
+private double[] overshoots = new double[0]; // Percent
+
+private double[] steadyStateErrors = new double[0];
+}
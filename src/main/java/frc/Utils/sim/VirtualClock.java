@@ -0,0 +1,62 @@
+package frc.Utils.sim;
+
+import frc.Utils.Clock;
+
+/**
+ * A clock that only moves when it is told to. The simulation advances it by
+ * each physics step, so code timed with it runs as fast as the computer can
+ * go instead of in real time.
+ *
+ * Time is kept in whole nanoseconds, so adding up many small steps does not
+ * drift the way adding doubles would.
+ *
+ * Hand it to anything that takes a Clock (Drive.setClock(), Stopwatch, the
+ * actions...) so that the robot code sees the simulation's time.
+ *
+ * @author Kilroy
+ */
+public class VirtualClock implements Clock
+{
+/**
+ * Moves the clock forwards.
+ *
+ * @param seconds
+ *                    How far to move, in seconds.
+ */
+public void advance (double seconds)
+{
+    this.nanos += Math.round(seconds * 1e9);
+}
+
+/**
+ * Moves the clock forwards.
+ *
+ * @param nanoseconds
+ *                        How far to move, in nanoseconds.
+ */
+public void advanceNanos (long nanoseconds)
+{
+    this.nanos += nanoseconds;
+}
+
+/**
+ * @return The time since the clock was created or reset, in nanoseconds.
+ */
+@Override
+public long nanoTime ()
+{
+    return this.nanos;
+}
+
+/**
+ * Sets the clock back to zero.
+ */
+public void reset ()
+{
+    this.nanos = 0;
+}
+
+// ================VARIABLES================
+
+private volatile long nanos = 0;
+}
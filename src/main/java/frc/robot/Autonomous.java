@@ -39,6 +39,8 @@ import edu.wpi.first.wpilibj.Relay.Value;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.Utils.drive.Drive;
 import frc.Utils.drive.Drive.BrakeType;
+import frc.Utils.action.Action;
+import frc.Utils.action.ActionRunner;
 import edu.wpi.first.cameraserver.CameraServer;
 
 
@@ -67,8 +69,9 @@ public class Autonomous
  */
 public static void init ()
 {
-
-
+    // Start whichever routine was picked. The routine's actions are built
+    // once and re-used, so nothing is allocated while it runs.
+    actionRunner.run(autoRoutine);
 } // end Init
 
 /**
@@ -108,6 +111,13 @@ public static Position autoPosition = Position.NULL;
 
 public static Level autoLevel = Level.NULL;
 
+// The action-based routine to run this match (built out of
+// frc.Utils.action and DriveActions). null runs nothing.
+public static Action autoRoutine = null;
+
+// Runs autoRoutine once per periodic() call
+public static final ActionRunner actionRunner = new ActionRunner();
+
 /**
  * User Periodic code for autonomous mode should go here. Will be called
  * periodically at a regular rate while the robot is in autonomous mode.
@@ -124,8 +134,7 @@ public static boolean canceledAuto = false;
 
 public static void periodic ()
 {
-
-
+    actionRunner.update();
 }
 
 // ---------------------------------
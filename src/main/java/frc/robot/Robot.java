@@ -10,6 +10,8 @@ package frc.robot;
 
 import edu.wpi.first.wpilibj.TimedRobot;
 import frc.Hardware.Hardware;
+import frc.Utils.LoopScheduler;
+import frc.Utils.LoopTimingMonitor;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -26,6 +28,11 @@ private static final String kDefaultAuto = "Default";
 private String m_autoSelected;
 // private final SendableChooser<String> m_chooser = new SendableChooser<>();
 
+// Times every pass through the periodic functions; printed when the robot is
+// disabled
+public static final LoopTimingMonitor loopTiming = new LoopTimingMonitor(
+        "Robot loop", TimedRobot.kDefaultPeriod);
+
 /**
  * ------------------------------------------------------- This function is run
  * when the robot is first started up and should be used for any initialization
@@ -48,6 +55,10 @@ public void robotInit ()
     // =========================================================
     Hardware.initialize();
 
+    loopTiming.setSyntheticLoad(BENCHMARK_LOAD);
+    LoopScheduler.getDefault().getTiming()
+            .setSyntheticLoad(BENCHMARK_SCHEDULER_LOAD);
+
     // User code goes above here
     // =========================================================
     // ---------------------------------------
@@ -76,6 +87,18 @@ public void robotPeriodic ()
 {
 } // end robotPeriodic()
 
+/**
+ * Runs one pass of the robot: the periodic function for the mode, then
+ * robotPeriodic(). Timed from entry to exit by loopTiming.
+ */
+@Override
+protected void loopFunc ()
+{
+    loopTiming.begin();
+    super.loopFunc();
+    loopTiming.end();
+} // end loopFunc()
+
 /**
  * ------------------------------------------------------- Initialization code
  * for autonomous mode should go here. Will be called once when the robot enters
@@ -157,6 +180,11 @@ public void disabledInit ()
     // =========================================================
     // User code goes below here
     // =========================================================
+    // How steady the loops were while enabled
+    System.out.println(loopTiming);
+    System.out.println(LoopScheduler.getDefault().getTiming());
+    loopTiming.reset();
+    LoopScheduler.getDefault().resetStatistics();
 
     // =========================================================
     // User code goes above here
@@ -282,5 +310,10 @@ public void testPeriodic ()
 // ==========================================
 // TUNEABLES
 // ==========================================
+// Busy work added to every robot loop and every scheduler tick, in seconds,
+// to benchmark how the loops hold up under load. 0 for a normal robot.
+private static final double BENCHMARK_LOAD = 0;
+
+private static final double BENCHMARK_SCHEDULER_LOAD = 0;
 
 } // end robot class
@@ -15,8 +15,9 @@ import org.opencv.imgproc.Imgproc;
 import edu.wpi.cscore.VideoCamera;
 import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.wpilibj.Relay;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.Relay.Value;
+import frc.Utils.Clock;
+import frc.Utils.Stopwatch;
 
 
 
@@ -203,7 +204,7 @@ private Relay tempRingLight = null;
 
 // timer used in the takeLitPicture function to delay taking an image until
 // after the ringLight turned on
-private final Timer pictureTimer = new Timer();
+private final Stopwatch pictureTimer = new Stopwatch();
 
 /**
  * Creates the object and starts the camera server
@@ -686,6 +687,17 @@ private boolean pictureTakenByButton = false;
 
 private final double TAKE_PICTURE_DELAY = 1.0;
 
+/**
+ * Sets where takeLitPicture() reads the time from.
+ *
+ * @param clock
+ *                  The new time source. Clock.SYSTEM by default.
+ */
+public void setClock (Clock clock)
+{
+    this.pictureTimer.setClock(clock);
+}
+
 /**
  * Gets the value of the ring light relay
  *